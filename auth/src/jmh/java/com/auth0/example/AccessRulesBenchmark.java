@@ -0,0 +1,82 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccessRulesBenchmark - AccessRules.isAllowed against a rule set of a few dozen ERP modules:
+ * <ul>
+ *     <li>wildcard - a deep path under a "/**" rule of one module</li>
+ *     <li>segment - a path matched through a "*" segment</li>
+ *     <li>unmatched - a path no rule covers, which only needs a session</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AccessRulesBenchmark {
+
+    private static final String[] MODULES = {
+            "purchasing", "sales", "inventory", "warehouse", "invoicing", "payroll", "hr", "crm",
+            "projects", "manufacturing", "quality", "assets", "budgets", "contracts", "shipping", "returns"};
+
+    private AccessRules rules;
+    private UserPrincipal principal;
+    private HttpServletRequest wildcard;
+    private HttpServletRequest segment;
+    private HttpServletRequest unmatched;
+
+    @Setup
+    public void setUp() {
+        StringBuilder config = new StringBuilder();
+        for (String module : MODULES) {
+            config.append("*      /portal/").append(module).append("/**  ").append(module).append(":read\n");
+            config.append("POST   /portal/").append(module).append("/**  ").append(module).append(":write\n");
+            config.append("GET    /portal/").append(module).append("/*/reports  reports:read ")
+                    .append(module).append(":read\n");
+        }
+        rules = AccessRules.compile(config.toString());
+
+        long now = System.currentTimeMillis();
+        principal = UserPrincipal.of(new AuthSession("benchmark-session", "auth0|benchmark", null, null, null,
+                "returns:read reports:read shipping:read", now, now + 3_600_000, null, null, null), Long.MAX_VALUE);
+
+        wildcard = request("/portal/returns/orders/2024/10/RMA-000123/lines");
+        segment = request("/portal/shipping/emea/reports");
+        unmatched = request("/portal/home");
+    }
+
+    private static HttpServletRequest request(String path) {
+        return ServletStubs.request("localhost", 3000, path, Collections.emptyMap(), null, null);
+    }
+
+    @Benchmark
+    public boolean wildcard() {
+        return rules.isAllowed(wildcard, principal);
+    }
+
+    @Benchmark
+    public boolean segment() {
+        return rules.isAllowed(segment, principal);
+    }
+
+    @Benchmark
+    public boolean unmatched() {
+        return rules.isAllowed(unmatched, principal);
+    }
+}
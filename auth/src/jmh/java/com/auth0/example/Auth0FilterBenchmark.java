@@ -0,0 +1,98 @@
+package com.auth0.example;
+
+import com.auth0.Tokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auth0FilterBenchmark - Auth0Filter.doFilter for a logged-in user on a protected page, with the session
+ * in the in-memory external store:
+ * <ul>
+ *     <li>cache=principal - the session's principal is cached, no token work at all (the default)</li>
+ *     <li>cache=token - the principal cache is disabled, the ID token is answered from the verification cache</li>
+ *     <li>cache=none - both caches are disabled, every request checks the RS256 signature</li>
+ * </ul>
+ * Plus anonymous, a request without a session that is redirected to the login page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class Auth0FilterBenchmark {
+
+    @Param({"principal", "token", "none"})
+    public String cache;
+
+    private LocalAuth0 auth0;
+    private ServletContext context;
+    private Auth0Filter filter;
+    private HttpServletRequest loggedIn;
+    private HttpServletRequest anonymous;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        context = auth0.context(
+                "com.auth0.principalCache.maxEntries", "principal".equals(cache) ? "10000" : "0",
+                "com.auth0.tokenCache.maxEntries", "none".equals(cache) ? "0" : "10000");
+        new AuthenticationControllerListener().contextInitialized(new ServletContextEvent(context));
+
+        filter = new Auth0Filter();
+        filter.init(ServletStubs.filterConfig(context));
+
+        // Log a user in the way the CallbackServlet would
+        Tokens tokens = new Tokens("benchmark-access-token", auth0.idToken(), null, "Bearer", 86400L);
+        AuthSession session = AuthSession.fromTokens(tokens,
+                AuthenticationControllerProvider.getTokenVerifier(context).verify(tokens.getIdToken()));
+        SessionStores.get(context).save(
+                ServletStubs.request("localhost", 3000, "/callback", Collections.emptyMap(), null, null),
+                ServletStubs.response(), session);
+
+        Cookie sessionCookie = new Cookie(SessionStores.getCookieName(context), session.getId());
+        loggedIn = ServletStubs.request("localhost", 3000, "/portal/home", Collections.emptyMap(),
+                new Cookie[]{sessionCookie}, null);
+        anonymous = ServletStubs.request("localhost", 3000, "/portal/home", Collections.emptyMap(), null, null);
+        response = ServletStubs.response();
+        chain = ServletStubs.chain();
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+        new AuthenticationControllerListener().contextDestroyed(new ServletContextEvent(context));
+        auth0.close();
+    }
+
+    @Benchmark
+    public void loggedIn() throws Exception {
+        filter.doFilter(loggedIn, response, chain);
+    }
+
+    @Benchmark
+    public void anonymous() throws Exception {
+        filter.doFilter(anonymous, response, chain);
+    }
+}
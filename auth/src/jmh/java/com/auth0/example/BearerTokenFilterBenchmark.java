@@ -0,0 +1,83 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BearerTokenFilterBenchmark - BearerTokenFilter.doFilter for a machine client calling the API with an access
+ * token:
+ * <ul>
+ *     <li>tokenCache=hit - the token was verified before and is answered from the verification cache</li>
+ *     <li>tokenCache=miss - the verification cache is disabled, every request checks the RS256 signature</li>
+ * </ul>
+ * Plus missingToken, a request without an Authorization header that is answered with a 401.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BearerTokenFilterBenchmark {
+
+    @Param({"hit", "miss"})
+    public String tokenCache;
+
+    private LocalAuth0 auth0;
+    private BearerTokenFilter filter;
+    private HttpServletRequest authorized;
+    private HttpServletRequest missingToken;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        ServletContext context = auth0.context(
+                "com.auth0.api.tokenCache.maxEntries", "hit".equals(tokenCache) ? "10000" : "0",
+                "com.auth0.accessRules", "GET /api/orders/** orders:read");
+
+        filter = new BearerTokenFilter();
+        filter.init(ServletStubs.filterConfig(context));
+
+        String accessToken = auth0.mintAccessToken("orders:read inventory:read");
+        authorized = ServletStubs.request("localhost", 3000, "/api/orders/1042", Collections.emptyMap(), null, null,
+                Collections.singletonMap("Authorization", "Bearer " + accessToken));
+        missingToken = ServletStubs.request("localhost", 3000, "/api/orders/1042", Collections.emptyMap(), null, null);
+        response = ServletStubs.response();
+        chain = ServletStubs.chain();
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+        auth0.close();
+    }
+
+    @Benchmark
+    public void authorized() throws Exception {
+        filter.doFilter(authorized, response, chain);
+    }
+
+    @Benchmark
+    public void missingToken() throws Exception {
+        filter.doFilter(missingToken, response, chain);
+    }
+}
@@ -0,0 +1,280 @@
+package com.auth0.example;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ListenerHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CallbackLoadTest - Keeps a fixed number of login callbacks in flight against CallbackServlet in an embedded
+ * Jetty, with a stand-in Auth0 tenant that takes a while to answer the code exchange, and reports the callback
+ * throughput and latency, and how much heap, resident memory and how many threads each in-flight callback costs.
+ * <p>
+ * The same tool runs on both container setups, so they can be compared:
+ * <ul>
+ *     <li>./gradlew callbackLoadTest - Jetty 9.4 as deployed by Gretty, platform threads</li>
+ *     <li>./gradlew -Pjava21 callbackLoadTest - Jetty 10 on Java 21, requests and token exchanges on virtual threads</li>
+ * </ul>
+ * Options: [-Pconcurrency=1000] [-PdelayMillis=200] [-Pseconds=10] [-Pthreads=platform|virtual].
+ * The memory figures include the load generator's and the stand-in tenant's share of each callback, which is
+ * the same for both setups.
+ */
+public class CallbackLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long delayMillis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        boolean virtual = args.length > 3 && !args[3].isEmpty() ? "virtual".equals(args[3]) : virtualThreadsSupported();
+
+        try (LocalAuth0 auth0 = new LocalAuth0(delayMillis)) {
+            Server server = server(auth0, concurrency, virtual);
+            server.start();
+            try {
+                int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .executor(Executors.newFixedThreadPool(4, daemon("load-client")))
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build();
+                HttpRequest callback = HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + "/callback?code=load-test&state=" + LocalAuth0.STATE))
+                        .header("Cookie", "com.auth0.state=" + LocalAuth0.STATE + "; com.auth0.nonce=" + LocalAuth0.NONCE)
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+
+                Footprint idle = Footprint.measure();
+                run(client, callback, concurrency, Math.max(seconds / 2, 1), null);
+
+                Result result = new Result(concurrency);
+                Footprint loaded = run(client, callback, concurrency, seconds, result);
+
+                System.out.printf("Login callbacks: Jetty %s on Java %s, %s threads%n", Server.getVersion(),
+                        Runtime.version().feature(), virtual ? "virtual" : "platform");
+                System.out.printf("%d in flight, Auth0 answers the code exchange in %d ms, %d s%n%n",
+                        concurrency, delayMillis, seconds);
+                System.out.printf("%-32s %.0f%n", "callbacks/s", result.completed.get() / (double) seconds);
+                System.out.printf("%-32s %d%n", "failed callbacks", result.failed.get());
+                System.out.printf("%-32s %.1f ms%n", "latency p50", result.percentileMillis(0.50));
+                System.out.printf("%-32s %.1f ms%n", "latency p99", result.percentileMillis(0.99));
+                System.out.printf("%-32s %d%n", "live threads", loaded.threads);
+                System.out.printf("%-32s %.2f%n", "threads per in-flight callback",
+                        (loaded.threads - idle.threads) / (double) concurrency);
+                System.out.printf("%-32s %.1f KiB%n", "heap per in-flight callback",
+                        (loaded.heapBytes - idle.heapBytes) / 1024.0 / concurrency);
+                if (idle.rssBytes > 0) {
+                    System.out.printf("%-32s %.1f KiB%n", "RSS per in-flight callback",
+                            (loaded.rssBytes - idle.rssBytes) / 1024.0 / concurrency);
+                }
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static Server server(LocalAuth0 auth0, int concurrency, boolean virtual) {
+        byte[] cookieKey = new byte[32];
+        new SecureRandom().nextBytes(cookieKey);
+        // Cookie sessions, so nothing piles up on the server between callbacks; room for every callback in flight
+        Map<String, String> parameters = auth0.parameters(
+                "com.auth0.session.mode", "cookie",
+                "com.auth0.session.cookieKey", Base64.getEncoder().encodeToString(cookieKey),
+                "com.auth0.callback.maxConcurrent", Integer.toString(concurrency),
+                "com.auth0.callback.maxQueued", Integer.toString(concurrency),
+                "com.auth0.callback.timeoutMillis", "30000");
+
+        Server server = new Server(threadPool(virtual));
+        ServerConnector connector = new ServerConnector(server);
+        connector.setAcceptQueueSize(concurrency);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        parameters.forEach(context::setInitParameter);
+        // Through a ListenerHolder: addEventListener changed its signature in Jetty 10
+        context.getServletHandler().addListener(new ListenerHolder(AuthenticationControllerListener.class));
+        ServletHolder callback = new ServletHolder(new CallbackServlet());
+        callback.setAsyncSupported(true);
+        context.addServlet(callback, "/callback");
+        server.setHandler(context);
+        return server;
+    }
+
+    /**
+     * The container's request threads: Jetty's default pool of 200 platform threads, or, on Jetty 10 and later,
+     * virtual threads. Looked up reflectively because this tool is compiled against the Jetty 9.4 API.
+     */
+    private static QueuedThreadPool threadPool(boolean virtual) {
+        QueuedThreadPool pool = new QueuedThreadPool(200, 8);
+        pool.setName("http");
+        if (virtual) {
+            if (!virtualThreadsSupported()) {
+                throw new IllegalStateException("Virtual threads need Jetty 10 and Java 21; run with -Pjava21");
+            }
+            try {
+                Object executor = Class.forName("org.eclipse.jetty.util.VirtualThreads")
+                        .getMethod("getDefaultVirtualThreadsExecutor").invoke(null);
+                QueuedThreadPool.class.getMethod("setVirtualThreadsExecutor", Executor.class).invoke(pool, executor);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Couldn't enable virtual threads", e);
+            }
+        }
+        return pool;
+    }
+
+    private static boolean virtualThreadsSupported() {
+        try {
+            return (Boolean) Class.forName("org.eclipse.jetty.util.VirtualThreads").getMethod("areSupported").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Jetty 9.4
+            return false;
+        }
+    }
+
+    /**
+     * Keeps concurrency callbacks in flight for the given time; each finished callback starts the next one.
+     *
+     * @return The footprint measured halfway through, with every callback in flight
+     */
+    private static Footprint run(HttpClient client, HttpRequest callback, int concurrency, int seconds, Result result)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            send(client, callback, running, done, result);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) / 2);
+        Footprint footprint = Footprint.measure();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) / 2);
+
+        running.set(false);
+        done.await(60, TimeUnit.SECONDS);
+        return footprint;
+    }
+
+    private static void send(HttpClient client, HttpRequest callback, AtomicBoolean running, CountDownLatch done, Result result) {
+        long start = System.nanoTime();
+        client.sendAsync(callback, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (result != null && running.get()) {
+                // A successful callback stores the session and redirects to the home page
+                if (failure == null && response.statusCode() == 302
+                        && response.headers().firstValue("Location").orElse("").endsWith("/portal/home")) {
+                    result.record(System.nanoTime() - start);
+                } else {
+                    result.failed.incrementAndGet();
+                }
+            }
+            if (running.get()) {
+                send(client, callback, running, done, result);
+            } else {
+                done.countDown();
+            }
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Callback latencies, in a fixed ring of samples so recording allocates nothing.
+     */
+    private static final class Result {
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long[] samples;
+        final AtomicLong next = new AtomicLong();
+
+        Result(int concurrency) {
+            samples = new long[Math.max(concurrency * 64, 65_536)];
+        }
+
+        void record(long nanos) {
+            completed.incrementAndGet();
+            samples[(int) (next.getAndIncrement() % samples.length)] = nanos;
+        }
+
+        double percentileMillis(double percentile) {
+            int count = (int) Math.min(next.get(), samples.length);
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, (long) (count * percentile))] / 1e6;
+        }
+    }
+
+    /**
+     * Live threads, heap in use after a full GC, and the resident set size (Linux only, else 0).
+     */
+    private static final class Footprint {
+        final int threads;
+        final long heapBytes;
+        final long rssBytes;
+
+        private Footprint(int threads, long heapBytes, long rssBytes) {
+            this.threads = threads;
+            this.heapBytes = heapBytes;
+            this.rssBytes = rssBytes;
+        }
+
+        static Footprint measure() {
+            System.gc();
+            return new Footprint(
+                    ManagementFactory.getThreadMXBean().getThreadCount(),
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                    residentSetBytes());
+        }
+
+        private static long residentSetBytes() {
+            Path status = Paths.get("/proc/self/status");
+            if (!Files.isReadable(status)) {
+                return 0;
+            }
+            try {
+                for (String line : Files.readAllLines(status, StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmRSS:")) {
+                        // e.g. "VmRSS:    123456 kB"
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not available on this platform
+            }
+            return 0;
+        }
+    }
+}
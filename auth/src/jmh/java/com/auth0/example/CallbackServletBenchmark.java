@@ -0,0 +1,79 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CallbackServletBenchmark - A complete login callback against LocalAuth0: state and nonce checks, the
+ * code-for-token exchange over HTTP on the loopback interface, ID token verification and sealing the session
+ * into a cookie (cookie session mode, so nothing accumulates between invocations).
+ * The stub request does not support async, so the exchange runs on the calling thread; this measures the work
+ * per login, not the async hand-off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CallbackServletBenchmark {
+
+    private LocalAuth0 auth0;
+    private ServletContext context;
+    private CallbackServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        byte[] cookieKey = new byte[32];
+        new SecureRandom().nextBytes(cookieKey);
+        context = auth0.context(
+                "com.auth0.session.mode", "cookie",
+                "com.auth0.session.cookieKey", Base64.getEncoder().encodeToString(cookieKey));
+        new AuthenticationControllerListener().contextInitialized(new ServletContextEvent(context));
+
+        servlet = new CallbackServlet();
+        servlet.init(ServletStubs.config(context));
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("code", "benchmark-code");
+        parameters.put("state", LocalAuth0.STATE);
+        Cookie[] cookies = {new Cookie("com.auth0.state", LocalAuth0.STATE), new Cookie("com.auth0.nonce", LocalAuth0.NONCE)};
+        request = ServletStubs.request("localhost", 3000, "/callback", parameters, cookies, null);
+        response = ServletStubs.response();
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.destroy();
+        new AuthenticationControllerListener().contextDestroyed(new ServletContextEvent(context));
+        auth0.close();
+    }
+
+    @Benchmark
+    public void doGet() throws Exception {
+        servlet.doGet(request, response);
+    }
+}
@@ -0,0 +1,108 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventBusBenchmark - What publishing order.created costs the request thread with four consumers (webhook
+ * serialization, an audit line, a metrics count, and a slow one standing in for a network round trip of slowTokens
+ * of work): on the EventBus, and handled in turn on the publishing thread, as events emitted ad hoc are.
+ * Run with -prof gc to see the bus publish without allocating.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventBusBenchmark {
+
+    @Param({"10000"})
+    public int slowTokens;
+
+    private Order order;
+    private EventBus bus;
+    private JsonGenerator audit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        order = new OrderStore().create(JsonNodeFactory.instance.textNode("CUST-001"),
+                ApiJson.MAPPER.readTree("[{\"sku\": \"SKU-001\", \"quantity\": 2, \"price\": 19.99}]"),
+                JsonNodeFactory.instance.textNode("1 Main St"), JsonNodeFactory.instance.nullNode());
+        audit = ApiJson.MAPPER.getFactory().createGenerator(OutputStream.nullOutputStream());
+
+        bus = new EventBus(65536);
+        JsonGenerator busAudit = ApiJson.MAPPER.getFactory().createGenerator(OutputStream.nullOutputStream());
+        bus.subscribe("webhooks", (event, endOfBatch) -> webhook((Order) event.getSubject()),
+                Metrics.EVENTS_LOST_WEBHOOKS);
+        bus.subscribe("audit", (event, endOfBatch) -> {
+            audit(busAudit, (Order) event.getSubject());
+            if (endOfBatch) {
+                busAudit.flush();
+            }
+        }, Metrics.EVENTS_LOST_AUDIT);
+        bus.subscribe("metrics", (event, endOfBatch) -> Metrics.EVENTS[event.getType().ordinal()].increment(),
+                Metrics.EVENTS_LOST_METRICS);
+        bus.subscribe("slow", (event, endOfBatch) -> Blackhole.consumeCPU(slowTokens),
+                new Metrics.Counter("erp_events_lost_total", "Domain events a consumer lost.", "consumer=\"slow\""));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bus.close();
+    }
+
+    @Benchmark
+    public void publishOnBus() {
+        bus.publish(EventBus.Type.ORDER_CREATED, order, null, 0);
+    }
+
+    @Benchmark
+    public void handleInline() throws IOException {
+        webhook(order);
+        audit(audit, order);
+        audit.flush();
+        Metrics.EVENTS[EventBus.Type.ORDER_CREATED.ordinal()].increment();
+        Blackhole.consumeCPU(slowTokens);
+    }
+
+    private static byte[] webhook(Order order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonGenerator json = ApiJson.MAPPER.getFactory().createGenerator(bytes)) {
+            json.writeStartObject();
+            json.writeStringField("event", "order.created");
+            json.writeFieldName("data");
+            order.writeJson(json);
+            json.writeEndObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void audit(JsonGenerator json, Order order) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("event", "order.created");
+        json.writeFieldName("data");
+        order.writeJson(json);
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
@@ -0,0 +1,128 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InventoryLedgerBenchmark - A reservation and its release on a random SKU and location, in the InventoryLedger and
+ * in boxed per-item stock maps guarded by a lock (the shape of the portal's inventory objects), from 4 threads.
+ * Setup prints the heap each takes per SKU-location cell.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InventoryLedgerBenchmark {
+
+    private static final String[] LOCATIONS = {"warehouse", "store"};
+
+    @Param({"1000000"})
+    public int skus;
+
+    private InventoryLedger ledger;
+    private Map<String, BoxedStock> boxed;
+    private String[] skuIds;
+
+    @Setup
+    public void setUp() {
+        skuIds = new String[skus];
+        for (int i = 0; i < skus; i++) {
+            skuIds[i] = String.format("SKU-%07d", i);
+        }
+
+        long before = usedHeap();
+        ledger = new InventoryLedger(Arrays.asList(LOCATIONS));
+        for (String sku : skuIds) {
+            int ordinal = ledger.put(new InventoryItem(sku, -1, null, null, 10, null, null, null)).getOrdinal();
+            for (int location = 0; location < LOCATIONS.length; location++) {
+                ledger.move(ordinal, location, InventoryLedger.Movement.RECEIVE, 1_000_000);
+            }
+        }
+        long ledgerBytes = usedHeap() - before;
+
+        before = usedHeap();
+        boxed = new ConcurrentHashMap<>();
+        for (String sku : skuIds) {
+            BoxedStock stock = new BoxedStock();
+            for (String location : LOCATIONS) {
+                stock.onHand.put(location, 1_000_000L);
+                stock.reserved.put(location, 0L);
+            }
+            boxed.put(sku, stock);
+        }
+        long boxedBytes = usedHeap() - before;
+
+        // The ledger's figure includes its SKU index and item records, the boxed one its map of SKUs
+        long cells = (long) skus * LOCATIONS.length;
+        System.out.printf("%nHeap per cell: ledger %d bytes, boxed maps %d bytes%n",
+                ledgerBytes / cells, boxedBytes / cells);
+    }
+
+    @Benchmark
+    public long ledgerReserveRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        InventoryItem item = ledger.get(skuIds[random.nextInt(skus)]);
+        int location = random.nextInt(LOCATIONS.length);
+        ledger.move(item.getOrdinal(), location, InventoryLedger.Movement.RESERVE, 2);
+        return ledger.move(item.getOrdinal(), location, InventoryLedger.Movement.RELEASE, 2);
+    }
+
+    @Benchmark
+    public long boxedReserveRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BoxedStock stock = boxed.get(skuIds[random.nextInt(skus)]);
+        String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+        stock.reserve(location, 2);
+        return stock.release(location, 2);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Stock as objects: units per location name, boxed, with a lock for check-and-reserve.
+     */
+    private static final class BoxedStock {
+        final Map<String, Long> onHand = new HashMap<>();
+        final Map<String, Long> reserved = new HashMap<>();
+
+        synchronized boolean reserve(String location, long quantity) {
+            if (onHand.get(location) - reserved.get(location) < quantity) {
+                return false;
+            }
+            reserved.put(location, reserved.get(location) + quantity);
+            return true;
+        }
+
+        synchronized long release(String location, long quantity) {
+            long left = reserved.get(location) - quantity;
+            reserved.put(location, left);
+            return left;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.auth0.example;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LocalAuth0 - A stand-in Auth0 tenant on a local port for the benchmarks: it serves the key set at
+ * /.well-known/jwks.json and answers every code exchange at /oauth/token with the same signed ID token.
+ * Refresh token grants get a newly signed ID token and a rotated refresh token, and are counted.
+ * Token responses can be delayed to play a slow tenant; the delay holds no thread.
+ * It also builds the ServletContext the servlets are initialized with.
+ */
+final class LocalAuth0 implements AutoCloseable {
+
+    static final String CLIENT_ID = "benchmark-client";
+    static final String NONCE = "benchmark-nonce";
+    static final String STATE = "benchmark-state";
+    static final String SUBJECT = "auth0|benchmark";
+    static final String REFRESH_TOKEN = "benchmark-refresh-0";
+    static final String API_AUDIENCE = "https://api.benchmark.zeroerp";
+
+    private static final String KEY_ID = "benchmark-key";
+
+    private final KeyPair keyPair;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService delayer;
+    private final long tokenDelayMillis;
+    private final String domain;
+    private final String idToken;
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    LocalAuth0() throws Exception {
+        this(0);
+    }
+
+    /**
+     * @param tokenDelayMillis How long /oauth/token takes to answer
+     */
+    LocalAuth0(long tokenDelayMillis) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        // Without TCP_NODELAY, delayed ACKs add ~40 ms to every small response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        executor = Executors.newFixedThreadPool(4);
+        delayer = Executors.newSingleThreadScheduledExecutor();
+        this.tokenDelayMillis = tokenDelayMillis;
+        server.setExecutor(executor);
+        domain = "http://127.0.0.1:" + server.getAddress().getPort();
+        idToken = mintIdToken(NONCE);
+
+        byte[] jwks = jwks().getBytes(StandardCharsets.UTF_8);
+        byte[] tokens = tokenResponse(idToken, REFRESH_TOKEN);
+        server.createContext("/.well-known/jwks.json", exchange -> respond(exchange, jwks));
+        server.createContext("/oauth/token", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (request.contains("\"refresh_token\"")) {
+                int generation = refreshes.incrementAndGet();
+                respondLater(exchange, tokenResponse(mintIdToken(null), "benchmark-refresh-" + generation));
+            } else {
+                respondLater(exchange, tokens);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * The Auth0 domain to configure, with an http scheme so no TLS is involved.
+     */
+    String domain() {
+        return domain;
+    }
+
+    /**
+     * The ID token every code exchange returns.
+     */
+    String idToken() {
+        return idToken;
+    }
+
+    /**
+     * The number of refresh token grants answered so far.
+     */
+    int refreshes() {
+        return refreshes.get();
+    }
+
+    /**
+     * Signs a new ID token for the benchmark client, valid for a day; the nonce is left out if null.
+     */
+    String mintIdToken(String nonce) {
+        long now = System.currentTimeMillis();
+        return JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(domain + "/")
+                .withAudience(CLIENT_ID)
+                .withSubject(SUBJECT)
+                .withClaim("nonce", nonce)
+                .withClaim("name", "Benchmark User")
+                .withIssuedAt(new Date(now))
+                .withExpiresAt(new Date(now + TimeUnit.DAYS.toMillis(1)))
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    /**
+     * Signs an access token for the benchmark API, as issued to a machine client, valid for a day.
+     */
+    String mintAccessToken(String scope) {
+        long now = System.currentTimeMillis();
+        return JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(domain + "/")
+                .withAudience(API_AUDIENCE)
+                .withSubject(CLIENT_ID + "@clients")
+                .withClaim("scope", scope)
+                .withIssuedAt(new Date(now))
+                .withExpiresAt(new Date(now + TimeUnit.DAYS.toMillis(1)))
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    /**
+     * A ServletContext configured for this tenant, plus the given extra context parameters.
+     */
+    ServletContext context(String... extraParameters) {
+        return ServletStubs.context(parameters(extraParameters));
+    }
+
+    /**
+     * The context parameters for this tenant, plus the given extra ones, e.g. to configure a real container.
+     */
+    Map<String, String> parameters(String... extraParameters) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("com.auth0.domain", domain);
+        parameters.put("com.auth0.clientId", CLIENT_ID);
+        parameters.put("com.auth0.clientSecret", "benchmark-secret");
+        parameters.put("com.auth0.allowedHosts", "localhost");
+        parameters.put("com.auth0.api.audience", API_AUDIENCE);
+        parameters.put("com.auth0.session.mode", "memory");
+        for (int i = 0; i + 1 < extraParameters.length; i += 2) {
+            parameters.put(extraParameters[i], extraParameters[i + 1]);
+        }
+        return parameters;
+    }
+
+    @Override
+    public void close() {
+        AuthenticationControllerProvider.shutdown();
+        server.stop(0);
+        executor.shutdownNow();
+        delayer.shutdownNow();
+    }
+
+    private static byte[] tokenResponse(String idToken, String refreshToken) {
+        return ("{\"access_token\":\"benchmark-access-token\",\"id_token\":\"" + idToken
+                + "\",\"refresh_token\":\"" + refreshToken
+                + "\",\"token_type\":\"Bearer\",\"expires_in\":86400}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String jwks() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\",\"kid\":\"" + KEY_ID + "\","
+                + "\"n\":\"" + base64Url(publicKey.getModulus()) + "\","
+                + "\"e\":\"" + base64Url(publicKey.getPublicExponent()) + "\"}]}";
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            // Drop the sign byte
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private void respondLater(HttpExchange exchange, byte[] body) throws IOException {
+        if (tokenDelayMillis <= 0) {
+            respond(exchange, body);
+            return;
+        }
+        // The exchange stays open until the response is written, so no handler thread waits out the delay
+        delayer.schedule(() -> {
+            try {
+                respond(exchange, body);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, tokenDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
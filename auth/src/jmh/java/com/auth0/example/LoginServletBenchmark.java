@@ -0,0 +1,78 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoginServletBenchmark - Callback URL building, the way LoginServlet used to do it (concatenation on every
+ * request) and through the per-host HostUrls cache, plus the whole LoginServlet.doGet including the
+ * AuthenticationController's authorize URL and state/nonce generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoginServletBenchmark {
+
+    private LocalAuth0 auth0;
+    private LoginServlet servlet;
+    private HostUrls callbackUrls;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        ServletContext context = auth0.context();
+        servlet = new LoginServlet();
+        servlet.init(ServletStubs.config(context));
+        callbackUrls = HostUrls.fromContext(context, baseUrl -> baseUrl + "/callback");
+
+        // The AuthenticationController also keeps the state in the HttpSession
+        request = ServletStubs.request("localhost", 3000, "/login", Collections.emptyMap(), null, ServletStubs.session());
+        response = ServletStubs.response();
+    }
+
+    @TearDown
+    public void tearDown() {
+        auth0.close();
+    }
+
+    @Benchmark
+    public String callbackUrlConcatenated() {
+        String redirectUri = request.getScheme() + "://" + request.getServerName();
+        if ((request.getScheme().equals("http") && request.getServerPort() != 80) ||
+            (request.getScheme().equals("https") && request.getServerPort() != 443)) {
+            redirectUri += ":" + request.getServerPort();
+        }
+        redirectUri += "/callback";
+        return redirectUri;
+    }
+
+    @Benchmark
+    public String callbackUrlCached() {
+        return callbackUrls.get(request);
+    }
+
+    @Benchmark
+    public void doGet() throws Exception {
+        servlet.doGet(request, response);
+    }
+}
@@ -0,0 +1,164 @@
+package com.auth0.example;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.session.DefaultSessionCache;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LogoutFloodBenchmark - Floods /logout with anonymous requests (no cookies, like a crawler or bot) and
+ * reports how many sessions the container created and still holds, for the previous LogoutServlet
+ * implementation and the current one, each deployed in its own context of an embedded Jetty 9.4.
+ * <p>
+ * Run with: ./gradlew logoutFloodBenchmark [-Prequests=20000] [-Pthreads=8]
+ */
+public class LogoutFloodBenchmark {
+
+    private static final AtomicInteger SET_COOKIES = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        Server server = new Server(0);
+        ServletContextHandler legacy = context("/legacy", new LegacyLogoutServlet());
+        ServletContextHandler current = context("/current", new LogoutServlet());
+        server.setHandler(new ContextHandlerCollection(legacy, current));
+        server.start();
+
+        try {
+            int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+            // Warm up both paths, then measure each on fresh counters
+            flood(port, "/legacy/logout", 2_000, threads);
+            flood(port, "/current/logout", 2_000, threads);
+            sessionCache(legacy).resetStats();
+            sessionCache(current).resetStats();
+            int legacyCreated = legacy.getSessionHandler().getSessionsCreated();
+            int currentCreated = current.getSessionHandler().getSessionsCreated();
+            SET_COOKIES.set(0);
+
+            System.out.printf("Anonymous logout flood: %d requests, %d client threads%n%n", requests, threads);
+            System.out.printf("%-8s %11s %17s %16s %15s %12s%n",
+                    "servlet", "requests/s", "sessions created", "peak table size", "end table size", "Set-Cookies");
+            report("legacy", flood(port, "/legacy/logout", requests, threads), requests, legacy, legacyCreated);
+            report("current", flood(port, "/current/logout", requests, threads), requests, current, currentCreated);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static ServletContextHandler context(String path, HttpServlet logoutServlet) {
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath(path);
+        context.setInitParameter("com.auth0.domain", "example.auth0.com");
+        context.setInitParameter("com.auth0.clientId", "benchmark-client");
+        context.setInitParameter("com.auth0.session.mode", "container");
+        // Same idle timeout as a default web.xml deployment
+        context.getSessionHandler().setMaxInactiveInterval(30 * 60);
+        context.addServlet(new ServletHolder(logoutServlet), "/logout");
+        return context;
+    }
+
+    private static long flood(int port, String path, int requests, int threads) throws Exception {
+        URL url = new URL("http", "localhost", port, path);
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                clients.add(pool.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        get(url);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void get(URL url) throws IOException {
+        // No cookie handler is installed, so every request is anonymous
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(false);
+        if (connection.getResponseCode() != HttpServletResponse.SC_FOUND) {
+            throw new IOException("Unexpected status " + connection.getResponseCode() + " from " + url);
+        }
+        if (connection.getHeaderField("Set-Cookie") != null) {
+            SET_COOKIES.incrementAndGet();
+        }
+        try (InputStream body = connection.getInputStream()) {
+            // Drain the body so the connection is kept alive
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static DefaultSessionCache sessionCache(ServletContextHandler context) {
+        return (DefaultSessionCache) context.getSessionHandler().getSessionCache();
+    }
+
+    private static void report(String name, long elapsedNanos, int requests, ServletContextHandler context, int createdBefore) {
+        DefaultSessionCache cache = sessionCache(context);
+        System.out.printf("%-8s %11.0f %17d %16d %15d %12d%n",
+                name,
+                requests / (elapsedNanos / 1e9),
+                context.getSessionHandler().getSessionsCreated() - createdBefore,
+                cache.getSessionsMax(),
+                cache.getSessionsCurrent(),
+                SET_COOKIES.getAndSet(0));
+    }
+
+    /**
+     * The LogoutServlet as it was before logout stopped creating sessions: request.getSession() creates a
+     * session for every anonymous request, only to invalidate it, and the URLs are formatted on every call.
+     */
+    static class LegacyLogoutServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            if (request.getSession() != null) {
+                request.getSession().invalidate();
+            }
+
+            String returnUrl = String.format("%s://%s", request.getScheme(), request.getServerName());
+            if ((request.getScheme().equals("http") && request.getServerPort() != 80) ||
+                (request.getScheme().equals("https") && request.getServerPort() != 443)) {
+                returnUrl += ":" + request.getServerPort();
+            }
+            returnUrl += "/login";
+
+            String logoutUrl = String.format(
+                    "https://%s/v2/logout?client_id=%s&returnTo=%s",
+                    getServletContext().getInitParameter("com.auth0.domain"),
+                    getServletContext().getInitParameter("com.auth0.clientId"),
+                    returnUrl
+            );
+
+            response.sendRedirect(logoutUrl);
+        }
+    }
+}
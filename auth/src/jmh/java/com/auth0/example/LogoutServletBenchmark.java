@@ -0,0 +1,71 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogoutServletBenchmark - An anonymous logout: the previous LogoutServlet (creates and invalidates a session,
+ * formats the URLs on every call) against the current one (no session, URL from the per-host cache).
+ * The stub session costs next to nothing here; in a container, creating one is far more expensive, see
+ * LogoutFloodBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LogoutServletBenchmark {
+
+    private LocalAuth0 auth0;
+    private LogoutServlet servlet;
+    private LogoutFloodBenchmark.LegacyLogoutServlet legacyServlet;
+    private HttpServletRequest anonymous;
+    private HttpServletRequest legacyAnonymous;
+    private HttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        ServletContext context = auth0.context("com.auth0.session.mode", "container");
+        servlet = new LogoutServlet();
+        servlet.init(ServletStubs.config(context));
+        legacyServlet = new LogoutFloodBenchmark.LegacyLogoutServlet();
+        legacyServlet.init(ServletStubs.config(context));
+
+        anonymous = ServletStubs.request("localhost", 3000, "/logout", Collections.emptyMap(), null, null);
+        // request.getSession() always returns a session, which the previous servlet relied on
+        legacyAnonymous = ServletStubs.request("localhost", 3000, "/logout", Collections.emptyMap(), null, ServletStubs.session());
+        response = ServletStubs.response();
+    }
+
+    @TearDown
+    public void tearDown() {
+        auth0.close();
+    }
+
+    @Benchmark
+    public void legacy() throws Exception {
+        legacyServlet.doGet(legacyAnonymous, response);
+    }
+
+    @Benchmark
+    public void current() throws Exception {
+        servlet.doGet(anonymous, response);
+    }
+}
@@ -0,0 +1,103 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LowStockDetectorBenchmark - What finding the low SKUs costs among 1M, about 1% of them low: a stock movement
+ * in a ledger the LowStockDetector listens to and in one nobody listens to, then a check-levels answer read from
+ * the detector and one found by checking every SKU, as the portal's check-levels does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LowStockDetectorBenchmark {
+
+    private static final long SAFETY_STOCK = 100;
+
+    @Param({"1000000"})
+    public int skus;
+
+    private InventoryLedger watched;
+    private InventoryLedger unwatched;
+    private LowStockDetector detector;
+
+    @Setup
+    public void setUp() {
+        watched = new InventoryLedger(Arrays.asList("warehouse", "store"));
+        detector = new LowStockDetector(watched, new EventBus(1024), 10);
+        watched.setListener(detector);
+        unwatched = new InventoryLedger(Arrays.asList("warehouse", "store"));
+
+        Random random = new Random(42);
+        for (int i = 0; i < skus; i++) {
+            String sku = String.format("SKU-%07d", i);
+            // Mostly well stocked; 1 in 100 below its safety stock
+            long stock = random.nextInt(100) == 0 ? random.nextInt((int) SAFETY_STOCK) : 200 + random.nextInt(1000);
+            for (InventoryLedger ledger : Arrays.asList(watched, unwatched)) {
+                int ordinal = ledger.put(new InventoryItem(sku, -1, null, null, SAFETY_STOCK, null, null, null))
+                        .getOrdinal();
+                ledger.move(ordinal, 0, InventoryLedger.Movement.COUNT, stock);
+            }
+        }
+        System.out.printf("%n%d of %d SKUs low%n", detector.size(), skus);
+    }
+
+    @Benchmark
+    public long moveWatched() {
+        return adjust(watched);
+    }
+
+    @Benchmark
+    public long moveUnwatched() {
+        return adjust(unwatched);
+    }
+
+    @Benchmark
+    public List<LowStockDetector.Shortfall> checkLevelsFromDetector() {
+        return detector.worst(50);
+    }
+
+    @Benchmark
+    public List<LowStockDetector.Shortfall> checkLevelsByScan() {
+        List<LowStockDetector.Shortfall> low = new ArrayList<>();
+        int size = unwatched.size();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            InventoryItem item = unwatched.get(ordinal);
+            long stock = unwatched.totalOnHand(ordinal);
+            if (stock <= item.getSafetyStock()) {
+                low.add(new LowStockDetector.Shortfall(item, stock));
+            }
+        }
+        low.sort((a, b) -> Long.compare(b.getDeficit(), a.getDeficit()));
+        return low.subList(0, Math.min(50, low.size()));
+    }
+
+    /**
+     * A unit sold and one returned on a random SKU, so the stock stays where it started.
+     */
+    private long adjust(InventoryLedger ledger) {
+        int ordinal = ThreadLocalRandom.current().nextInt(skus);
+        ledger.move(ordinal, 0, InventoryLedger.Movement.ADJUST, -1);
+        return ledger.move(ordinal, 0, InventoryLedger.Movement.ADJUST, 1);
+    }
+}
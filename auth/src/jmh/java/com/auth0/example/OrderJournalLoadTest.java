@@ -0,0 +1,124 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * OrderJournalLoadTest - Durable order writes per second through the journaled OrderStore at several numbers
+ * of concurrent writers, each write returning only once it is on disk, as POST /portal/api/orders does; then the
+ * time a restart takes to replay the journal after a crash, and to load the snapshot written at a clean shutdown.
+ * <p>
+ * ./gradlew orderJournalLoadTest [-Pthreads=1,16,64] [-Pseconds=5] [-Pdir=/path/on/the/production/disk]
+ * <p>
+ * With one writer every order pays a whole force; with more, writers that arrive during a force share the next
+ * one. The directory should be on the disk the journal will use in production, as forces cost what it costs.
+ */
+public class OrderJournalLoadTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = Arrays.stream((args.length > 0 ? args[0] : "1,16,64").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path directory = args.length > 2 && !args[2].isEmpty()
+                ? Paths.get(args[2]) : Files.createTempDirectory("order-journal");
+        JsonNode items = items();
+
+        try {
+            System.out.printf("Order journal in %s, %d s per run%n%n", directory, seconds);
+            System.out.printf("%8s %12s %12s%n", "writers", "orders/s", "avg us");
+            OrderStore store = new OrderStore(new OrderJournal(directory, SEGMENT_BYTES, 4));
+            for (int threads : threadCounts) {
+                int written = run(store, items, threads, seconds);
+                System.out.printf("%8d %12.0f %12.1f%n", threads, written / (double) seconds,
+                        threads * seconds * 1e6 / Math.max(written, 1));
+            }
+            int orders = store.size();
+
+            // A crash: the store is dropped without a snapshot, so the restart replays the segments
+            long start = System.nanoTime();
+            OrderStore recovered = new OrderStore(new OrderJournal(directory, SEGMENT_BYTES, 4));
+            System.out.printf("%nReplay after a crash: %d of %d orders in %d ms%n",
+                    recovered.size(), orders, (System.nanoTime() - start) / 1_000_000);
+
+            // A clean shutdown writes a snapshot, so the restart reads that instead
+            recovered.close();
+            start = System.nanoTime();
+            OrderStore restarted = new OrderStore(new OrderJournal(directory, SEGMENT_BYTES, 4));
+            System.out.printf("Restart from the snapshot: %d orders in %d ms%n",
+                    restarted.size(), (System.nanoTime() - start) / 1_000_000);
+            restarted.close();
+        } finally {
+            if (args.length <= 2) {
+                delete(directory);
+            }
+        }
+    }
+
+    /**
+     * Creates orders from the given number of threads for the given time.
+     *
+     * @return The number of orders created
+     */
+    private static int run(OrderStore store, JsonNode items, int threads, int seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            int writer = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; running.get(); n++) {
+                        store.create(TextNode.valueOf("cus_" + writer + "_" + n % 100), items,
+                                MissingNode.getInstance(), MissingNode.getInstance());
+                        written.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        return written.get();
+    }
+
+    /**
+     * The items of a typical order: three lines with SKU, name, price and quantity.
+     */
+    private static JsonNode items() {
+        ArrayNode items = ApiJson.MAPPER.createArrayNode();
+        for (int i = 1; i <= 3; i++) {
+            ObjectNode item = items.addObject();
+            item.put("sku", "SKU-" + (1000 + i));
+            item.put("name", "Widget " + i);
+            item.put("price", 19.99 * i);
+            item.put("quantity", i);
+        }
+        return items;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderStoreBenchmark - The order lookups of the orders API on a store of many orders: by id, a page of one
+ * customer's orders and a page of one status, against the Node server's way of filtering the whole array
+ * (scanByCustomer), which grows with every order stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderStoreBenchmark {
+
+    private static final String[] STATUSES = {"pending", "confirmed", "shipped", "delivered", "cancelled"};
+
+    @Param({"200000"})
+    public int orders;
+
+    @Param({"2000"})
+    public int customers;
+
+    private OrderStore store;
+    private List<Order> all;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        store = new OrderStore();
+        all = new ArrayList<>(orders);
+        ids = new String[orders];
+        for (int i = 0; i < orders; i++) {
+            ArrayNode items = ApiJson.MAPPER.createArrayNode();
+            ObjectNode item = items.addObject();
+            item.put("sku", "SKU-" + (i % 500));
+            item.put("price", 9.99);
+            item.put("quantity", 1 + i % 5);
+            Order order = store.create(TextNode.valueOf("cus_" + (i % customers)), items,
+                    MissingNode.getInstance(), MissingNode.getInstance());
+            if (i % 3 != 0) {
+                order = store.updateStatus(order.getId(), STATUSES[1 + i % (STATUSES.length - 1)]).getOrder();
+            }
+            ids[i] = order.getId();
+        }
+        for (String id : ids) {
+            all.add(store.get(id));
+        }
+    }
+
+    @Benchmark
+    public Order getById() {
+        return store.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public OrderStore.Page listByCustomer() {
+        return store.list(customer(), null, Long.MIN_VALUE, Long.MAX_VALUE, null, 50);
+    }
+
+    @Benchmark
+    public OrderStore.Page listByStatus() {
+        return store.list(null, "shipped", Long.MIN_VALUE, Long.MAX_VALUE, null, 50);
+    }
+
+    @Benchmark
+    public List<Order> scanByCustomer() {
+        String customer = customer();
+        List<Order> page = new ArrayList<>();
+        for (Order order : all) {
+            if (customer.equals(order.getCustomerKey())) {
+                page.add(order);
+            }
+        }
+        return page;
+    }
+
+    private String customer() {
+        return "cus_" + ThreadLocalRandom.current().nextInt(customers);
+    }
+}
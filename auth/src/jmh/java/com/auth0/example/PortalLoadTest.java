@@ -0,0 +1,215 @@
+package com.auth0.example;
+
+import com.auth0.Tokens;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ListenerHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.resource.Resource;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PortalLoadTest - Requests the portal home page and its stylesheet from an embedded Jetty with the
+ * application's filters and servlets, over HTTP/1.1 and cleartext HTTP/2, with and without gzip, and reports
+ * per combination the requests per second, the latency and the body bytes each response puts on the wire.
+ * <p>
+ * ./gradlew portalLoadTest [-Pconcurrency=16] [-Pseconds=5]
+ * <p>
+ * The user is logged in with real-sized tokens, so the page carries what it does in production; the
+ * stylesheet is requested by its versioned URL, as the page links it. Body bytes leave out the headers, which
+ * HTTP/2 compresses with HPACK on top.
+ */
+public class PortalLoadTest {
+
+    private static final String[] PROTOCOLS = {"HTTP/1.1", "h2c"};
+    private static final String[] ENCODINGS = {"identity", "gzip"};
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try (LocalAuth0 auth0 = new LocalAuth0()) {
+            ServletContextHandler context = application(auth0);
+            Server server = server(context);
+            server.start();
+            try {
+                int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+                String sessionCookie = logIn(auth0, context.getServletContext());
+                String stylesheet = StaticResourceServlet.versionedUrl(context.getServletContext(), "/home.css");
+
+                System.out.printf("Portal pages: Jetty %s, %d concurrent requests, %d s each%n%n",
+                        Server.getVersion(), concurrency, seconds);
+                System.out.printf("%-28s %-9s %-9s %10s %10s %10s %12s%n",
+                        "path", "protocol", "encoding", "req/s", "p50 ms", "p99 ms", "body bytes");
+                for (String path : new String[]{"/portal/home", stylesheet}) {
+                    for (String protocol : PROTOCOLS) {
+                        for (String encoding : ENCODINGS) {
+                            HttpClient client = HttpClient.newBuilder()
+                                    .version("h2c".equals(protocol) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                                    .executor(clientExecutor)
+                                    .connectTimeout(Duration.ofSeconds(10))
+                                    .build();
+                            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                                    .header("Cookie", sessionCookie)
+                                    .header("Accept-Encoding", encoding)
+                                    .timeout(Duration.ofSeconds(30))
+                                    .build();
+                            // Warm up, and let HTTP/2 connections upgrade
+                            run(client, request, concurrency, Math.max(seconds / 2, 1), null);
+                            Result result = new Result(protocol);
+                            run(client, request, concurrency, seconds, result);
+                            System.out.printf("%-28s %-9s %-9s %10.0f %10.2f %10.2f %12d%n",
+                                    path.length() > 28 ? path.substring(0, 25) + "..." : path, protocol, encoding,
+                                    result.completed.get() / (double) seconds,
+                                    result.percentileMillis(0.50), result.percentileMillis(0.99), result.bodyBytes.get());
+                            if (result.failed.get() > 0) {
+                                System.out.printf("  %d failed requests%n", result.failed.get());
+                            }
+                        }
+                    }
+                }
+            } finally {
+                server.stop();
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * The filters and servlets of web.xml that serve the portal pages.
+     */
+    private static ServletContextHandler application(LocalAuth0 auth0) {
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        // src/main/webapp, which the build copies into the benchmark resources
+        context.setBaseResource(Resource.newClassPathResource("/webapp"));
+        auth0.parameters().forEach(context::setInitParameter);
+        // Through a ListenerHolder: addEventListener changed its signature in Jetty 10
+        context.getServletHandler().addListener(new ListenerHolder(AuthenticationControllerListener.class));
+
+        context.addFilter(new FilterHolder(CompressionFilter.class), "/portal/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(new FilterHolder(Auth0Filter.class), "/portal/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addServlet(HomeServlet.class, "/portal/home");
+        context.addServlet(StaticResourceServlet.class, StaticResourceServlet.PATH + "/*");
+        return context;
+    }
+
+    private static Server server(ServletContextHandler context) {
+        Server server = new Server();
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        ServerConnector connector = new ServerConnector(server,
+                new HttpConnectionFactory(httpConfig), new HTTP2CServerConnectionFactory(httpConfig));
+        server.addConnector(connector);
+        server.setHandler(context);
+        return server;
+    }
+
+    /**
+     * Logs a user in the way the CallbackServlet would, with an access token for an API.
+     *
+     * @return The Cookie header of the session
+     */
+    private static String logIn(LocalAuth0 auth0, ServletContext context) throws Exception {
+        Tokens tokens = new Tokens(auth0.mintAccessToken("read:orders write:orders read:inventory"),
+                auth0.idToken(), null, "Bearer", 86400L);
+        AuthSession session = AuthSession.fromTokens(tokens,
+                AuthenticationControllerProvider.getTokenVerifier(context).verify(tokens.getIdToken()));
+        SessionStores.get(context).save(
+                ServletStubs.request("localhost", 3000, "/callback", Collections.emptyMap(), null, null),
+                ServletStubs.response(), session);
+        return SessionStores.getCookieName(context) + "=" + session.getId();
+    }
+
+    /**
+     * Keeps concurrency requests in flight for the given time; each finished request starts the next one.
+     */
+    private static void run(HttpClient client, HttpRequest request, int concurrency, int seconds, Result result)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            send(client, request, running, done, result);
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        done.await(60, TimeUnit.SECONDS);
+    }
+
+    private static void send(HttpClient client, HttpRequest request, AtomicBoolean running, CountDownLatch done, Result result) {
+        long start = System.nanoTime();
+        // The client doesn't decompress, so the body is what came over the wire
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, failure) -> {
+            if (result != null && running.get()) {
+                if (failure == null && response.statusCode() == 200 && result.expects(response.version())) {
+                    result.record(System.nanoTime() - start, response.body().length);
+                } else {
+                    result.failed.incrementAndGet();
+                }
+            }
+            if (running.get()) {
+                send(client, request, running, done, result);
+            } else {
+                done.countDown();
+            }
+        });
+    }
+
+    /**
+     * Latencies, in a fixed ring of samples, and the body size of the last response.
+     */
+    private static final class Result {
+        final String protocol;
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong bodyBytes = new AtomicLong();
+        final long[] samples = new long[1 << 20];
+        final AtomicLong next = new AtomicLong();
+
+        Result(String protocol) {
+            this.protocol = protocol;
+        }
+
+        boolean expects(HttpClient.Version version) {
+            return (version == HttpClient.Version.HTTP_2) == "h2c".equals(protocol);
+        }
+
+        void record(long nanos, int bytes) {
+            completed.incrementAndGet();
+            bodyBytes.set(bytes);
+            samples[(int) (next.getAndIncrement() % samples.length)] = nanos;
+        }
+
+        double percentileMillis(double percentile) {
+            int count = (int) Math.min(next.get(), samples.length);
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, (long) (count * percentile))] / 1e6;
+        }
+    }
+}
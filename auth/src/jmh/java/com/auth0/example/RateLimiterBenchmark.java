@@ -0,0 +1,63 @@
+package com.auth0.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiterBenchmark - InMemoryRateLimiter.acquire from 8 threads at once:
+ * <ul>
+ *     <li>spread - clients from a pool of 50,000 addresses, as during a distributed credential-stuffing run</li>
+ *     <li>single - one client hammering the endpoint, i.e. every thread on the same key and stripe</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RateLimiterBenchmark {
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private InMemoryRateLimiter rateLimiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new InMemoryRateLimiter(100_000);
+        keys = new String[50_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "/login:ip:10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        rateLimiter.close();
+    }
+
+    @Benchmark
+    public long spread() {
+        return rateLimiter.acquire(keys[ThreadLocalRandom.current().nextInt(keys.length)], 60, WINDOW_MILLIS);
+    }
+
+    @Benchmark
+    public long single() {
+        return rateLimiter.acquire(keys[0], 60, WINDOW_MILLIS);
+    }
+}
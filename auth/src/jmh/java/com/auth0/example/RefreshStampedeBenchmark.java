@@ -0,0 +1,85 @@
+package com.auth0.example;
+
+import com.auth0.Tokens;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RefreshStampedeBenchmark - Logs users in with tokens that are about to expire, then sends a burst of parallel
+ * requests for each session through Auth0Filter at the same moment (many tabs or XHRs after a laptop wakes up),
+ * and reports how many refresh token grants reached the stand-in Auth0 tenant. With single-flight refreshes
+ * that is one per session, and every request of the burst passes the filter.
+ * <p>
+ * Run with: ./gradlew refreshStampedeBenchmark [-Psessions=20] [-Pthreads=32]
+ */
+public class RefreshStampedeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
+        try (LocalAuth0 auth0 = new LocalAuth0()) {
+            ServletContext context = auth0.context("com.auth0.refresh.aheadSeconds", "300");
+            new AuthenticationControllerListener().contextInitialized(new ServletContextEvent(context));
+            Auth0Filter filter = new Auth0Filter();
+            filter.init(ServletStubs.filterConfig(context));
+
+            AtomicInteger passed = new AtomicInteger();
+            FilterChain chain = (request, response) -> passed.incrementAndGet();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            long slowestNanos = 0;
+            try {
+                for (int s = 0; s < sessions; s++) {
+                    // Expires in a minute, well inside the refresh window
+                    Tokens tokens = new Tokens("benchmark-access-token", auth0.idToken(), LocalAuth0.REFRESH_TOKEN, "Bearer", 60L);
+                    AuthSession session = AuthSession.fromTokens(tokens,
+                            AuthenticationControllerProvider.getTokenVerifier(context).verify(tokens.getIdToken()));
+                    SessionStores.get(context).save(
+                            ServletStubs.request("localhost", 3000, "/callback", Collections.emptyMap(), null, null),
+                            ServletStubs.response(), session);
+                    Cookie[] cookies = {new Cookie(SessionStores.getCookieName(context), session.getId())};
+
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<Long>> burst = new ArrayList<>();
+                    for (int t = 0; t < threads; t++) {
+                        burst.add(pool.submit(() -> {
+                            HttpServletRequest request = ServletStubs.request("localhost", 3000, "/portal/home",
+                                    Collections.emptyMap(), cookies, null);
+                            start.await();
+                            long begin = System.nanoTime();
+                            filter.doFilter(request, ServletStubs.response(), chain);
+                            return System.nanoTime() - begin;
+                        }));
+                    }
+                    start.countDown();
+                    for (Future<Long> request : burst) {
+                        slowestNanos = Math.max(slowestNanos, request.get());
+                    }
+                }
+            } finally {
+                pool.shutdown();
+                filter.destroy();
+                new AuthenticationControllerListener().contextDestroyed(new ServletContextEvent(context));
+            }
+
+            System.out.printf("Refresh stampede: %d sessions due for refresh, %d parallel requests each%n%n", sessions, threads);
+            System.out.printf("%-28s %d%n", "requests", sessions * threads);
+            System.out.printf("%-28s %d%n", "requests that passed", passed.get());
+            System.out.printf("%-28s %d%n", "refresh grants at Auth0", auth0.refreshes());
+            System.out.printf("%-28s %.1f ms%n", "slowest request", slowestNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
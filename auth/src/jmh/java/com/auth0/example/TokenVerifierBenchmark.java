@@ -0,0 +1,78 @@
+package com.auth0.example;
+
+import com.auth0.jwk.UrlJwkProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenVerifierBenchmark - ID token verification:
+ * <ul>
+ *     <li>cachedToken - a token that was verified before, answered from the verification cache</li>
+ *     <li>uncachedToken - signature and claims checked on every call, signing keys from the JWKS cache</li>
+ *     <li>uncachedKeys - as uncachedToken, but the key set is downloaded on every call (no JWKS cache)</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TokenVerifierBenchmark {
+
+    private LocalAuth0 auth0;
+    private CachingJwkProvider jwkProvider;
+    private TokenVerifier cachingVerifier;
+    private TokenVerifier verifier;
+    private TokenVerifier verifierWithoutKeyCache;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        auth0 = new LocalAuth0();
+        URL jwksUrl = new URL(auth0.domain() + "/.well-known/jwks.json");
+        jwkProvider = new CachingJwkProvider(jwksUrl, 10, TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1), 10, 3000);
+        jwkProvider.warmUp();
+
+        String issuer = auth0.domain() + "/";
+        cachingVerifier = new TokenVerifier(jwkProvider, issuer, LocalAuth0.CLIENT_ID, 60, 10_000);
+        verifier = new TokenVerifier(jwkProvider, issuer, LocalAuth0.CLIENT_ID, 60, 0);
+        verifierWithoutKeyCache = new TokenVerifier(new UrlJwkProvider(jwksUrl), issuer, LocalAuth0.CLIENT_ID, 60, 0);
+
+        token = auth0.idToken();
+        cachingVerifier.verify(token);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jwkProvider.close();
+        auth0.close();
+    }
+
+    @Benchmark
+    public VerifiedToken cachedToken() {
+        return cachingVerifier.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken uncachedToken() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken uncachedKeys() {
+        return verifierWithoutKeyCache.verify(token);
+    }
+}
@@ -0,0 +1,127 @@
+package com.auth0.example;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * WebhookLoadTest - Publishes inventory.low events at a steady rate on an EventBus consumed by a WebhookDispatcher
+ * with several endpoints on a local WebhookSink that fails a share of deliveries, then waits for every delivery and its retries, and
+ * reports what publishing cost the publishers, the deliveries per second, and what the sink saw.
+ * <p>
+ * ./gradlew webhookLoadTest [-Pendpoints=4] [-Pseconds=5] [-Prate=2000] [-PfailPercent=10]
+ * <p>
+ * Every event goes to every endpoint, so the sink expects rate x endpoints deliveries a second. Retries are
+ * stored in a temporary directory, as with com.auth0.webhooks.retryDir.
+ */
+public class WebhookLoadTest {
+
+    private static final String SECRET = "load-test-secret";
+    private static final int PUBLISHERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int endpointCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int failPercent = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Path retryDirectory = Files.createTempDirectory("webhook-retries");
+        try (WebhookSink sink = new WebhookSink(0, SECRET, failPercent)) {
+            List<WebhookEndpoint> endpoints = new ArrayList<>();
+            for (int i = 0; i < endpointCount; i++) {
+                endpoints.add(new WebhookEndpoint(URI.create(sink.url("/hooks/" + i)),
+                        new HashSet<>(Arrays.asList("inventory.low", "order.created")), SECRET));
+            }
+            WebhookDispatcher dispatcher = new WebhookDispatcher(endpoints, 100_000, 4, 10, retryDirectory);
+            EventBus events = new EventBus(65536);
+            events.subscribe("webhooks", dispatcher, Metrics.EVENTS_LOST_WEBHOOKS);
+
+            System.out.printf("Webhooks: %d endpoints, %d events/s for %d s, %d%% of deliveries failing%n%n",
+                    endpointCount, rate, seconds, failPercent);
+            // Warm up the JIT and the connections, then measure from fresh counts
+            publish(events, rate, Math.max(seconds / 2, 1), new AtomicLong());
+            drain(events, dispatcher);
+            long acceptedBefore = sink.accepted();
+            long receivedBefore = sink.received.get();
+            long failedBefore = sink.failed.get();
+
+            long start = System.nanoTime();
+            AtomicLong publishNanos = new AtomicLong();
+            long published = publish(events, rate, seconds, publishNanos);
+            drain(events, dispatcher);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            events.close();
+            dispatcher.close();
+
+            long delivered = sink.accepted() - acceptedBefore;
+            System.out.printf("Published %d events, %.0f ns each on the publishing thread%n",
+                    published, (double) publishNanos.get() / Math.max(published, 1));
+            System.out.printf("Delivered %d of %d in %.1f s: %.0f deliveries/s%n",
+                    delivered, published * endpointCount, elapsed, delivered / elapsed);
+            System.out.printf("Sink: %d requests, %d failed on purpose, %d bad signatures, %d repeats%n",
+                    sink.received.get() - receivedBefore, sink.failed.get() - failedBefore,
+                    sink.badSignatures.get(), sink.repeats.get());
+            System.out.printf("Still pending: %d%n", dispatcher.pending());
+        } finally {
+            try (Stream<Path> files = Files.walk(retryDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Waits for every event to be queued and every delivery and its retries; the sink may fail a retry too, so the
+     * last take a few backoffs.
+     */
+    private static void drain(EventBus events, WebhookDispatcher dispatcher) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while ((events.backlog("webhooks") > 0 || dispatcher.pending() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Publishes events from several threads, together at the given rate, for the given time.
+     *
+     * @return The number of events published
+     */
+    private static long publish(EventBus events, int rate, int seconds, AtomicLong publishNanos)
+            throws InterruptedException {
+        AtomicLong published = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(PUBLISHERS);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * PUBLISHERS / rate;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < PUBLISHERS; i++) {
+            InventoryItem item = new InventoryItem("SKU-" + i, i, "Widget", null, 10, null, null, null);
+            Thread thread = new Thread(() -> {
+                try {
+                    long next = System.nanoTime();
+                    for (int n = 0; next < end; n++) {
+                        LockSupport.parkNanos(next - System.nanoTime());
+                        long start = System.nanoTime();
+                        events.publish(EventBus.Type.INVENTORY_LOW, item, null, n % 10);
+                        publishNanos.addAndGet(System.nanoTime() - start);
+                        published.incrementAndGet();
+                        next += intervalNanos;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return published.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.auth0.example;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebhookSink - A local webhook endpoint for the load tests, on an embedded Jetty 9.4: it accepts deliveries on any path, checks their
+ * X-ZeroERP-Signature against the secret, answers a share of them 503 to make the dispatcher retry, and counts
+ * what it received, including deliveries it had already accepted once.
+ * <p>
+ * ./gradlew webhookSink [-Pport=9000] [-PfailPercent=0] [-Psecret=sink-secret] prints its counts every second,
+ * for a dispatcher in a running server to deliver to.
+ */
+final class WebhookSink implements AutoCloseable {
+
+    private final Server server;
+    private final SecretKeySpec key;
+    private final int failPercent;
+
+    final AtomicLong received = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong badSignatures = new AtomicLong();
+    final AtomicLong repeats = new AtomicLong();
+    private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param port        The port, 0 for any free one
+     * @param secret      The endpoints' secret, to check signatures with
+     * @param failPercent The share of deliveries to answer 503
+     */
+    WebhookSink(int port, String secret, int failPercent) throws Exception {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.failPercent = failPercent;
+        server = new Server(port);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest req, HttpServletResponse res)
+                    throws IOException {
+                baseRequest.setHandled(true);
+                res.setStatus(receive(req));
+            }
+        });
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9000;
+        int failPercent = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        String secret = args.length > 2 ? args[2] : "sink-secret";
+        try (WebhookSink sink = new WebhookSink(port, secret, failPercent)) {
+            System.out.printf("Webhook sink on %s, failing %d%%%n", sink.url("/"), failPercent);
+            System.out.printf("%10s %10s %10s %14s %10s%n", "received", "accepted", "failed", "bad signature", "repeats");
+            while (true) {
+                Thread.sleep(1000);
+                System.out.printf("%10d %10d %10d %14d %10d%n", sink.received.get(), sink.accepted(),
+                        sink.failed.get(), sink.badSignatures.get(), sink.repeats.get());
+            }
+        }
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + path;
+    }
+
+    /**
+     * @return The number of distinct deliveries accepted
+     */
+    long accepted() {
+        return accepted.size();
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.stop();
+        } catch (Exception e) {
+            throw new IllegalStateException("Couldn't stop the webhook sink", e);
+        }
+    }
+
+    /**
+     * @return The response status for the delivery
+     */
+    private int receive(HttpServletRequest req) throws IOException {
+        byte[] body;
+        try (InputStream in = req.getInputStream()) {
+            body = in.readAllBytes();
+        }
+        received.incrementAndGet();
+        String signature = req.getHeader("X-ZeroERP-Signature");
+        if (signature == null || !signature.equals(WebhookDispatcher.sign(key, body))) {
+            badSignatures.incrementAndGet();
+            return HttpServletResponse.SC_UNAUTHORIZED;
+        }
+        if (ThreadLocalRandom.current().nextInt(100) < failPercent) {
+            failed.incrementAndGet();
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        }
+        if (!accepted.add(req.getHeader("X-ZeroERP-Delivery"))) {
+            repeats.incrementAndGet();
+        }
+        return HttpServletResponse.SC_NO_CONTENT;
+    }
+}
@@ -0,0 +1,334 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AccessRules - Per-path, per-method scope requirements for the protected paths, checked by Auth0Filter on
+ * every request.
+ * The rules come from the com.auth0.accessRules context parameter, one per line:
+ * <pre>
+ *     # METHODS              PATH                   SCOPES (all required, "-" for none)
+ *     *                      /portal/purchasing/**  po:read
+ *     POST,PUT,PATCH,DELETE  /portal/purchasing/**  po:write
+ *     GET                    /portal/&#42;/reports    reports:read
+ * </pre>
+ * Paths are matched against the servlet path plus path info, so they are relative to the application and
+ * already decoded and normalized by the container. A "*" segment matches exactly one path segment, a trailing
+ * "**" matches the path itself and anything below it. The most specific pattern wins (literal characters before
+ * "*", "*" before "**"), and for one pattern a rule naming the request method replaces the "*" rule; a pattern
+ * without a rule for the method is skipped in favor of a less specific one. HEAD is checked like GET. Paths no
+ * rule matches only require a session.
+ * <p>
+ * The patterns are compiled into a character trie at startup and every scope name is given a bit, so a check
+ * walks the path once and compares bitsets, without regular expressions or allocation per request.
+ */
+final class AccessRules {
+
+    private static final int ANY = 0;
+    private static final int GET = 1;
+    private static final int POST = 2;
+    private static final int PUT = 3;
+    private static final int PATCH = 4;
+    private static final int DELETE = 5;
+    private static final int OPTIONS = 6;
+    private static final int METHODS = 7;
+
+    private static final long[] NOTHING_REQUIRED = new long[0];
+
+    private final Node root;
+    private final Map<String, Integer> scopeBits;
+    private final boolean empty;
+
+    private AccessRules(Node root, Map<String, Integer> scopeBits, boolean empty) {
+        this.root = root;
+        this.scopeBits = scopeBits;
+        this.empty = empty;
+    }
+
+    /**
+     * Compiles the rules in the com.auth0.accessRules context parameter.
+     *
+     * @param context The ServletContext to read the rules from
+     * @return The compiled rules; without the parameter, no path needs more than a session
+     */
+    static AccessRules fromContext(ServletContext context) {
+        String rules = context.getInitParameter("com.auth0.accessRules");
+        return compile(rules == null ? "" : rules);
+    }
+
+    /**
+     * Compiles rules in the format described above.
+     *
+     * @param rules The rules, one per line; blank lines and lines starting with # are ignored
+     * @return The compiled rules
+     * @throws IllegalArgumentException if a rule is malformed or a method and pattern are given twice
+     */
+    static AccessRules compile(String rules) {
+        Node root = new Node();
+        Map<String, Integer> scopeBits = new HashMap<>();
+        boolean empty = true;
+
+        int lineNumber = 0;
+        for (String line : rules.split("\n")) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("Access rule " + lineNumber + " needs methods, a path and scopes: " + line);
+            }
+
+            // Give every scope name a bit of its own
+            long[] required = NOTHING_REQUIRED;
+            if (!(fields.length == 3 && "-".equals(fields[2]))) {
+                for (int i = 2; i < fields.length; i++) {
+                    for (String scope : fields[i].split(",")) {
+                        if (!scope.isEmpty()) {
+                            required = setBit(required, scopeBits.computeIfAbsent(scope, s -> scopeBits.size()));
+                        }
+                    }
+                }
+            }
+
+            Target target = insert(root, fields[1], lineNumber);
+            for (String method : fields[0].split(",")) {
+                int index = "*".equals(method) ? ANY : methodIndex(method);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Access rule " + lineNumber + " has an unknown method: " + method);
+                }
+                if (target.required[index] != null) {
+                    throw new IllegalArgumentException("Access rule " + lineNumber + " repeats " + method + " " + fields[1]);
+                }
+                target.required[index] = required;
+            }
+            empty = false;
+        }
+        return new AccessRules(root, scopeBits, empty);
+    }
+
+    /**
+     * Checks whether a principal may make a request.
+     *
+     * @param req       The HTTP request
+     * @param principal The authenticated user
+     * @return true if the principal holds every scope the most specific matching rule requires
+     */
+    boolean isAllowed(HttpServletRequest req, UserPrincipal principal) {
+        if (empty) {
+            return true;
+        }
+        int method = methodIndex(req.getMethod());
+        String servletPath = req.getServletPath();
+        String pathInfo = req.getPathInfo();
+        long[] required = match(root, servletPath == null ? "" : servletPath, pathInfo == null ? "" : pathInfo,
+                0, method < 0 ? ANY : method);
+        if (required == null || required.length == 0) {
+            return true;
+        }
+
+        long[] granted = principal.scopeBits(this);
+        for (int i = 0; i < required.length; i++) {
+            long have = i < granted.length ? granted[i] : 0;
+            if ((have & required[i]) != required[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps a principal's scopes to this rule set's bits. The result is cached on the principal.
+     *
+     * @param scopes The granted scopes
+     * @return The bitset; scopes no rule mentions are left out
+     */
+    long[] toBits(Set<String> scopes) {
+        long[] bits = NOTHING_REQUIRED;
+        for (String scope : scopes) {
+            Integer bit = scopeBits.get(scope);
+            if (bit != null) {
+                bits = setBit(bits, bit);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Finds the most specific rule for the path (servlet path followed by path info) from position i on.
+     * Literal characters are tried first, then a "*" segment, then a trailing "**".
+     *
+     * @return The required scope bits, or null if no rule matches
+     */
+    private static long[] match(Node node, String servletPath, String pathInfo, int i, int method) {
+        int length = servletPath.length() + pathInfo.length();
+
+        // Follow literal characters without recursing until a node offers a wildcard to fall back on
+        while (node.star == null && node.rest == null) {
+            if (i == length) {
+                return node.exact == null ? null : node.exact.forMethod(method);
+            }
+            node = node.child(charAt(servletPath, pathInfo, i));
+            if (node == null) {
+                return null;
+            }
+            i++;
+        }
+
+        if (i == length) {
+            long[] required = node.exact == null ? null : node.exact.forMethod(method);
+            if (required != null) {
+                return required;
+            }
+        } else {
+            Node child = node.child(charAt(servletPath, pathInfo, i));
+            if (child != null) {
+                long[] required = match(child, servletPath, pathInfo, i + 1, method);
+                if (required != null) {
+                    return required;
+                }
+            }
+            if (node.star != null) {
+                int end = i;
+                while (end < length && charAt(servletPath, pathInfo, end) != '/') {
+                    end++;
+                }
+                if (end > i) {
+                    long[] required = match(node.star, servletPath, pathInfo, end, method);
+                    if (required != null) {
+                        return required;
+                    }
+                }
+            }
+        }
+        if (node.rest != null && (i == length || charAt(servletPath, pathInfo, i) == '/')) {
+            return node.rest.forMethod(method);
+        }
+        return null;
+    }
+
+    private static Target insert(Node root, String pattern, int lineNumber) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Access rule " + lineNumber + " path must start with /: " + pattern);
+        }
+        Node node = root;
+        String[] segments = pattern.substring(1).split("/", -1);
+        for (int s = 0; s < segments.length; s++) {
+            String segment = segments[s];
+            if ("**".equals(segment)) {
+                if (s != segments.length - 1) {
+                    throw new IllegalArgumentException("Access rule " + lineNumber + " may only use ** at the end: " + pattern);
+                }
+                if (node.rest == null) {
+                    node.rest = new Target();
+                }
+                return node.rest;
+            }
+
+            node = node.childOrCreate('/');
+            if ("*".equals(segment)) {
+                if (node.star == null) {
+                    node.star = new Node();
+                }
+                node = node.star;
+            } else if (segment.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Access rule " + lineNumber + " may only use * as a whole segment: " + pattern);
+            } else {
+                for (int c = 0; c < segment.length(); c++) {
+                    node = node.childOrCreate(segment.charAt(c));
+                }
+            }
+        }
+        if (node.exact == null) {
+            node.exact = new Target();
+        }
+        return node.exact;
+    }
+
+    private static int methodIndex(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "PATCH":
+                return PATCH;
+            case "DELETE":
+                return DELETE;
+            case "OPTIONS":
+                return OPTIONS;
+            default:
+                return -1;
+        }
+    }
+
+    private static long[] setBit(long[] bits, int bit) {
+        int word = bit >>> 6;
+        long[] result = bits.length > word ? bits.clone() : Arrays.copyOf(bits, word + 1);
+        result[word] |= 1L << bit;
+        return result;
+    }
+
+    private static char charAt(String servletPath, String pathInfo, int i) {
+        int split = servletPath.length();
+        return i < split ? servletPath.charAt(i) : pathInfo.charAt(i - split);
+    }
+
+    /**
+     * One trie node: literal children sorted by character, plus the "*" segment branch and the rules for
+     * patterns that end here (exact) or continue with "/**" (rest).
+     */
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        Node star;
+        Target exact;
+        Target rest;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = c;
+            newChildren[insertAt] = child;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * The required scope bits of one pattern, per method; the ANY slot holds the "*" rule.
+     */
+    private static final class Target {
+        final long[][] required = new long[METHODS][];
+
+        long[] forMethod(int method) {
+            long[] bits = required[method];
+            return bits != null ? bits : required[ANY];
+        }
+    }
+}
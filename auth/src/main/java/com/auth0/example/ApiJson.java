@@ -0,0 +1,108 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * ApiJson - Reads request bodies and writes responses of the portal's JSON APIs, in the conventions of the
+ * Node server: errors are {"error": "..."}, and nothing is cached.
+ */
+final class ApiJson {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Orders with hundreds of items stay well below this
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    // The page size of the list APIs: limit's default and largest allowed value
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private ApiJson() {}
+
+    /**
+     * Reads the request body as a JSON object, or answers the request with an error.
+     *
+     * @return The object, or null if the response has already been sent
+     */
+    static JsonNode readObject(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        String contentType = req.getContentType();
+        // Also keeps plain HTML forms on other sites from posting here with the session cookie
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("application/json")) {
+            error(res, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Content-Type must be application/json");
+            return null;
+        }
+        if (req.getContentLengthLong() > MAX_BODY_BYTES) {
+            error(res, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large");
+            return null;
+        }
+
+        byte[] body;
+        try (InputStream in = req.getInputStream()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            error(res, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large");
+            return null;
+        }
+        try {
+            JsonNode json = body.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(body);
+            if (json == null || !json.isObject()) {
+                error(res, HttpServletResponse.SC_BAD_REQUEST, "Request body must be a JSON object");
+                return null;
+            }
+            return json;
+        } catch (JsonProcessingException e) {
+            error(res, HttpServletResponse.SC_BAD_REQUEST, "Malformed JSON");
+            return null;
+        }
+    }
+
+    /**
+     * Parses the limit parameter of a list API.
+     *
+     * @param value The parameter, or null
+     * @return The limit, 50 if none was given
+     * @throws IllegalArgumentException if the limit isn't a number from 1 to 500
+     */
+    static int limit(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(value.trim());
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be 1 to " + MAX_LIMIT);
+            }
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit must be a number", e);
+        }
+    }
+
+    /**
+     * Starts a JSON response; close the generator to finish it.
+     */
+    static JsonGenerator start(HttpServletResponse res, int status) throws IOException {
+        res.setStatus(status);
+        res.setContentType("application/json");
+        res.setCharacterEncoding("UTF-8");
+        res.setHeader("Cache-Control", "no-store");
+        return MAPPER.getFactory().createGenerator(res.getOutputStream());
+    }
+
+    static void error(HttpServletResponse res, int status, String message) throws IOException {
+        try (JsonGenerator json = start(res, status)) {
+            json.writeStartObject();
+            json.writeStringField("error", message);
+            json.writeEndObject();
+        }
+    }
+}
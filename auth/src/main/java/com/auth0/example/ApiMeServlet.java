@@ -0,0 +1,55 @@
+package com.auth0.example;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * ApiMeServlet - Tells a machine client who it is authenticated as (GET /api/me): the subject, organization,
+ * granted scopes and token expiry from the principal BearerTokenFilter published.
+ * Integrations can use it to check their credentials and scopes.
+ */
+public class ApiMeServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        // BearerTokenFilter has already verified the token
+        UserPrincipal principal = (UserPrincipal) req.getAttribute(UserPrincipal.REQUEST_ATTRIBUTE);
+        if (principal == null) {
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(128).append('{');
+        appendField(json, "sub", principal.getSubject()).append(',');
+        appendField(json, "org_id", principal.getOrganization()).append(',');
+        appendField(json, "scope", String.join(" ", principal.getScopes())).append(',');
+        json.append("\"exp\":").append(principal.getExpiresAtMillis() / 1000).append('}');
+
+        res.setContentType("application/json");
+        res.setCharacterEncoding("UTF-8");
+        res.setHeader("Cache-Control", "no-store");
+        res.getWriter().write(json.toString());
+    }
+
+    private static StringBuilder appendField(StringBuilder json, String name, String value) {
+        json.append('"').append(name).append("\":");
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,73 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AuditLog - The EventBus's audit consumer: every domain event as a line of JSON, {"sequence", "event",
+ * "timestamp", "data"}, appended to a file. The events carry whole orders, addresses and metadata included, so
+ * they go to a file of their own and never to the application log. Lines are buffered and written at the end of
+ * each batch the bus hands over, so a burst of events costs one write.
+ * The file isn't forced to disk: the order journal is the record that survives a crash, this is its trail.
+ */
+public class AuditLog implements EventBus.Handler, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private final Path file;
+    private final JsonGenerator json;
+
+    /**
+     * @param file The file to append to, created if missing
+     */
+    public AuditLog(Path file) {
+        this.file = file;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            json = ApiJson.MAPPER.getFactory().createGenerator(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), 64 * 1024));
+            // Lines end in a newline of their own, not Jackson's space between values
+            json.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't open the audit log " + file, e);
+        }
+    }
+
+    @Override
+    public void onEvent(EventBus.Event event, boolean endOfBatch) throws IOException {
+        write(json, event);
+        json.writeRaw('\n');
+        if (endOfBatch) {
+            json.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            json.close();
+        } catch (IOException e) {
+            log.warn("Couldn't close the audit log {}", file, e);
+        }
+    }
+
+    private static void write(JsonGenerator json, EventBus.Event event) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("sequence", event.getSequence());
+        json.writeStringField("event", event.getType().getName());
+        json.writeStringField("timestamp", event.getTimestamp());
+        json.writeFieldName("data");
+        event.writeData(json);
+        json.writeEndObject();
+    }
+}
@@ -1,6 +1,6 @@
 package com.auth0.example;
 
-import com.auth0.SessionUtils;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -13,15 +13,40 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
- * Auth0Filter - A WebFilter that checks for existing tokens before giving the user
+ * Auth0Filter - A WebFilter that checks for an existing session before giving the user
  * access to protected paths (/portal/*).
- * If the tokens don't exist, the request will be redirected to the LoginServlet.
+ * The session is read from the configured SessionStore and its UserPrincipal from the PrincipalCache, so an
+ * ordinary request does no token work at all. On a cache miss, and when the store keeps tokens, the ID token is
+ * verified locally (RS256 signature, exp, aud and iss) before the principal is cached again.
+ * If there is no session or its token fails verification, the request will be redirected to the LoginServlet.
+ * Sessions with a refresh token are renewed by the TokenRefresher shortly before they expire.
+ * Signed-in users whose scopes don't satisfy the AccessRules for the path and method get a 403.
  */
 public class Auth0Filter implements Filter {
 
+    private TokenVerifier tokenVerifier;
+    private SessionStore sessionStore;
+    private PrincipalCache principalCache;
+    private AccessRules accessRules;
+    private TokenRefresher tokenRefresher;
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        // No initialization required
+        // Named in the failure, so a misconfiguration points at the component that refused it
+        String component = "TokenVerifier";
+        try {
+            tokenVerifier = AuthenticationControllerProvider.getTokenVerifier(filterConfig.getServletContext());
+            component = "SessionStore";
+            sessionStore = SessionStores.get(filterConfig.getServletContext());
+            component = "PrincipalCache";
+            principalCache = AuthenticationControllerProvider.getPrincipalCache(filterConfig.getServletContext());
+            component = "AccessRules";
+            accessRules = AccessRules.fromContext(filterConfig.getServletContext());
+            component = "TokenRefresher";
+            tokenRefresher = AuthenticationControllerProvider.getTokenRefresher(filterConfig.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the " + component + " instance", e);
+        }
     }
 
     @Override
@@ -30,18 +55,69 @@ public class Auth0Filter implements Filter {
 
         HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse res = (HttpServletResponse) response;
+        long start = System.nanoTime();
 
-        // Check if the user has valid tokens in their session
-        String accessToken = (String) SessionUtils.get(req, "accessToken");
-        String idToken = (String) SessionUtils.get(req, "idToken");
+        // Check if the user has a session
+        AuthSession session = sessionStore.load(req);
 
-        if (accessToken == null && idToken == null) {
-            // No tokens found - redirect to login
+        if (session == null) {
+            // No session found - redirect to login
+            Metrics.FILTER_NO_SESSION.increment();
             res.sendRedirect("/login");
+            Metrics.FILTER.recordSince(start);
+            return;
+        }
+
+        // Renew the tokens shortly before they expire, so active users never see the login page again;
+        // parallel requests of the session share one refresh. If it fails the session stays valid until it expires.
+        boolean renewed = false;
+        if (tokenRefresher.isDue(session, System.currentTimeMillis())) {
+            AuthSession refreshed = tokenRefresher.refresh(session, newSession -> sessionStore.update(req, res, newSession));
+            if (refreshed == null) {
+                // Expired while the refresh was still running
+                Metrics.FILTER_NO_SESSION.increment();
+                res.sendRedirect("/login");
+                Metrics.FILTER.recordSince(start);
+                return;
+            }
+            renewed = refreshed != session;
+            session = refreshed;
+        }
+
+        // The principal was built when the session started (or on an earlier request to this node)
+        UserPrincipal principal = renewed ? null : principalCache.get(session.getId());
+        if (principal == null) {
+            // Verify the ID token locally; stores that keep no tokens (cookie mode) authenticate the session themselves
+            long idTokenExpires = Long.MAX_VALUE;
+            if (session.getIdToken() != null) {
+                try {
+                    idTokenExpires = tokenVerifier.verify(session.getIdToken()).getExpiresAtMillis();
+                } catch (JWTVerificationException e) {
+                    // Expired, forged or foreign token - drop the session and send the user through login again
+                    Metrics.FILTER_INVALID_TOKEN.increment();
+                    sessionStore.invalidate(req, res);
+                    res.sendRedirect("/login");
+                    Metrics.FILTER.recordSince(start);
+                    return;
+                }
+            }
+            principal = UserPrincipal.of(session, idTokenExpires);
+            principalCache.put(session.getId(), principal);
+        }
+
+        // Signed in, but the path may need scopes the user wasn't granted
+        if (!accessRules.isAllowed(req, principal)) {
+            Metrics.FILTER_FORBIDDEN.increment();
+            res.sendError(HttpServletResponse.SC_FORBIDDEN);
+            Metrics.FILTER.recordSince(start);
             return;
         }
 
-        // Tokens exist - allow the request to proceed
+        // Session is valid - expose it and allow the request to proceed; only the filter's own time is recorded
+        req.setAttribute(AuthSession.REQUEST_ATTRIBUTE, session);
+        req.setAttribute(UserPrincipal.REQUEST_ATTRIBUTE, principal);
+        Metrics.FILTER_AUTHENTICATED.increment();
+        Metrics.FILTER.recordSince(start);
         chain.doFilter(request, response);
     }
 
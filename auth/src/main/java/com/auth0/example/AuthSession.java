@@ -0,0 +1,300 @@
+package com.auth0.example;
+
+import com.auth0.Tokens;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * AuthSession - What the application keeps about a user once the login completes:
+ * a random session id, a few ID token claims, the granted scopes, the session expiry and (for server-side stores)
+ * the tokens, including the refresh token TokenRefresher renews them with.
+ * Instances are immutable; every SessionStore persists this same object.
+ */
+public final class AuthSession implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Request attribute under which Auth0Filter publishes the current session.
+     */
+    public static final String REQUEST_ATTRIBUTE = "com.auth0.session";
+
+    private static final byte FORMAT_VERSION = 3;
+    // Sessions written before the refresh token and the scopes were stored; still readable without them
+    private static final byte FORMAT_VERSION_WITHOUT_REFRESH_TOKEN = 2;
+    private static final byte FORMAT_VERSION_WITHOUT_SCOPE = 1;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String id;
+    private final String subject;
+    private final String name;
+    private final String email;
+    private final String organization;
+    private final String scope;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+    private final String accessToken;
+    private final String idToken;
+    private final String refreshToken;
+
+    AuthSession(String id, String subject, String name, String email, String organization, String scope,
+                long issuedAtMillis, long expiresAtMillis, String accessToken, String idToken, String refreshToken) {
+        this.id = id;
+        this.subject = subject;
+        this.name = name;
+        this.email = email;
+        this.organization = organization;
+        this.scope = scope;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+        this.accessToken = accessToken;
+        this.idToken = idToken;
+        this.refreshToken = refreshToken;
+    }
+
+    /**
+     * Starts a new session from the tokens obtained at login.
+     * The session expires together with the ID token, or the access token if that expires first. The granted
+     * scopes are read from the access token when it is a JWT (i.e. an API audience was requested); it comes
+     * straight from Auth0's token endpoint.
+     *
+     * @param tokens  The tokens returned by the code exchange
+     * @param idToken The verified ID token
+     * @return The new session
+     */
+    public static AuthSession fromTokens(Tokens tokens, VerifiedToken idToken) {
+        long now = System.currentTimeMillis();
+        return fromTokens(newSessionId(), now, tokens, idToken, tokens.getRefreshToken(), now);
+    }
+
+    /**
+     * Continues this session with renewed tokens: the id and start time stay, the claims, scopes and expiry
+     * are taken from the new tokens.
+     *
+     * @param tokens  The tokens returned by the refresh
+     * @param idToken The verified new ID token
+     * @return The renewed session
+     */
+    public AuthSession renewed(Tokens tokens, VerifiedToken idToken) {
+        // Without rotation Auth0 doesn't send the refresh token again, and the old one stays valid
+        String newRefreshToken = tokens.getRefreshToken() != null ? tokens.getRefreshToken() : refreshToken;
+        return fromTokens(id, issuedAtMillis, tokens, idToken, newRefreshToken, System.currentTimeMillis());
+    }
+
+    private static AuthSession fromTokens(String id, long issuedAtMillis, Tokens tokens, VerifiedToken idToken,
+                                          String refreshToken, long nowMillis) {
+        DecodedJWT jwt = idToken.getJwt();
+        long expiresAtMillis = idToken.getExpiresAtMillis();
+        if (tokens.getExpiresIn() != null) {
+            expiresAtMillis = Math.min(expiresAtMillis, nowMillis + tokens.getExpiresIn() * 1000);
+        }
+        return new AuthSession(
+                id,
+                jwt.getSubject(),
+                jwt.getClaim("name").asString(),
+                jwt.getClaim("email").asString(),
+                jwt.getClaim("org_id").asString(),
+                grantedScope(tokens.getAccessToken()),
+                issuedAtMillis,
+                expiresAtMillis,
+                tokens.getAccessToken(),
+                tokens.getIdToken(),
+                refreshToken);
+    }
+
+    /**
+     * @return A copy of this session with the tokens removed, e.g. for storing it on the client
+     */
+    public AuthSession withoutTokens() {
+        if (accessToken == null && idToken == null && refreshToken == null) {
+            return this;
+        }
+        return new AuthSession(id, subject, name, email, organization, scope, issuedAtMillis, expiresAtMillis,
+                null, null, null);
+    }
+
+    /**
+     * Collects the scope claim and the RBAC permissions claim of an access token into one space-separated string.
+     *
+     * @param accessToken The access token
+     * @return The granted scopes, or null if the token is opaque or grants none
+     */
+    static String grantedScope(String accessToken) {
+        if (accessToken == null) {
+            return null;
+        }
+        try {
+            return grantedScope(JWT.decode(accessToken));
+        } catch (JWTDecodeException e) {
+            // Opaque token (no audience requested) - nothing to read
+            return null;
+        }
+    }
+
+    /**
+     * Collects the scope claim and the RBAC permissions claim of a decoded access token.
+     *
+     * @param jwt The decoded access token
+     * @return The granted scopes, space-separated, or null if it grants none
+     */
+    static String grantedScope(DecodedJWT jwt) {
+        Set<String> scopes = new LinkedHashSet<>();
+        String scope = jwt.getClaim("scope").asString();
+        if (scope != null) {
+            for (String value : scope.split(" ")) {
+                if (!value.isEmpty()) {
+                    scopes.add(value);
+                }
+            }
+        }
+        List<String> permissions = jwt.getClaim("permissions").asList(String.class);
+        if (permissions != null) {
+            scopes.addAll(permissions);
+        }
+        return scopes.isEmpty() ? null : String.join(" ", scopes);
+    }
+
+    static String newSessionId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getOrganization() {
+        return organization;
+    }
+
+    /**
+     * @return The granted scopes and permissions, space-separated, or null if none are known
+     */
+    public String getScope() {
+        return scope;
+    }
+
+    public long getIssuedAtMillis() {
+        return issuedAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * @return The access token, or null when the store does not keep tokens
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    /**
+     * @return The ID token, or null when the store does not keep tokens
+     */
+    public String getIdToken() {
+        return idToken;
+    }
+
+    /**
+     * @return The refresh token, or null when offline_access wasn't granted or the store does not keep tokens
+     */
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    /**
+     * Serializes the session into the compact binary form used by the cookie and external stores.
+     *
+     * @return The serialized session
+     * @throws IOException if the session cannot be serialized
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(issuedAtMillis);
+            out.writeLong(expiresAtMillis);
+            writeString(out, id);
+            writeString(out, subject);
+            writeString(out, name);
+            writeString(out, email);
+            writeString(out, organization);
+            writeString(out, scope);
+            writeString(out, accessToken);
+            writeString(out, idToken);
+            writeString(out, refreshToken);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a session written by {@link #toBytes()}.
+     *
+     * @param bytes The serialized session
+     * @return The session
+     * @throws IOException if the bytes are not a serialized session
+     */
+    static AuthSession fromBytes(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version < FORMAT_VERSION_WITHOUT_SCOPE || version > FORMAT_VERSION) {
+                throw new IOException("Unknown session format");
+            }
+            long issuedAt = in.readLong();
+            long expiresAt = in.readLong();
+            String id = readString(in);
+            String subject = readString(in);
+            String name = readString(in);
+            String email = readString(in);
+            String organization = readString(in);
+            String scope = version >= FORMAT_VERSION_WITHOUT_REFRESH_TOKEN ? readString(in) : null;
+            String accessToken = readString(in);
+            String idToken = readString(in);
+            String refreshToken = version == FORMAT_VERSION ? readString(in) : null;
+            return new AuthSession(id, subject, name, email, organization, scope,
+                    issuedAt, expiresAt, accessToken, idToken, refreshToken);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
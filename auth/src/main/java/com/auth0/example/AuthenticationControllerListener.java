@@ -0,0 +1,53 @@
+package com.auth0.example;
+
+import com.auth0.AuthenticationController;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * AuthenticationControllerListener - Builds the shared AuthenticationController once at deploy time,
+ * before any servlet or filter is initialized, and publishes it as a ServletContext attribute.
+ * It also warms the JWKS cache so the first login after a deploy does not wait for the key set,
+ * and there is exactly one key cache for the whole application. The SessionStore is created here too.
+ */
+public class AuthenticationControllerListener implements ServletContextListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationControllerListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+
+        AuthenticationController controller = AuthenticationControllerProvider.getInstance(context);
+        AuthenticationControllerProvider.getTokenVerifier(context);
+
+        // Fetch the signing keys now rather than on the first callback
+        JwkProvider jwkProvider = AuthenticationControllerProvider.getJwkProvider(context);
+        if (jwkProvider instanceof CachingJwkProvider) {
+            try {
+                ((CachingJwkProvider) jwkProvider).warmUp();
+            } catch (JwkException e) {
+                // Not fatal: the background refresh keeps retrying and lookups fetch on demand
+                log.warn("Could not warm the JWKS cache at startup", e);
+            }
+        }
+
+        context.setAttribute(AuthenticationControllerProvider.CONTROLLER_ATTRIBUTE, controller);
+
+        // Connect the session store now, so a misconfiguration fails the deploy rather than the first request
+        SessionStores.get(context);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        event.getServletContext().removeAttribute(AuthenticationControllerProvider.CONTROLLER_ATTRIBUTE);
+        SessionStores.close(event.getServletContext());
+        AuthenticationControllerProvider.shutdown();
+    }
+}
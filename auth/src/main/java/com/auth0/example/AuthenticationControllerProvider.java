@@ -2,47 +2,307 @@ package com.auth0.example;
 
 import com.auth0.AuthenticationController;
 import com.auth0.jwk.JwkProvider;
-import com.auth0.jwk.JwkProviderBuilder;
 
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Responsible for creating and managing a single instance of the AuthenticationController.
  * The AuthenticationController is thread-safe and intended to be reused.
+ * The JwkProvider it verifies ID tokens with is shared with the TokenVerifier used by Auth0Filter,
+ * so both resolve signing keys through the same cache.
  */
 public class AuthenticationControllerProvider {
 
     private AuthenticationControllerProvider() {}
 
-    private static AuthenticationController INSTANCE;
+    /**
+     * Name of the ServletContext attribute under which the AuthenticationControllerListener
+     * publishes the shared AuthenticationController.
+     */
+    public static final String CONTROLLER_ATTRIBUTE = AuthenticationController.class.getName();
+
+    private static volatile AuthenticationController INSTANCE;
+    private static volatile JwkProvider JWK_PROVIDER;
+    private static volatile TokenVerifier TOKEN_VERIFIER;
+    private static volatile TokenVerifier API_TOKEN_VERIFIER;
+    private static volatile PrincipalCache PRINCIPAL_CACHE;
+    private static volatile TokenRefresher TOKEN_REFRESHER;
+    private static volatile RateLimiter RATE_LIMITER;
 
     /**
      * Gets the singleton instance of AuthenticationController.
-     * If multiple threads may call this method, consider synchronizing and double-checking locking.
+     * Normally the AuthenticationControllerListener has already built it at deploy time and published it
+     * as a context attribute; otherwise it is created here on first use.
      *
      * @param config The ServletConfig to read Auth0 configuration from
      * @return The AuthenticationController instance
      * @throws UnsupportedEncodingException if encoding is not supported
      */
     public static AuthenticationController getInstance(ServletConfig config) throws UnsupportedEncodingException {
-        if (INSTANCE == null) {
-            String domain = config.getServletContext().getInitParameter("com.auth0.domain");
-            String clientId = config.getServletContext().getInitParameter("com.auth0.clientId");
-            String clientSecret = config.getServletContext().getInitParameter("com.auth0.clientSecret");
+        Object published = config.getServletContext().getAttribute(CONTROLLER_ATTRIBUTE);
+        if (published instanceof AuthenticationController) {
+            return (AuthenticationController) published;
+        }
+        return getInstance(config.getServletContext());
+    }
+
+    /**
+     * Gets the singleton instance of AuthenticationController, creating it exactly once
+     * even when several servlets initialize concurrently.
+     *
+     * @param context The ServletContext to read Auth0 configuration from
+     * @return The AuthenticationController instance
+     */
+    public static AuthenticationController getInstance(ServletContext context) {
+        AuthenticationController instance = INSTANCE;
+        if (instance == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                instance = INSTANCE;
+                if (instance == null) {
+                    String domain = context.getInitParameter("com.auth0.domain");
+                    String clientId = context.getInitParameter("com.auth0.clientId");
+                    String clientSecret = context.getInitParameter("com.auth0.clientSecret");
+
+                    if (domain == null || clientId == null || clientSecret == null) {
+                        throw new IllegalArgumentException("Missing domain, clientId, or clientSecret. Did you update src/main/webapp/WEB-INF/web.xml?");
+                    }
+
+                    // JwkProvider required for RS256 tokens. If using HS256, do not use.
+                    instance = AuthenticationController.newBuilder(domain, clientId, clientSecret)
+                            .withJwkProvider(getJwkProvider(context))
+                            .withClockSkew(getClockSkew(context))
+                            .build();
+                    INSTANCE = instance;
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gets the JwkProvider used to resolve the tenant's RS256 signing keys.
+     * Keys are cached, refreshed in the background ahead of expiry and fetched at most once at a time;
+     * see CachingJwkProvider and the com.auth0.jwks.* context parameters in web.xml.
+     *
+     * @param context The ServletContext to read Auth0 configuration from
+     * @return The shared JwkProvider instance
+     */
+    public static JwkProvider getJwkProvider(ServletContext context) {
+        JwkProvider jwkProvider = JWK_PROVIDER;
+        if (jwkProvider == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                jwkProvider = JWK_PROVIDER;
+                if (jwkProvider == null) {
+                    String domain = context.getInitParameter("com.auth0.domain");
+                    if (domain == null) {
+                        throw new IllegalArgumentException("Missing domain. Did you update src/main/webapp/WEB-INF/web.xml?");
+                    }
+
+                    // Defaults to the tenant's well-known JWKS; a file: or local http: URL can stand in for tests
+                    String jwksUrl = context.getInitParameter("com.auth0.jwks.url");
+                    if (jwksUrl == null || jwksUrl.trim().isEmpty()) {
+                        jwksUrl = getIssuer(domain) + ".well-known/jwks.json";
+                    }
+
+                    try {
+                        jwkProvider = new CachingJwkProvider(
+                                new URL(jwksUrl.trim()),
+                                getIntParameter(context, "com.auth0.jwks.cacheSize", 10),
+                                TimeUnit.SECONDS.toMillis(getIntParameter(context, "com.auth0.jwks.ttlSeconds", 3600)),
+                                TimeUnit.SECONDS.toMillis(getIntParameter(context, "com.auth0.jwks.refreshAheadSeconds", 60)),
+                                getIntParameter(context, "com.auth0.jwks.rateLimitPerMinute", 10),
+                                getIntParameter(context, "com.auth0.jwks.timeoutMillis", 3000));
+                    } catch (MalformedURLException e) {
+                        throw new IllegalArgumentException("Invalid com.auth0.jwks.url: " + jwksUrl, e);
+                    }
+                    JWK_PROVIDER = jwkProvider;
+                }
+            }
+        }
+
+        return jwkProvider;
+    }
 
-            if (domain == null || clientId == null || clientSecret == null) {
-                throw new IllegalArgumentException("Missing domain, clientId, or clientSecret. Did you update src/main/webapp/WEB-INF/web.xml?");
+    /**
+     * Gets the TokenVerifier that checks ID tokens locally (signature, exp, aud and iss)
+     * and caches successful results per token.
+     *
+     * @param context The ServletContext to read Auth0 configuration from
+     * @return The shared TokenVerifier instance
+     */
+    public static TokenVerifier getTokenVerifier(ServletContext context) {
+        TokenVerifier tokenVerifier = TOKEN_VERIFIER;
+        if (tokenVerifier == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                tokenVerifier = TOKEN_VERIFIER;
+                if (tokenVerifier == null) {
+                    String domain = context.getInitParameter("com.auth0.domain");
+                    String clientId = context.getInitParameter("com.auth0.clientId");
+                    if (domain == null || clientId == null) {
+                        throw new IllegalArgumentException("Missing domain or clientId. Did you update src/main/webapp/WEB-INF/web.xml?");
+                    }
+
+                    // ID tokens are issued for our client id by the tenant's issuer URL
+                    tokenVerifier = new TokenVerifier(
+                            getJwkProvider(context),
+                            getIssuer(domain),
+                            clientId,
+                            getClockSkew(context),
+                            getIntParameter(context, "com.auth0.tokenCache.maxEntries", 10_000));
+                    TOKEN_VERIFIER = tokenVerifier;
+                }
             }
+        }
+
+        return tokenVerifier;
+    }
 
-            // JwkProvider required for RS256 tokens. If using HS256, do not use.
-            JwkProvider jwkProvider = new JwkProviderBuilder(domain).build();
-            INSTANCE = AuthenticationController.newBuilder(domain, clientId, clientSecret)
-                    .withJwkProvider(jwkProvider)
-                    .build();
+    /**
+     * Gets the TokenVerifier that checks API access tokens sent by machine clients (signature, exp, iss and an
+     * aud of com.auth0.api.audience) with the same JwkProvider, caching successful results per token.
+     *
+     * @param context The ServletContext to read Auth0 configuration from
+     * @return The shared TokenVerifier instance for access tokens
+     */
+    public static TokenVerifier getApiTokenVerifier(ServletContext context) {
+        TokenVerifier tokenVerifier = API_TOKEN_VERIFIER;
+        if (tokenVerifier == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                tokenVerifier = API_TOKEN_VERIFIER;
+                if (tokenVerifier == null) {
+                    String domain = context.getInitParameter("com.auth0.domain");
+                    String audience = context.getInitParameter("com.auth0.api.audience");
+                    if (domain == null || audience == null || audience.trim().isEmpty()) {
+                        throw new IllegalArgumentException("Missing domain or api.audience. Did you update src/main/webapp/WEB-INF/web.xml?");
+                    }
+
+                    // Access tokens are issued for the API's identifier by the same tenant
+                    tokenVerifier = new TokenVerifier(
+                            getJwkProvider(context),
+                            getIssuer(domain),
+                            audience.trim(),
+                            getClockSkew(context),
+                            getIntParameter(context, "com.auth0.api.tokenCache.maxEntries", 10_000));
+                    API_TOKEN_VERIFIER = tokenVerifier;
+                }
+            }
         }
 
-        return INSTANCE;
+        return tokenVerifier;
+    }
+
+    /**
+     * Gets the cache of UserPrincipals by session id shared by CallbackServlet, Auth0Filter and LogoutServlet,
+     * sized by the com.auth0.principalCache.maxEntries context parameter.
+     *
+     * @param context The ServletContext to read the configuration from
+     * @return The shared PrincipalCache instance
+     */
+    static PrincipalCache getPrincipalCache(ServletContext context) {
+        PrincipalCache principalCache = PRINCIPAL_CACHE;
+        if (principalCache == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                principalCache = PRINCIPAL_CACHE;
+                if (principalCache == null) {
+                    principalCache = new PrincipalCache(getIntParameter(context, "com.auth0.principalCache.maxEntries", 10_000));
+                    PRINCIPAL_CACHE = principalCache;
+                }
+            }
+        }
+
+        return principalCache;
+    }
+
+    /**
+     * Gets the TokenRefresher that renews sessions with their refresh tokens before they expire.
+     *
+     * @param context The ServletContext to read Auth0 configuration from
+     * @return The shared TokenRefresher instance
+     */
+    static TokenRefresher getTokenRefresher(ServletContext context) {
+        TokenRefresher tokenRefresher = TOKEN_REFRESHER;
+        if (tokenRefresher == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                tokenRefresher = TOKEN_REFRESHER;
+                if (tokenRefresher == null) {
+                    tokenRefresher = TokenRefresher.fromContext(context);
+                    TOKEN_REFRESHER = tokenRefresher;
+                }
+            }
+        }
+
+        return tokenRefresher;
+    }
+
+    /**
+     * Gets the RateLimiter for the login endpoints selected by the com.auth0.rateLimit.backend context parameter:
+     * memory (default) keeps per-node counters for up to com.auth0.rateLimit.maxEntries keys, redis shares them
+     * through com.auth0.rateLimit.redisUrl (or the session store's Redis).
+     *
+     * @param context The ServletContext to read the configuration from
+     * @return The shared RateLimiter instance
+     */
+    static RateLimiter getRateLimiter(ServletContext context) {
+        RateLimiter rateLimiter = RATE_LIMITER;
+        if (rateLimiter == null) {
+            synchronized (AuthenticationControllerProvider.class) {
+                rateLimiter = RATE_LIMITER;
+                if (rateLimiter == null) {
+                    rateLimiter = createRateLimiter(context);
+                    RATE_LIMITER = rateLimiter;
+                }
+            }
+        }
+
+        return rateLimiter;
+    }
+
+    private static RateLimiter createRateLimiter(ServletContext context) {
+        String backend = context.getInitParameter("com.auth0.rateLimit.backend");
+        backend = backend == null || backend.trim().isEmpty() ? "memory" : backend.trim().toLowerCase();
+
+        switch (backend) {
+            case "memory":
+                return new InMemoryRateLimiter(getIntParameter(context, "com.auth0.rateLimit.maxEntries", 100_000));
+            case "redis":
+                String url = context.getInitParameter("com.auth0.rateLimit.redisUrl");
+                return new RedisRateLimiter(new RedisClient(
+                        url == null || url.trim().isEmpty() ? SessionStores.getRedisUrl(context) : url.trim(),
+                        getIntParameter(context, "com.auth0.rateLimit.redisPoolSize", 8),
+                        getIntParameter(context, "com.auth0.rateLimit.redisTimeoutMillis", 250)));
+            default:
+                throw new IllegalArgumentException("Unknown com.auth0.rateLimit.backend: " + backend
+                        + " (expected memory or redis)");
+        }
+    }
+
+    /**
+     * Releases the shared instances (stopping the JWKS background refresh and the token refresh threads) so a
+     * redeploy starts clean.
+     */
+    static synchronized void shutdown() {
+        if (JWK_PROVIDER instanceof CachingJwkProvider) {
+            ((CachingJwkProvider) JWK_PROVIDER).close();
+        }
+        INSTANCE = null;
+        JWK_PROVIDER = null;
+        TOKEN_VERIFIER = null;
+        API_TOKEN_VERIFIER = null;
+        PRINCIPAL_CACHE = null;
+        if (TOKEN_REFRESHER != null) {
+            TOKEN_REFRESHER.close();
+        }
+        TOKEN_REFRESHER = null;
+        if (RATE_LIMITER != null) {
+            RATE_LIMITER.close();
+        }
+        RATE_LIMITER = null;
     }
 
     /**
@@ -64,4 +324,40 @@ public class AuthenticationControllerProvider {
     public static String getClientId(ServletConfig config) {
         return config.getServletContext().getInitParameter("com.auth0.clientId");
     }
+
+    /**
+     * Builds the issuer URL Auth0 puts in the iss claim, the same way the AuthenticationController does:
+     * the domain with an https:// scheme (unless one is given) and a trailing slash.
+     *
+     * @param domain The Auth0 domain
+     * @return The expected issuer
+     */
+    static String getIssuer(String domain) {
+        String issuer = domain.startsWith("http://") || domain.startsWith("https://") ? domain : "https://" + domain;
+        return issuer.endsWith("/") ? issuer : issuer + "/";
+    }
+
+    private static int getClockSkew(ServletContext context) {
+        return getIntParameter(context, "com.auth0.clockSkew", 60);
+    }
+
+    /**
+     * Reads an optional integer context parameter.
+     *
+     * @param context      The ServletContext to read from
+     * @param name         The parameter name
+     * @param defaultValue The value used when the parameter is absent
+     * @return The configured value
+     */
+    static int getIntParameter(ServletContext context, String name, int defaultValue) {
+        String value = context.getInitParameter(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Context parameter " + name + " must be an integer, got: " + value, e);
+        }
+    }
 }
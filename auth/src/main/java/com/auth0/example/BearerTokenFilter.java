@@ -0,0 +1,100 @@
+package com.auth0.example;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * BearerTokenFilter - The stateless counterpart of Auth0Filter for machine clients on the API paths (/api/*).
+ * Every request carries an Auth0 access token in an "Authorization: Bearer" header; it is verified locally
+ * (RS256 signature, exp, iss and an aud of com.auth0.api.audience) against the JwkProvider shared with the
+ * login flow, and the result is cached per token, so only the first request with a new token pays for the
+ * signature check. The token's UserPrincipal is published as a request attribute and checked against the
+ * AccessRules.
+ * <p>
+ * No cookie is read or written and no HttpSession is ever created. Failures are answered as RFC 6750
+ * describes: 401 with a WWW-Authenticate challenge for a missing or invalid token, 403 for missing scopes.
+ */
+public class BearerTokenFilter implements Filter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private TokenVerifier tokenVerifier;
+    private AccessRules accessRules;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        try {
+            tokenVerifier = AuthenticationControllerProvider.getApiTokenVerifier(filterConfig.getServletContext());
+            accessRules = AccessRules.fromContext(filterConfig.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the TokenVerifier instance", e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+        long start = System.nanoTime();
+
+        // Read the token from the Authorization header; the scheme name is case-insensitive
+        String authorization = req.getHeader("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            Metrics.BEARER_MISSING_TOKEN.increment();
+            reject(res, HttpServletResponse.SC_UNAUTHORIZED, "Bearer", "{\"error\":\"Bearer token required\"}");
+            Metrics.BEARER.recordSince(start);
+            return;
+        }
+
+        // Verify the token locally; repeated requests with the same token are answered from the cache
+        UserPrincipal principal;
+        try {
+            principal = tokenVerifier.verify(authorization.substring(BEARER_PREFIX.length()).trim()).toPrincipal();
+        } catch (JWTVerificationException e) {
+            Metrics.BEARER_INVALID_TOKEN.increment();
+            reject(res, HttpServletResponse.SC_UNAUTHORIZED, "Bearer error=\"invalid_token\"",
+                    "{\"error\":\"Invalid or expired token\"}");
+            Metrics.BEARER.recordSince(start);
+            return;
+        }
+
+        if (!accessRules.isAllowed(req, principal)) {
+            Metrics.BEARER_FORBIDDEN.increment();
+            reject(res, HttpServletResponse.SC_FORBIDDEN, "Bearer error=\"insufficient_scope\"",
+                    "{\"error\":\"Insufficient scope\"}");
+            Metrics.BEARER.recordSince(start);
+            return;
+        }
+
+        // Token is valid - expose the principal and allow the request to proceed
+        req.setAttribute(UserPrincipal.REQUEST_ATTRIBUTE, principal);
+        Metrics.BEARER_AUTHENTICATED.increment();
+        Metrics.BEARER.recordSince(start);
+        chain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse res, int status, String challenge, String body) throws IOException {
+        res.setStatus(status);
+        res.setHeader("WWW-Authenticate", challenge);
+        res.setHeader("Cache-Control", "no-store");
+        res.setContentType("application/json");
+        res.setCharacterEncoding("UTF-8");
+        res.getWriter().write(body);
+    }
+
+    @Override
+    public void destroy() {
+        // No cleanup required
+    }
+}
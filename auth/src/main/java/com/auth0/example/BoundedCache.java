@@ -0,0 +1,120 @@
+package com.auth0.example;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * BoundedCache - The concurrent map under the token, principal and session near-caches, and their shared eviction
+ * policy. An insert that finds the map full sweeps it: expired entries go first, then arbitrary ones (hash order
+ * is effectively random) until the map is down to 90% of its capacity. A sweep costs O(n), but the next one is a
+ * tenth of the capacity of inserts away, so a flood of new keys pays O(1) per insert rather than a scan each.
+ * One thread sweeps at a time; inserts meanwhile go ahead, so the map may briefly hold a few entries too many.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class BoundedCache<K, V> {
+
+    /**
+     * Whether a value has expired at a time of the cache's clock.
+     */
+    interface Expiry<V> {
+        boolean isExpired(V value, long now);
+    }
+
+    /**
+     * Told what each sweep removed, e.g. to count it in Metrics.
+     */
+    interface SweepListener {
+        void swept(int expired, int evicted);
+    }
+
+    private final ConcurrentHashMap<K, V> entries;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Expiry<V> expiry;
+    private final SweepListener listener;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * @param maxEntries The maximum number of entries; 0 or less keeps nothing
+     * @param clock      The clock the expiry reads times from
+     * @param expiry     Which entries a sweep drops first
+     * @param listener   Told what each sweep removed
+     */
+    BoundedCache(int maxEntries, LongSupplier clock, Expiry<V> expiry, SweepListener listener) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.expiry = expiry;
+        this.listener = listener;
+        this.entries = new ConcurrentHashMap<>(Math.min(Math.max(maxEntries, 1), 1024));
+    }
+
+    BoundedCache(int maxEntries, LongSupplier clock, Expiry<V> expiry) {
+        this(maxEntries, clock, expiry, (expired, evicted) -> {});
+    }
+
+    /**
+     * @return The value, expired or not, or null
+     */
+    V get(K key) {
+        return entries.get(key);
+    }
+
+    void put(K key, V value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            sweep();
+        }
+        entries.put(key, value);
+    }
+
+    V remove(K key) {
+        return entries.remove(key);
+    }
+
+    boolean remove(K key, V value) {
+        return entries.remove(key, value);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            int expired = 0;
+            Iterator<V> values = entries.values().iterator();
+            while (values.hasNext()) {
+                if (expiry.isExpired(values.next(), now)) {
+                    values.remove();
+                    expired++;
+                }
+            }
+
+            int evicted = 0;
+            int excess = entries.size() - (maxEntries - Math.max(1, maxEntries / 10));
+            values = entries.values().iterator();
+            while (evicted < excess && values.hasNext()) {
+                values.next();
+                values.remove();
+                evicted++;
+            }
+            listener.swept(expired, evicted);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
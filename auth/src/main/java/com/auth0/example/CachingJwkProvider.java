@@ -0,0 +1,284 @@
+package com.auth0.example;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.RateLimitReachedException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CachingJwkProvider - A JwkProvider that keeps the tenant's whole key set in memory and keeps it fresh
+ * from a background thread, so signing key lookups on the request path are a map read.
+ * <ul>
+ *     <li>The key set is reloaded shortly before its TTL runs out; until the reload lands the current
+ *     keys keep being served, so a known key never waits on the network.</li>
+ *     <li>A lookup for an unknown key id (key rotation, or a forged token) joins the single fetch that
+ *     is already in flight instead of starting its own, and waits for it at most one fetch timeout.</li>
+ *     <li>Fetches triggered by unknown key ids are rate limited, so garbage kids cannot hammer the JWKS endpoint;
+ *     while the limit holds, unknown key ids fail at once rather than wait.</li>
+ * </ul>
+ * The key set URL may be any URL the JDK can open, including file: URLs for a local stand-in.
+ */
+public class CachingJwkProvider implements JwkProvider, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingJwkProvider.class);
+
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final UrlJwkProvider source;
+    private final int maxKeys;
+    private final long ttlMillis;
+    private final long refreshAheadMillis;
+    private final long fetchTimeoutMillis;
+    private final FetchBucket fetchBucket;
+    private final ScheduledExecutorService refresher;
+    private final AtomicReference<CompletableFuture<KeySet>> inFlight = new AtomicReference<>();
+
+    private volatile KeySet keys = KeySet.EMPTY;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    /**
+     * @param url                 The JWKS URL
+     * @param maxKeys             The maximum number of keys kept from the key set
+     * @param ttlMillis           How long a fetched key set is considered fresh
+     * @param refreshAheadMillis  How long before the TTL runs out the background refresh starts
+     * @param fetchesPerMinute    How many fetches unknown key ids may trigger per minute
+     * @param fetchTimeoutMillis  Connect/read timeout of a fetch, and the longest a lookup waits for one
+     */
+    public CachingJwkProvider(URL url, int maxKeys, long ttlMillis, long refreshAheadMillis,
+                              int fetchesPerMinute, long fetchTimeoutMillis) {
+        this.source = new UrlJwkProvider(url, (int) fetchTimeoutMillis, (int) fetchTimeoutMillis);
+        this.maxKeys = maxKeys;
+        this.ttlMillis = ttlMillis;
+        this.refreshAheadMillis = Math.min(refreshAheadMillis, ttlMillis / 2);
+        this.fetchTimeoutMillis = fetchTimeoutMillis;
+        this.fetchBucket = new FetchBucket(fetchesPerMinute);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        KeySet current = keys;
+        Jwk jwk = current.byId.get(keyId);
+        if (jwk != null) {
+            if (System.currentTimeMillis() >= current.expiresAt) {
+                // Stale: serve it anyway and let the background thread revalidate
+                fetch(false);
+            }
+            return jwk;
+        }
+
+        // Unknown key id - join the fetch in flight, or start one if the rate limit allows
+        CompletableFuture<KeySet> pending;
+        try {
+            pending = fetch(true);
+        } catch (RateLimitReachedException e) {
+            throw new SigningKeyNotFoundException("No key found with kid " + keyId + ", and the key set was "
+                    + "fetched too recently to look again", e);
+        }
+        jwk = await(pending, fetchTimeoutMillis).byId.get(keyId);
+        if (jwk == null) {
+            throw new SigningKeyNotFoundException("No key found with kid " + keyId, null);
+        }
+        return jwk;
+    }
+
+    /**
+     * Loads the key set synchronously, e.g. at deploy time before the first login arrives.
+     *
+     * @throws JwkException if the key set cannot be fetched
+     */
+    public void warmUp() throws JwkException {
+        // A fetch may take a connect and a read timeout
+        await(fetch(false), fetchTimeoutMillis * 2);
+    }
+
+    /**
+     * @return The ids of the keys currently cached
+     */
+    public List<String> cachedKeyIds() {
+        return Collections.unmodifiableList(new ArrayList<>(keys.byId.keySet()));
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Starts a fetch on the refresher thread, or returns the one already in flight (single-flight).
+     * Only the caller that actually starts a fetch spends a rate limit token.
+     *
+     * @param rateLimited Whether starting a fetch is subject to the rate limit
+     * @throws RateLimitReachedException if a fetch would have to start but the rate limit is exhausted
+     */
+    private CompletableFuture<KeySet> fetch(boolean rateLimited) throws RateLimitReachedException {
+        while (true) {
+            CompletableFuture<KeySet> pending = inFlight.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<KeySet> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                long waitMillis = rateLimited ? fetchBucket.tryAcquire() : 0;
+                if (waitMillis > 0) {
+                    RateLimitReachedException limited = new RateLimitReachedException(waitMillis);
+                    inFlight.compareAndSet(mine, null);
+                    mine.completeExceptionally(limited);
+                    throw limited;
+                }
+                refresher.execute(() -> load(mine));
+                return mine;
+            }
+        }
+    }
+
+    private void refresh() {
+        try {
+            fetch(false);
+        } catch (RateLimitReachedException e) {
+            // Unreachable: background refreshes are not rate limited
+        }
+    }
+
+    private void load(CompletableFuture<KeySet> result) {
+        KeySet loaded = null;
+        Exception failure = null;
+        try {
+            loaded = KeySet.of(source.getAll(), maxKeys, System.currentTimeMillis() + ttlMillis);
+            keys = loaded;
+            schedule(ttlMillis - refreshAheadMillis);
+        } catch (Exception e) {
+            // Keep serving the previous keys and try again a little later; pushing their expiry out
+            // stops every request that sees them stale from queueing another fetch meanwhile
+            long retryDelay = Math.min(RETRY_DELAY_MILLIS, ttlMillis);
+            KeySet previous = keys;
+            keys = new KeySet(previous.byId, System.currentTimeMillis() + retryDelay);
+            log.warn("Could not refresh JWKS, keeping {} cached keys", previous.byId.size(), e);
+            schedule(retryDelay);
+            failure = e;
+        }
+
+        // Release the slot before waking the waiters, so nobody joins a fetch that has already finished
+        inFlight.compareAndSet(result, null);
+        if (failure == null) {
+            result.complete(loaded);
+        } else {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (!refresher.isShutdown()) {
+            scheduledRefresh = refresher.schedule(this::refresh, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static KeySet await(CompletableFuture<KeySet> pending, long timeoutMillis) throws JwkException {
+        try {
+            return pending.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JwkException) {
+                throw (JwkException) e.getCause();
+            }
+            throw new NetworkException("Cannot obtain jwks", e.getCause());
+        } catch (TimeoutException e) {
+            throw new NetworkException("Timed out waiting for jwks", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NetworkException("Interrupted while waiting for jwks", e);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the key set, swapped atomically on refresh.
+     */
+    private static final class KeySet {
+        static final KeySet EMPTY = new KeySet(Collections.emptyMap(), 0);
+
+        final Map<String, Jwk> byId;
+        final long expiresAt;
+
+        private KeySet(Map<String, Jwk> byId, long expiresAt) {
+            this.byId = byId;
+            this.expiresAt = expiresAt;
+        }
+
+        static KeySet of(List<Jwk> jwks, int maxKeys, long expiresAt) {
+            Map<String, Jwk> byId = new LinkedHashMap<>();
+            int dropped = 0;
+            for (Jwk jwk : jwks) {
+                if (jwk.getId() == null) {
+                    continue;
+                }
+                if (byId.size() == maxKeys && !byId.containsKey(jwk.getId())) {
+                    dropped++;
+                } else {
+                    byId.put(jwk.getId(), jwk);
+                }
+            }
+            if (dropped > 0) {
+                // Tokens signed with these keys will fail verification
+                log.warn("The key set has {} more keys than the {} kept; raise com.auth0.jwks.cacheSize", dropped,
+                        maxKeys);
+            }
+            return new KeySet(Collections.unmodifiableMap(byId), expiresAt);
+        }
+    }
+
+    /**
+     * Token bucket for fetches triggered by unknown key ids. Only touched on cache misses.
+     */
+    private static final class FetchBucket {
+        private final int capacity;
+        private final double tokensPerMilli;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        FetchBucket(int fetchesPerMinute) {
+            this.capacity = Math.max(fetchesPerMinute, 1);
+            this.tokensPerMilli = capacity / (double) TimeUnit.MINUTES.toMillis(1);
+            this.tokens = capacity;
+        }
+
+        /**
+         * @return 0 if a fetch may start now, otherwise the milliseconds until one may
+         */
+        synchronized long tryAcquire() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMilli);
+        }
+    }
+}
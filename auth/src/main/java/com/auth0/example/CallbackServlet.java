@@ -3,22 +3,43 @@ package com.auth0.example;
 import com.auth0.AuthenticationController;
 import com.auth0.IdentityVerificationException;
 import com.auth0.Tokens;
-import com.auth0.SessionUtils;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * CallbackServlet - Captures requests to the Callback URL and processes the data to obtain credentials.
- * After a successful login, the credentials are saved to the request's HttpSession.
+ * After a successful login, the credentials are saved to the configured SessionStore.
+ * <p>
+ * The code-for-token exchange is a blocking call to Auth0, so it runs in async mode on the
+ * TokenExchangeExecutor and the container thread is released meanwhile. When the exchange is done the request
+ * is dispatched back to this servlet, which stores the session and redirects. If the executor is full, or the
+ * exchange takes longer than com.auth0.callback.timeoutMillis, the user gets a 503 with a Retry-After header.
  */
 public class CallbackServlet extends HttpServlet {
 
+    private static final Logger log = LoggerFactory.getLogger(CallbackServlet.class);
+
+    private static final String EXCHANGE_ATTRIBUTE = CallbackServlet.class.getName() + ".exchange";
+    private static final String RETRY_AFTER_SECONDS = "5";
+
     private AuthenticationController authenticationController;
+    private TokenVerifier tokenVerifier;
+    private SessionStore sessionStore;
+    private PrincipalCache principalCache;
+    private TokenExchangeExecutor exchangeExecutor;
+    private long exchangeTimeoutMillis;
     private String redirectOnSuccess = "/portal/home";
     private String redirectOnFail = "/login";
 
@@ -27,11 +48,22 @@ public class CallbackServlet extends HttpServlet {
         super.init(config);
         try {
             authenticationController = AuthenticationControllerProvider.getInstance(config);
+            tokenVerifier = AuthenticationControllerProvider.getTokenVerifier(config.getServletContext());
+            sessionStore = SessionStores.get(config.getServletContext());
+            principalCache = AuthenticationControllerProvider.getPrincipalCache(config.getServletContext());
+            exchangeExecutor = TokenExchangeExecutor.fromContext(config.getServletContext());
+            exchangeTimeoutMillis = AuthenticationControllerProvider.getIntParameter(
+                    config.getServletContext(), "com.auth0.callback.timeoutMillis", 10_000);
         } catch (Exception e) {
             throw new ServletException("Couldn't create the AuthenticationController instance", e);
         }
     }
 
+    @Override
+    public void destroy() {
+        exchangeExecutor.close();
+    }
+
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
         handle(req, res);
@@ -49,22 +81,174 @@ public class CallbackServlet extends HttpServlet {
      * @param req The HTTP request
      * @param res The HTTP response
      * @throws IOException if an I/O error occurs
+     * @throws ServletException if the exchange failed unexpectedly
      */
-    private void handle(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        try {
-            // Parse the request and exchange the authorization code for tokens
-            Tokens tokens = authenticationController.handle(req, res);
+    private void handle(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+        Exchange exchange = (Exchange) req.getAttribute(EXCHANGE_ATTRIBUTE);
+        if (exchange != null) {
+            // Dispatched back after the exchange finished
+            finish(req, res, exchange);
+            return;
+        }
+
+        exchange = new Exchange(req, res);
+        if (!req.isAsyncSupported()) {
+            // Something in the filter chain can't do async: exchange on this thread
+            exchange.run();
+            finish(req, res, exchange);
+            return;
+        }
+
+        req.setAttribute(EXCHANGE_ATTRIBUTE, exchange);
+        AsyncContext async = req.startAsync();
+        async.setTimeout(exchangeTimeoutMillis);
+        async.addListener(exchange);
+        exchange.async = async;
+
+        if (!exchangeExecutor.submit(exchange)) {
+            // Too many logins in flight - ask the browser to come back shortly
+            exchange.abort();
+        }
+    }
 
-            // Store tokens in the session
-            SessionUtils.set(req, "accessToken", tokens.getAccessToken());
-            SessionUtils.set(req, "idToken", tokens.getIdToken());
+    /**
+     * Stores the session and redirects, on a container thread.
+     */
+    private void finish(HttpServletRequest req, HttpServletResponse res, Exchange exchange) throws IOException, ServletException {
+        // State and nonce cookies cleared by the AuthenticationController
+        exchange.response.replay(res);
 
-            // Redirect to the protected home page
-            res.sendRedirect(redirectOnSuccess);
-        } catch (IdentityVerificationException e) {
-            e.printStackTrace();
+        if (exchange.failure instanceof IdentityVerificationException || exchange.failure instanceof JWTVerificationException) {
+            log.warn("Login callback failed", exchange.failure);
+            Metrics.CALLBACK_FAILURE.increment();
+            Metrics.CALLBACK.recordSince(exchange.arrivedNanos);
             // Redirect back to login on failure
             res.sendRedirect(redirectOnFail);
+            return;
+        }
+        if (exchange.failure != null) {
+            Metrics.CALLBACK_ERROR.increment();
+            Metrics.CALLBACK.recordSince(exchange.arrivedNanos);
+            throw new ServletException("Token exchange failed", exchange.failure);
+        }
+
+        // Store the session and hand its principal to the filter, so protected requests skip token verification
+        sessionStore.save(req, res, exchange.session);
+        principalCache.put(exchange.session.getId(), exchange.principal);
+
+        // Redirect to the protected home page
+        res.sendRedirect(redirectOnSuccess);
+        Metrics.CALLBACK_SUCCESS.increment();
+        Metrics.CALLBACK.recordSince(exchange.arrivedNanos);
+    }
+
+    private static void sendRetryLater(AsyncContext async, Exchange exchange) {
+        Metrics.CALLBACK.recordSince(exchange.arrivedNanos);
+        HttpServletResponse res = (HttpServletResponse) async.getResponse();
+        try {
+            res.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Login is busy, please try again");
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone or the response is committed; nothing left to tell it
+        } finally {
+            async.complete();
+        }
+    }
+
+    private static void dispatch(AsyncContext async) {
+        try {
+            async.dispatch();
+        } catch (IllegalStateException e) {
+            // Already dispatched or completed by the container
+        }
+    }
+
+    /**
+     * One code-for-token exchange. It only touches detached copies of the request and response, because it may
+     * still be running after a timeout has completed the real ones.
+     * <p>
+     * Whoever moves the state first decides the outcome: the worker (RUNNING, then DONE), or a timeout, rejection
+     * or client error (ABANDONED). A result that arrives after that is dropped.
+     */
+    private final class Exchange implements Runnable, AsyncListener {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int ABANDONED = 3;
+
+        final DetachedCallbackRequest request;
+        final DetachedCallbackResponse response;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        final long arrivedNanos = System.nanoTime();
+        volatile AsyncContext async;
+        volatile AuthSession session;
+        volatile UserPrincipal principal;
+        volatile Exception failure;
+
+        Exchange(HttpServletRequest req, HttpServletResponse res) {
+            this.request = new DetachedCallbackRequest(req);
+            this.response = new DetachedCallbackResponse(res);
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                // Timed out while waiting in the queue
+                return;
+            }
+            try {
+                // Parse the request and exchange the authorization code for tokens
+                long start = System.nanoTime();
+                Tokens tokens = authenticationController.handle(request, response);
+                Metrics.CODE_EXCHANGE.recordSince(start);
+
+                start = System.nanoTime();
+                VerifiedToken idToken = tokenVerifier.verify(tokens.getIdToken());
+                Metrics.TOKEN_VERIFICATION.recordSince(start);
+
+                AuthSession newSession = AuthSession.fromTokens(tokens, idToken);
+                principal = UserPrincipal.of(newSession, idToken.getExpiresAtMillis());
+                session = newSession;
+            } catch (Exception e) {
+                failure = e;
+            }
+            if (state.compareAndSet(RUNNING, DONE) && async != null) {
+                dispatch(async);
+            }
+        }
+
+        void abort() {
+            if (state.compareAndSet(PENDING, ABANDONED)) {
+                Metrics.CALLBACK_REJECTED.increment();
+                sendRetryLater(async, this);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (state.compareAndSet(PENDING, ABANDONED) || state.compareAndSet(RUNNING, ABANDONED)) {
+                Metrics.CALLBACK_TIMEOUT.increment();
+                sendRetryLater(event.getAsyncContext(), this);
+            } else {
+                // The result is ready; make sure it gets applied even if the worker's dispatch lost the race
+                dispatch(event.getAsyncContext());
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Nothing to clean up
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // The client went away; a running exchange finishes and its result is dropped
+            state.set(ABANDONED);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not used
         }
     }
 }
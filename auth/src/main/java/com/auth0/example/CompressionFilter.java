@@ -0,0 +1,366 @@
+package com.auth0.example;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CompressionFilter - Gzips the responses of the portal pages and the API for clients that accept it.
+ * <p>
+ * The first com.auth0.compression.minBytes of a response are held back: a response that ends below that is
+ * sent as it is, with its Content-Length, as compressing it would save less than the gzip framing and the CPU
+ * cost. Longer text, JSON, JavaScript and XML responses are compressed at com.auth0.compression.level as they
+ * are written. Responses that already carry a Content-Encoding, and HEAD requests, are left alone.
+ * The filter is not async-supported, so everything behind it writes with blocking I/O, as the gzip stream needs.
+ * Static files are not filtered: StaticResourceServlet keeps a compressed copy of each and sends that instead.
+ */
+public class CompressionFilter implements Filter {
+
+    private int minBytes;
+    private int level;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        try {
+            minBytes = AuthenticationControllerProvider.getIntParameter(filterConfig.getServletContext(), "com.auth0.compression.minBytes", 1024);
+            level = AuthenticationControllerProvider.getIntParameter(filterConfig.getServletContext(), "com.auth0.compression.level", 6);
+            if (minBytes < 0 || level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("com.auth0.compression.minBytes must not be negative and com.auth0.compression.level must be 1 to 9");
+            }
+        } catch (Exception e) {
+            throw new ServletException("Couldn't configure the CompressionFilter", e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+        if ("HEAD".equals(req.getMethod()) || !acceptsGzip(req.getHeader("Accept-Encoding"))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponse compressing = new CompressingResponse(res, minBytes, level);
+        chain.doFilter(request, compressing);
+        compressing.finish();
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * @return Whether the Accept-Encoding header lists gzip without ruling it out with q=0; a malformed q-value
+     * counts as not offering it
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") && !(qValue(parameter.substring(2)) > 0)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The q-value, or NaN if it isn't a number from 0 to 1
+     */
+    private static double qValue(String value) {
+        try {
+            double q = Double.parseDouble(value.trim());
+            return q >= 0 && q <= 1 ? q : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @return Whether the content type is text that compresses well
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.startsWith("application/json") || type.startsWith("application/javascript")
+                || type.startsWith("application/xml") || type.contains("+json") || type.contains("+xml")
+                || type.startsWith("image/svg+xml");
+    }
+
+    /**
+     * Holds back the start of the response until it is clear whether it is worth compressing.
+     */
+    private static final class CompressingResponse extends HttpServletResponseWrapper {
+        private final HttpServletResponse response;
+        private final int minBytes;
+        private final int level;
+        private byte[] pending;
+        private int pendingSize;
+        // Where the body goes once decided: the container's stream, or a gzip stream around it
+        private OutputStream target;
+        private CompressingStream stream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+        private boolean finishing;
+        private boolean finished;
+
+        CompressingResponse(HttpServletResponse response, int minBytes, int level) {
+            super(response);
+            this.response = response;
+            this.minBytes = minBytes;
+            this.level = level;
+            this.pending = new byte[Math.min(minBytes, 8 * 1024)];
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (stream == null) {
+                stream = new CompressingStream();
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                stream = new CompressingStream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        // Held back: the length changes if the body is compressed
+        @Override
+        public void setContentLength(int length) {
+            contentLength = length;
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            contentLength = length;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                contentLength = value == null ? -1 : Long.parseLong(value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                // Ends up in flushStream
+                writer.flush();
+            } else {
+                flushStream();
+            }
+            super.flushBuffer();
+        }
+
+        // An error page or a redirect replaces whatever was held back
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            finished = true;
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            finished = true;
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            finished = true;
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            resetBuffer();
+            contentLength = -1;
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (target != null) {
+                throw new IllegalStateException("The response is already being sent");
+            }
+            super.resetBuffer();
+            pendingSize = 0;
+        }
+
+        void write(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) {
+                // Dropped, as the container does after sendError
+                return;
+            }
+            if (target == null) {
+                if (pendingSize + length < minBytes) {
+                    if (pendingSize + length > pending.length) {
+                        pending = Arrays.copyOf(pending, Math.min(Math.max(pending.length * 2, pendingSize + length), minBytes));
+                    }
+                    System.arraycopy(bytes, offset, pending, pendingSize, length);
+                    pendingSize += length;
+                    return;
+                }
+                decide(true);
+            }
+            target.write(bytes, offset, length);
+        }
+
+        void flushStream() throws IOException {
+            if (finishing || finished) {
+                return;
+            }
+            // Whatever comes next has to be streamed, so decide now
+            if (target == null && pendingSize > 0) {
+                decide(true);
+            }
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        /**
+         * Picks the target and sends what was held back.
+         *
+         * @param large Whether the response reached minBytes, or can't be held back any longer
+         */
+        private void decide(boolean large) throws IOException {
+            boolean compress = large && isCompressible(getContentType()) && !containsHeader("Content-Encoding")
+                    && !response.isCommitted();
+            if (isCompressible(getContentType())) {
+                response.addHeader("Vary", "Accept-Encoding");
+            }
+            if (compress) {
+                response.setHeader("Content-Encoding", "gzip");
+                target = new GZIPOutputStream(response.getOutputStream(), 8 * 1024, true) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                } else if (!large) {
+                    response.setContentLength(pendingSize);
+                }
+                target = response.getOutputStream();
+            }
+            target.write(pending, 0, pendingSize);
+            pendingSize = 0;
+        }
+
+        /**
+         * Sends the rest of the response once the servlet is done with it.
+         */
+        void finish() throws IOException {
+            if (finishing || finished) {
+                return;
+            }
+            finishing = true;
+            if (writer != null) {
+                // Hands over the characters the writer still holds, without deciding as flushStream would
+                writer.flush();
+            }
+            finished = true;
+            if (target == null) {
+                if (pendingSize == 0 && stream == null) {
+                    // Nothing was written through this wrapper, e.g. a redirect or sendError
+                    if (contentLength >= 0) {
+                        response.setContentLengthLong(contentLength);
+                    }
+                    return;
+                }
+                decide(false);
+            }
+            if (target instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) target).finish();
+            }
+        }
+
+        private final class CompressingStream extends ServletOutputStream {
+            private final byte[] single = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                CompressingResponse.this.write(single, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushStream();
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // The filter isn't async-supported, so nothing behind it can start async I/O; the container turns this down
+                try {
+                    response.getOutputStream().setWriteListener(writeListener);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
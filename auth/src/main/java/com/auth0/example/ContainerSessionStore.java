@@ -0,0 +1,49 @@
+package com.auth0.example;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * ContainerSessionStore - Keeps the AuthSession in the servlet container's HttpSession.
+ * Sessions are local to the node that created them, so this needs sticky sessions behind a load balancer.
+ */
+public class ContainerSessionStore implements SessionStore {
+
+    private static final String SESSION_ATTRIBUTE = "com.auth0.session";
+
+    @Override
+    public AuthSession load(HttpServletRequest req) {
+        HttpSession httpSession = req.getSession(false);
+        if (httpSession == null) {
+            return null;
+        }
+        AuthSession session = (AuthSession) httpSession.getAttribute(SESSION_ATTRIBUTE);
+        return session == null || session.isExpired(System.currentTimeMillis()) ? null : session;
+    }
+
+    @Override
+    public void save(HttpServletRequest req, HttpServletResponse res, AuthSession session) {
+        if (req.getSession(false) != null) {
+            // Issue a fresh session id at login to prevent session fixation
+            req.changeSessionId();
+        }
+        req.getSession(true).setAttribute(SESSION_ATTRIBUTE, session);
+    }
+
+    @Override
+    public void update(HttpServletRequest req, HttpServletResponse res, AuthSession session) {
+        HttpSession httpSession = req.getSession(false);
+        if (httpSession != null) {
+            httpSession.setAttribute(SESSION_ATTRIBUTE, session);
+        }
+    }
+
+    @Override
+    public void invalidate(HttpServletRequest req, HttpServletResponse res) {
+        HttpSession httpSession = req.getSession(false);
+        if (httpSession != null) {
+            httpSession.invalidate();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.auth0.example;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * CookieSessionStore - Stores the AuthSession in the browser instead of the server.
+ * The session, minus its tokens, is serialized to a compact binary form, sealed with AES-256-GCM (so it can be
+ * neither read nor altered without the key) and written as one or more cookies named {name}.0, {name}.1, ...
+ * Any node holding the key can decode it, so no server-side state or session replication is needed.
+ * <p>
+ * Enabled with the com.auth0.session.mode context parameter set to "cookie". The com.auth0.session.cookieKey
+ * parameter holds one or more comma-separated base64 encoded 256-bit keys; the first one seals new cookies
+ * and all of them are accepted when reading, which allows keys to be rotated without logging everyone out.
+ */
+public class CookieSessionStore implements SessionStore {
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int MAX_CHUNKS = 8;
+    // Leaves room for the cookie name and attributes within the 4096 byte browser limit
+    private static final int CHUNK_SIZE = 3800;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM is required by every Java platform", e);
+        }
+    });
+
+    private final SecretKeySpec[] keys;
+    private final String cookieName;
+    private final byte[] associatedData;
+
+    /**
+     * @param keys       The AES-256 keys; the first one seals new cookies
+     * @param cookieName The base name of the session cookies
+     */
+    public CookieSessionStore(List<byte[]> keys, String cookieName) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one session cookie key is required");
+        }
+        this.keys = new SecretKeySpec[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).length != 32) {
+                throw new IllegalArgumentException("Session cookie keys must be 256 bits (32 bytes) long");
+            }
+            this.keys[i] = new SecretKeySpec(keys.get(i), "AES");
+        }
+        this.cookieName = cookieName;
+        // Binds the ciphertext to the cookie name, so a value cannot be replayed under another cookie
+        this.associatedData = cookieName.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Creates the store configured in web.xml.
+     *
+     * @param context The ServletContext to read com.auth0.session.cookieKey and com.auth0.session.cookieName from
+     * @return The store
+     */
+    static CookieSessionStore fromContext(ServletContext context) {
+        String keyParam = context.getInitParameter("com.auth0.session.cookieKey");
+        if (keyParam == null || keyParam.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing com.auth0.session.cookieKey. Did you update src/main/webapp/WEB-INF/web.xml?");
+        }
+        List<byte[]> keys = new ArrayList<>();
+        for (String key : keyParam.split(",")) {
+            keys.add(Base64.getDecoder().decode(key.trim()));
+        }
+        return new CookieSessionStore(keys, SessionStores.getCookieName(context));
+    }
+
+    /**
+     * Reads and decrypts the session cookie. A cookie that is tampered with or unreadable counts as no session.
+     */
+    @Override
+    public AuthSession load(HttpServletRequest req) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+
+        // Reassemble the chunks in index order
+        String[] chunks = new String[MAX_CHUNKS];
+        int count = 0;
+        for (Cookie cookie : cookies) {
+            int index = chunkIndex(cookie.getName());
+            if (index >= 0 && chunks[index] == null) {
+                chunks[index] = cookie.getValue();
+                count = Math.max(count, index + 1);
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        StringBuilder sealed = new StringBuilder(count * CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            if (chunks[i] == null) {
+                return null;
+            }
+            sealed.append(chunks[i]);
+        }
+
+        try {
+            AuthSession session = AuthSession.fromBytes(open(Base64.getUrlDecoder().decode(sealed.toString())));
+            return session.isExpired(System.currentTimeMillis()) ? null : session;
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Seals the session (without its tokens) into the response cookies, expiring any chunks
+     * left over from a larger session.
+     */
+    @Override
+    public void save(HttpServletRequest req, HttpServletResponse res, AuthSession session) throws IOException {
+        String value;
+        try {
+            value = Base64.getUrlEncoder().withoutPadding().encodeToString(seal(session.withoutTokens().toBytes()));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not encrypt the session cookie", e);
+        }
+
+        int chunkCount = (value.length() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkCount > MAX_CHUNKS) {
+            throw new IOException("Session does not fit into " + MAX_CHUNKS + " cookies");
+        }
+        long maxAge = Math.max((session.getExpiresAtMillis() - System.currentTimeMillis()) / 1000, 0);
+        for (int i = 0; i < chunkCount; i++) {
+            String chunk = value.substring(i * CHUNK_SIZE, Math.min(value.length(), (i + 1) * CHUNK_SIZE));
+            SessionCookies.add(req, res, cookieName + "." + i, chunk, maxAge);
+        }
+        expireChunks(req, res, chunkCount);
+    }
+
+    /**
+     * Removes all session cookies from the browser. There is nothing to remove on the server.
+     */
+    @Override
+    public void invalidate(HttpServletRequest req, HttpServletResponse res) {
+        expireChunks(req, res, 0);
+    }
+
+    private void expireChunks(HttpServletRequest req, HttpServletResponse res, int keep) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return;
+        }
+        for (Cookie cookie : cookies) {
+            if (chunkIndex(cookie.getName()) >= keep) {
+                SessionCookies.add(req, res, cookie.getName(), "", 0);
+            }
+        }
+    }
+
+    /**
+     * @return The chunk index encoded in a cookie name, or -1 if it is not one of our cookies
+     */
+    private int chunkIndex(String name) {
+        if (name.length() != cookieName.length() + 2 || !name.startsWith(cookieName) || name.charAt(cookieName.length()) != '.') {
+            return -1;
+        }
+        int index = name.charAt(name.length() - 1) - '0';
+        return index >= 0 && index < MAX_CHUNKS ? index : -1;
+    }
+
+    private byte[] seal(byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, keys[0], new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(associatedData);
+
+        byte[] sealed = new byte[IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, sealed, 0, IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, sealed, IV_LENGTH);
+        return sealed;
+    }
+
+    private byte[] open(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length <= IV_LENGTH) {
+            throw new AEADBadTagException("Session cookie is too short");
+        }
+        Cipher cipher = CIPHER.get();
+        GCMParameterSpec iv = new GCMParameterSpec(TAG_BITS, sealed, 0, IV_LENGTH);
+        AEADBadTagException failure = null;
+        for (SecretKeySpec key : keys) {
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, iv);
+                cipher.updateAAD(associatedData);
+                return cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+            } catch (AEADBadTagException e) {
+                // Sealed with another (older) key, or tampered with
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+}
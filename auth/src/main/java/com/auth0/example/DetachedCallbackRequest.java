@@ -0,0 +1,363 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DetachedCallbackRequest - A copy of the parts of a callback request the AuthenticationController reads
+ * (parameters, cookies, headers, attributes, the request URL, scheme, server and remote address, and the session),
+ * taken on the container thread.
+ * The token exchange runs on another thread and may outlive the request if it times out; once the container
+ * has recycled the request, only this copy is safe to read. The wrapped request is a stub that throws
+ * IllegalStateException, so a read this copy does not cover fails loudly instead of seeing another request.
+ * <p>
+ * The controller falls back to the HttpSession when its state or nonce cookie is missing. The existing session
+ * is handed out as is (sessions outlive requests); if there is none, a new, empty session could not hold the
+ * state anyway, so an empty stand-in is returned instead of creating one from the worker thread.
+ */
+class DetachedCallbackRequest extends HttpServletRequestWrapper {
+
+    private static final HttpServletRequest DETACHED = (HttpServletRequest) Proxy.newProxyInstance(
+            DetachedCallbackRequest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "toString":
+                        return "DetachedCallbackRequest";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new IllegalStateException("HttpServletRequest." + method.getName()
+                                + " isn't part of the detached callback request");
+                }
+            });
+
+    private final Map<String, String[]> parameters;
+    private final Cookie[] cookies;
+    private final Map<String, List<String>> headers;
+    private final Map<String, Object> attributes;
+    private final String method;
+    private final String requestUrl;
+    private final String requestUri;
+    private final String contextPath;
+    private final String queryString;
+    private final String scheme;
+    private final String serverName;
+    private final int serverPort;
+    private final boolean secure;
+    private final String remoteAddr;
+    private final String characterEncoding;
+    private final HttpSession session;
+    private final ServletContext servletContext;
+
+    DetachedCallbackRequest(HttpServletRequest request) {
+        super(DETACHED);
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(request.getParameterMap()));
+        this.cookies = copy(request.getCookies());
+        this.headers = headers(request);
+        this.attributes = new ConcurrentHashMap<>();
+        for (String name : Collections.list(request.getAttributeNames())) {
+            Object value = request.getAttribute(name);
+            if (value != null) {
+                attributes.put(name, value);
+            }
+        }
+        this.method = request.getMethod();
+        this.requestUrl = request.getRequestURL().toString();
+        this.requestUri = request.getRequestURI();
+        this.contextPath = request.getContextPath();
+        this.queryString = request.getQueryString();
+        this.scheme = request.getScheme();
+        this.serverName = request.getServerName();
+        this.serverPort = request.getServerPort();
+        this.secure = request.isSecure();
+        this.remoteAddr = request.getRemoteAddr();
+        this.characterEncoding = request.getCharacterEncoding();
+        this.session = request.getSession(false);
+        this.servletContext = request.getServletContext();
+    }
+
+    /**
+     * Header names are case-insensitive; they are kept lower-cased.
+     */
+    private static Map<String, List<String>> headers(HttpServletRequest request) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            headers.computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> new ArrayList<>())
+                    .addAll(Collections.list(request.getHeaders(name)));
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return copy(cookies);
+    }
+
+    /**
+     * The controller "deletes" the state and nonce cookies by blanking the Cookie objects it was given. Jetty
+     * reuses a connection's parsed cookies while the Cookie header stays the same, so handing out the
+     * container's own objects would blank them for the next request on that connection.
+     */
+    private static Cookie[] copy(Cookie[] cookies) {
+        if (cookies == null) {
+            return null;
+        }
+        Cookie[] copy = new Cookie[cookies.length];
+        for (int i = 0; i < cookies.length; i++) {
+            copy[i] = (Cookie) cookies[i].clone();
+        }
+        return copy;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ROOT));
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ROOT));
+        return Collections.enumeration(values == null ? Collections.emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    /**
+     * Attributes are copied too; setting one changes only this copy.
+     */
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(requestUrl);
+    }
+
+    @Override
+    public String getRequestURI() {
+        return requestUri;
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (session != null || !create) {
+            return session;
+        }
+        return new EmptySession(servletContext);
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    /**
+     * A session that holds nothing and is never stored.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class EmptySession implements HttpSession {
+        private final ServletContext servletContext;
+        private final long creationTime = System.currentTimeMillis();
+
+        EmptySession(ServletContext servletContext) {
+            this.servletContext = servletContext;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public String getId() {
+            return "";
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return creationTime;
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servletContext;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return 0;
+        }
+
+        @Override
+        public javax.servlet.http.HttpSessionContext getSessionContext() {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public Object getValue(String name) {
+            return null;
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public String[] getValueNames() {
+            return new String[0];
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+
+        @Override
+        public void putValue(String name, Object value) {
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+        }
+
+        @Override
+        public void removeValue(String name) {
+        }
+
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public boolean isNew() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.auth0.example;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DetachedCallbackResponse - Records the cookies and headers the AuthenticationController adds while it handles
+ * a callback (it clears its state and nonce cookies), so the token exchange can run off the container thread.
+ * The recorded cookies and headers are copied to the real response once the exchange is done.
+ */
+class DetachedCallbackResponse extends HttpServletResponseWrapper {
+
+    private final List<Cookie> cookies = new ArrayList<>(2);
+    private final List<String[]> headers = new ArrayList<>(2);
+
+    DetachedCallbackResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        cookies.add(cookie);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        headers.add(new String[]{name, value});
+    }
+
+    /**
+     * Copies the recorded cookies and headers to the real response.
+     *
+     * @param response The response of the request being completed
+     */
+    void replay(HttpServletResponse response) {
+        for (Cookie cookie : cookies) {
+            response.addCookie(cookie);
+        }
+        for (String[] header : headers) {
+            response.addHeader(header[0], header[1]);
+        }
+    }
+}
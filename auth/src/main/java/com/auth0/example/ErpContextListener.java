@@ -0,0 +1,32 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * ErpContextListener - Starts the ERP's shared services at deploy time, before the first request: the OrderStore,
+ * which replays its journal, and the EventBus with its consumers, including the WebhookDispatcher, which must be
+ * consuming events before anything publishes one. Stops them at undeploy, once nothing can write an order.
+ */
+public class ErpContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+
+        // Replay the journal and connect the consumers now, so a misconfiguration fails the deploy
+        OrderStores.get(context);
+        EventBuses.get(context);
+        WebhookDispatchers.get(context);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        OrderStores.close(context);
+        // The bus first: its consumers finish the events published so far, handing webhooks to the dispatcher
+        EventBuses.close(context);
+        WebhookDispatchers.close(context);
+    }
+}
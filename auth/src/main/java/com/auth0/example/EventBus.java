@@ -0,0 +1,421 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventBus - The ERP's domain events (the portal's webhook events: order.created, inventory.low, ...), passed from
+ * the request threads that publish them to consumers on threads of their own (webhooks, metrics, audit) through a
+ * ring of preallocated slots:
+ * <ul>
+ *     <li>Publishing claims the next slot with one atomic increment and fills in its fields: no lock and no
+ *     allocation, and it never waits for a consumer, so a slow consumer adds nothing to a request</li>
+ *     <li>Every consumer sees every event, in the order the slots were claimed, and reads all that is ready
+ *     before it waits, telling its handler which event ends a batch, so it can write or send a batch at once;
+ *     with nothing to read it spins briefly, then sleeps for up to a millisecond, as publishers never wake it</li>
+ *     <li>A consumer that falls a whole ring behind has the events it missed overwritten: it skips ahead, and the
+ *     events it lost are logged and counted, rather than the publishers being held up</li>
+ * </ul>
+ * A slot's stamp is the sequence of the event in it, and is changed before and after the event is written, so a
+ * consumer that reads the same stamp before and after copying an event knows the copy is whole.
+ */
+public final class EventBus implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+
+    /**
+     * The event types, with what fires them; the portal's WEBHOOK_EVENTS.
+     */
+    public enum Type {
+        ORDER_CREATED("order.created", "Fired when a new order is placed"),
+        ORDER_SHIPPED("order.shipped", "Fired when an order is marked as shipped"),
+        ORDER_CANCELLED("order.cancelled", "Fired when an order is cancelled"),
+        INVENTORY_LOW("inventory.low", "Fired when stock drops below safety level"),
+        INVENTORY_UPDATED("inventory.updated", "Fired when stock levels change"),
+        PO_CREATED("po.created", "Fired when a purchase order is created"),
+        PO_RECEIVED("po.received", "Fired when a purchase order is received");
+
+        private final String name;
+        private final String description;
+
+        Type(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        /**
+         * The type as webhooks name it, e.g. order.created.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        /**
+         * @return The type of the name, or null if there is none
+         */
+        public static Type forName(String name) {
+            for (Type type : values()) {
+                if (type.name.equals(name)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Handles the events of one consumer, on the consumer's thread.
+     */
+    public interface Handler {
+        /**
+         * @param event      The event; valid only during the call
+         * @param endOfBatch Whether no more events are ready, so anything batched should be written now
+         */
+        void onEvent(Event event, boolean endOfBatch) throws Exception;
+    }
+
+    /**
+     * An event: what happened and to what. Which fields are set depends on the type:
+     * <ul>
+     *     <li>order.*: the subject is the Order</li>
+     *     <li>inventory.low: the subject is the InventoryItem, the value its units on hand</li>
+     *     <li>inventory.updated: the subject is the InventoryItem, the detail the location's name, the value the
+     *     location's packed InventoryLedger cell</li>
+     * </ul>
+     */
+    public static final class Event {
+        // As JavaScript's toISOString writes it, always with milliseconds
+        private static final DateTimeFormatter TIMESTAMP =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+        private long sequence;
+        private Type type;
+        private Object subject;
+        private Object detail;
+        private long value;
+        private long timeMillis;
+        private long nanos;
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public Object getSubject() {
+            return subject;
+        }
+
+        public Object getDetail() {
+            return detail;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * When the event was published, in epoch milliseconds.
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * When the event was published, as the portal's webhooks write it, e.g. 2024-03-01T12:00:00.000Z.
+         */
+        public String getTimestamp() {
+            return TIMESTAMP.format(Instant.ofEpochMilli(timeMillis));
+        }
+
+        /**
+         * When the event was published, as a System.nanoTime() reading.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Writes the event's data as its webhook carries it: the order, the low stock, or the stock at a location.
+         */
+        public void writeData(JsonGenerator json) throws IOException {
+            switch (type) {
+                case ORDER_CREATED:
+                case ORDER_SHIPPED:
+                case ORDER_CANCELLED:
+                    ((Order) subject).writeJson(json);
+                    break;
+                case INVENTORY_LOW:
+                    LowStockDetector.writeShortfall(json, (InventoryItem) subject, value);
+                    break;
+                case INVENTORY_UPDATED:
+                    json.writeStartObject();
+                    json.writeStringField("sku", ((InventoryItem) subject).getSku());
+                    json.writeStringField("location", (String) detail);
+                    json.writeNumberField("onHand", InventoryLedger.onHand(value));
+                    json.writeNumberField("reserved", InventoryLedger.reserved(value));
+                    json.writeNumberField("available", InventoryLedger.available(value));
+                    json.writeEndObject();
+                    break;
+                default:
+                    if (subject instanceof JsonNode) {
+                        json.writeTree((JsonNode) subject);
+                    } else {
+                        json.writeNull();
+                    }
+            }
+        }
+
+        private void copyFrom(Event other) {
+            sequence = other.sequence;
+            type = other.type;
+            subject = other.subject;
+            detail = other.detail;
+            value = other.value;
+            timeMillis = other.timeMillis;
+            nanos = other.nanos;
+        }
+    }
+
+    private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+    // A slot being written is stamped WRITING + the sequence, below any stamp of a written slot (at least -size)
+    private static final long WRITING = Long.MIN_VALUE;
+    // The most events a consumer hands over before it ends a batch, even if more are ready
+    private static final int MAX_BATCH = 256;
+    private static final int SPINS = 64;
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long LOST_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Event[] slots;
+    // The sequence of the event in each slot, or WRITING + the sequence while it is being written
+    private final long[] stamps;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private volatile Consumer[] consumers = new Consumer[0];
+    private volatile boolean closing;
+
+    /**
+     * @param size The number of slots, a power of two: how far a consumer may fall behind before it loses events
+     */
+    public EventBus(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The event bus size must be a power of two, at least 2");
+        }
+        slots = new Event[size];
+        stamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event();
+            // As if the lap before the first had been written
+            stamps[i] = i - size;
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Publishes an event, without waiting for any consumer.
+     *
+     * @param type    The event type
+     * @param subject What the event is about; see Event for each type
+     * @param detail  More about it, or null
+     * @param value   A number about it, or 0
+     */
+    public void publish(Type type, Object subject, Object detail, long value) {
+        long sequence = next.getAndIncrement();
+        int index = (int) sequence & mask;
+        // Only if publishers are a whole ring apart: let the one a lap before finish with the slot
+        while ((long) STAMPS.getAcquire(stamps, index) != sequence - slots.length) {
+            Thread.onSpinWait();
+        }
+        STAMPS.setOpaque(stamps, index, WRITING + sequence);
+        VarHandle.storeStoreFence();
+        Event slot = slots[index];
+        slot.sequence = sequence;
+        slot.type = type;
+        slot.subject = subject;
+        slot.detail = detail;
+        slot.value = value;
+        slot.timeMillis = System.currentTimeMillis();
+        slot.nanos = System.nanoTime();
+        STAMPS.setRelease(stamps, index, sequence);
+    }
+
+    /**
+     * Starts a consumer on a thread of its own, which handles every event published from now on.
+     *
+     * @param name    The consumer's name, for its thread and logs
+     * @param handler What to do with each event
+     * @param lost    Counts the events the consumer lost by falling a whole ring behind
+     */
+    public synchronized void subscribe(String name, Handler handler, Metrics.Counter lost) {
+        if (closing) {
+            throw new IllegalStateException("The event bus is closed");
+        }
+        Consumer consumer = new Consumer(name, handler, lost, next.get());
+        Consumer[] grown = new Consumer[consumers.length + 1];
+        System.arraycopy(consumers, 0, grown, 0, consumers.length);
+        grown[consumers.length] = consumer;
+        consumers = grown;
+        consumer.thread.start();
+    }
+
+    /**
+     * Stops the consumers once they have handled every event published so far, waiting up to five seconds.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closing = true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+            try {
+                TimeUnit.NANOSECONDS.timedJoin(consumer.thread, Math.max(deadline - System.nanoTime(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (consumer.thread.isAlive()) {
+                log.warn("The {} event consumer didn't finish in time", consumer.name);
+            }
+        }
+    }
+
+    /**
+     * The number of events published so far.
+     */
+    public long published() {
+        return next.get();
+    }
+
+    /**
+     * @return The events the named consumer has yet to handle, or -1 if there is no such consumer
+     */
+    public long backlog(String name) {
+        for (Consumer consumer : consumers) {
+            if (consumer.name.equals(name)) {
+                return next.get() - consumer.sequence;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A consumer's position in the ring, and its thread.
+     */
+    private final class Consumer implements Runnable {
+        final String name;
+        final Handler handler;
+        final Metrics.Counter lost;
+        final Thread thread;
+        // The next event to handle, once the one before is handled; written by the consumer's thread only
+        volatile long sequence;
+        private long lastLostLogNanos;
+
+        Consumer(String name, Handler handler, Metrics.Counter lost, long sequence) {
+            this.name = name;
+            this.handler = handler;
+            this.lost = lost;
+            this.sequence = sequence;
+            thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Event event = new Event();
+            long sequence = this.sequence;
+            int batch = 0;
+            int idle = 0;
+            while (true) {
+                int index = (int) sequence & mask;
+                long stamp = (long) STAMPS.getAcquire(stamps, index);
+                if (stamp == sequence) {
+                    event.copyFrom(slots[index]);
+                    VarHandle.loadLoadFence();
+                    if ((long) STAMPS.getAcquire(stamps, index) != sequence) {
+                        // Overwritten while it was copied
+                        sequence = skip(sequence);
+                        continue;
+                    }
+                    sequence++;
+                    batch++;
+                    idle = 0;
+                    boolean endOfBatch = batch >= MAX_BATCH
+                            || (long) STAMPS.getAcquire(stamps, (int) sequence & mask) != sequence;
+                    if (endOfBatch) {
+                        batch = 0;
+                    }
+                    handle(event, endOfBatch);
+                    this.sequence = sequence;
+                } else if (stamp > sequence || (stamp < -slots.length && stamp - WRITING > sequence)) {
+                    // Written, or being written, by a later lap
+                    sequence = skip(sequence);
+                } else if (closing && next.get() <= sequence) {
+                    return;
+                } else if (idle < SPINS) {
+                    idle++;
+                    Thread.onSpinWait();
+                } else {
+                    // Sleeps longer the longer nothing comes, up to a millisecond; publishers never wake a
+                    // consumer, since on a busy machine the woken thread would run on the publisher's time
+                    LockSupport.parkNanos(this, Math.min(MIN_PARK_NANOS << (idle - SPINS), MAX_PARK_NANOS));
+                    if (MIN_PARK_NANOS << (idle - SPINS) < MAX_PARK_NANOS) {
+                        idle++;
+                    }
+                }
+            }
+        }
+
+        private void handle(Event event, boolean endOfBatch) {
+            try {
+                handler.onEvent(event, endOfBatch);
+            } catch (Exception e) {
+                log.warn("The {} event consumer failed on {} {}", name, event.getType().getName(),
+                        event.getSequence(), e);
+            }
+        }
+
+        /**
+         * Moves a consumer that was lapped to half a ring behind the publishers, counting what it lost.
+         *
+         * @return The sequence to go on from
+         */
+        private long skip(long sequence) {
+            long resume = Math.max(sequence + 1, next.get() - (slots.length >> 1));
+            lost.add(resume - sequence);
+            long now = System.nanoTime();
+            // Logged at most every ten seconds: a consumer that can't keep up is lapped again and again
+            if (now - lastLostLogNanos > LOST_LOG_INTERVAL_NANOS) {
+                lastLostLogNanos = now;
+                log.warn("The {} event consumer fell a whole ring behind and lost {} events", name, resume - sequence);
+            }
+            this.sequence = resume;
+            return resume;
+        }
+    }
+}
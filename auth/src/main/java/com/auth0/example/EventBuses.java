@@ -0,0 +1,88 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EventBuses - Shares one EventBus per application through a ServletContext attribute, with com.auth0.events.ringSize
+ * slots (default 65536), and its consumers:
+ * <ul>
+ *     <li>metrics - counts the events by type and times how long they waited</li>
+ *     <li>audit - an AuditLog to com.auth0.events.auditFile, if set</li>
+ *     <li>webhooks - the WebhookDispatcher, which subscribes itself (see WebhookDispatchers)</li>
+ * </ul>
+ */
+public final class EventBuses {
+
+    private static final String ATTRIBUTE = EventBus.class.getName();
+    private static final String CONSUMERS_ATTRIBUTE = EventBus.class.getName() + ".consumers";
+
+    private EventBuses() {}
+
+    /**
+     * Gets the application's EventBus, creating it and starting its consumers on first use.
+     *
+     * @param context The ServletContext to read the configuration from and keep the bus in
+     * @return The shared EventBus
+     */
+    public static EventBus get(ServletContext context) {
+        Object bus = context.getAttribute(ATTRIBUTE);
+        if (bus == null) {
+            synchronized (EventBuses.class) {
+                bus = context.getAttribute(ATTRIBUTE);
+                if (bus == null) {
+                    bus = create(context);
+                }
+            }
+        }
+        return (EventBus) bus;
+    }
+
+    /**
+     * Closes the application's EventBus, if one was created, once its consumers have handled what was published,
+     * then the audit log.
+     *
+     * @param context The ServletContext the bus was published in
+     */
+    public static synchronized void close(ServletContext context) {
+        Object bus = context.getAttribute(ATTRIBUTE);
+        if (bus != null) {
+            context.removeAttribute(ATTRIBUTE);
+            ((EventBus) bus).close();
+            @SuppressWarnings("unchecked")
+            List<AutoCloseable> consumers = (List<AutoCloseable>) context.getAttribute(CONSUMERS_ATTRIBUTE);
+            context.removeAttribute(CONSUMERS_ATTRIBUTE);
+            for (AutoCloseable consumer : consumers) {
+                try {
+                    consumer.close();
+                } catch (Exception e) {
+                    context.log("Couldn't close the event consumer " + consumer, e);
+                }
+            }
+        }
+    }
+
+    private static EventBus create(ServletContext context) {
+        EventBus bus = new EventBus(
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.events.ringSize", 65536));
+        List<AutoCloseable> consumers = new ArrayList<>();
+
+        bus.subscribe("metrics", (event, endOfBatch) -> {
+            Metrics.EVENTS[event.getType().ordinal()].increment();
+            Metrics.EVENT_LAG.recordSince(event.getNanos());
+        }, Metrics.EVENTS_LOST_METRICS);
+
+        String auditFile = context.getInitParameter("com.auth0.events.auditFile");
+        if (auditFile != null && !auditFile.trim().isEmpty()) {
+            AuditLog audit = new AuditLog(Paths.get(auditFile.trim()));
+            consumers.add(audit);
+            bus.subscribe("audit", audit, Metrics.EVENTS_LOST_AUDIT);
+        }
+
+        context.setAttribute(CONSUMERS_ATTRIBUTE, consumers);
+        context.setAttribute(ATTRIBUTE, bus);
+        return bus;
+    }
+}
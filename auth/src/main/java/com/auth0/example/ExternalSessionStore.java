@@ -0,0 +1,126 @@
+package com.auth0.example;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * ExternalSessionStore - Keeps sessions in a shared SessionBackend (Redis in production) and binds them to the
+ * browser with an opaque random id cookie, so any node can serve any user and restarts log nobody out.
+ * <p>
+ * Recently used sessions are kept in a per-node near-cache for a few seconds, so the filter hot path is a map
+ * read rather than a network round trip. The backend notifies every node when a session changes or is deleted,
+ * and nodes drop it from their near-cache right away; the short near-cache TTL bounds staleness if a
+ * notification is lost. A full near-cache is swept as BoundedCache describes, stale entries first.
+ */
+public class ExternalSessionStore implements SessionStore {
+
+    private final SessionBackend backend;
+    private final String cookieName;
+    private final long nearCacheNanos;
+    private final BoundedCache<String, Cached> nearCache;
+
+    /**
+     * @param backend             The shared session storage
+     * @param cookieName          The name of the session id cookie
+     * @param nearCacheMillis     How long a session is served from the near-cache without asking the backend
+     * @param nearCacheMaxEntries The maximum number of sessions in the near-cache; 0 disables it
+     */
+    public ExternalSessionStore(SessionBackend backend, String cookieName, long nearCacheMillis, int nearCacheMaxEntries) {
+        this.backend = backend;
+        this.cookieName = cookieName;
+        this.nearCacheNanos = nearCacheMillis * 1_000_000L;
+        this.nearCache = new BoundedCache<>(nearCacheNanos > 0 ? nearCacheMaxEntries : 0, System::nanoTime,
+                (cached, now) -> now >= cached.freshUntil);
+        backend.onInvalidate(id -> {
+            if (id == null) {
+                nearCache.clear();
+            } else {
+                nearCache.remove(id);
+            }
+        });
+    }
+
+    @Override
+    public AuthSession load(HttpServletRequest req) throws IOException {
+        String id = SessionCookies.find(req, cookieName);
+        if (id == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        Cached cached = nearCache.get(id);
+        if (cached != null && System.nanoTime() < cached.freshUntil) {
+            return cached.session.isExpired(now) ? null : cached.session;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = backend.get(id);
+        } catch (IOException e) {
+            // Backend unreachable - a stale near-cache entry beats logging the user out
+            if (cached != null && !cached.session.isExpired(now)) {
+                return cached.session;
+            }
+            throw e;
+        }
+        if (bytes == null) {
+            nearCache.remove(id);
+            return null;
+        }
+
+        AuthSession session = AuthSession.fromBytes(bytes);
+        if (session.isExpired(now)) {
+            nearCache.remove(id);
+            return null;
+        }
+        remember(session);
+        return session;
+    }
+
+    @Override
+    public void save(HttpServletRequest req, HttpServletResponse res, AuthSession session) throws IOException {
+        // A login always gets a fresh id; drop whatever session the browser had before (session fixation)
+        String previousId = SessionCookies.find(req, cookieName);
+        if (previousId != null && !previousId.equals(session.getId())) {
+            nearCache.remove(previousId);
+            backend.delete(previousId);
+        }
+
+        long ttlMillis = session.getExpiresAtMillis() - System.currentTimeMillis();
+        backend.put(session.getId(), session.toBytes(), ttlMillis);
+        remember(session);
+        SessionCookies.add(req, res, cookieName, session.getId(), Math.max(ttlMillis / 1000, 0));
+    }
+
+    @Override
+    public void invalidate(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        String id = SessionCookies.find(req, cookieName);
+        if (id == null) {
+            return;
+        }
+        nearCache.remove(id);
+        SessionCookies.add(req, res, cookieName, "", 0);
+        backend.delete(id);
+    }
+
+    @Override
+    public void close() {
+        nearCache.clear();
+        backend.close();
+    }
+
+    private void remember(AuthSession session) {
+        nearCache.put(session.getId(), new Cached(session, System.nanoTime() + nearCacheNanos));
+    }
+
+    private static final class Cached {
+        final AuthSession session;
+        final long freshUntil;
+
+        Cached(AuthSession session, long freshUntil) {
+            this.session = session;
+            this.freshUntil = freshUntil;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HomePage - Renders the home page from WEB-INF/templates/home.html without a JSP engine.
+ * The template is split at its ${name} placeholders once, when HomeServlet starts, into chunks already encoded
+ * as UTF-8; a request only copies those chunks and the escaped tokens into a buffer its thread reuses, and sends
+ * it with a Content-Length. The stylesheet is linked by its versioned URL, so browsers cache it (see
+ * StaticResourceServlet) and the page itself carries only the markup and the tokens.
+ */
+final class HomePage {
+
+    static final String TEMPLATE = "/WEB-INF/templates/home.html";
+
+    private static final String STYLESHEET = "/home.css";
+    private static final byte[] NO_ACCESS_TOKEN = ascii("<em>No access token available</em>");
+    private static final byte[] NO_ID_TOKEN = ascii("<em>No ID token available</em>");
+
+    // Buffers that grew past this, e.g. for an unusually large ID token, are not kept for the next request
+    private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+    private enum Slot { STYLESHEET, ACCESS_TOKEN, ID_TOKEN }
+
+    private final byte[][] chunks;
+    private final Slot[] slots;
+    private final byte[] stylesheetUrl;
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    private HomePage(byte[][] chunks, Slot[] slots, byte[] stylesheetUrl) {
+        this.chunks = chunks;
+        this.slots = slots;
+        this.stylesheetUrl = stylesheetUrl;
+    }
+
+    /**
+     * Reads and splits the template.
+     *
+     * @param context The ServletContext to read the template and the stylesheet from
+     * @return The page, ready to render
+     */
+    static HomePage load(ServletContext context) throws IOException {
+        String template;
+        try (InputStream in = context.getResourceAsStream(TEMPLATE)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing " + TEMPLATE);
+            }
+            template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        List<byte[]> chunks = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int from = 0;
+        int start;
+        while ((start = template.indexOf("${", from)) >= 0) {
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in " + TEMPLATE + " at " + start);
+            }
+            chunks.add(template.substring(from, start).getBytes(StandardCharsets.UTF_8));
+            slots.add(slot(template.substring(start + 2, end).trim()));
+            from = end + 1;
+        }
+        chunks.add(template.substring(from).getBytes(StandardCharsets.UTF_8));
+
+        return new HomePage(chunks.toArray(new byte[0][]), slots.toArray(new Slot[0]),
+                ascii(StaticResourceServlet.versionedUrl(context, STYLESHEET)));
+    }
+
+    /**
+     * Renders the page for the given tokens and sends it.
+     *
+     * @param accessToken The access token to show, or null
+     * @param idToken     The ID token to show, or null
+     */
+    void render(HttpServletResponse res, String accessToken, String idToken) throws IOException {
+        Buffer buffer = buffers.get();
+        buffer.reset();
+        for (int i = 0; i < slots.length; i++) {
+            buffer.writeBytes(chunks[i]);
+            switch (slots[i]) {
+                case STYLESHEET:
+                    buffer.writeBytes(stylesheetUrl);
+                    break;
+                case ACCESS_TOKEN:
+                    buffer.writeEscaped(accessToken, NO_ACCESS_TOKEN);
+                    break;
+                case ID_TOKEN:
+                    buffer.writeEscaped(idToken, NO_ID_TOKEN);
+                    break;
+            }
+        }
+        buffer.writeBytes(chunks[slots.length]);
+
+        res.setContentType("text/html;charset=UTF-8");
+        // The page shows the user's tokens
+        res.setHeader("Cache-Control", "no-store");
+        res.setContentLength(buffer.size());
+        buffer.writeTo(res.getOutputStream());
+
+        if (buffer.capacity() > MAX_RETAINED_BYTES) {
+            buffers.remove();
+        }
+    }
+
+    private static Slot slot(String name) {
+        switch (name) {
+            case "stylesheet":
+                return Slot.STYLESHEET;
+            case "accessToken":
+                return Slot.ACCESS_TOKEN;
+            case "idToken":
+                return Slot.ID_TOKEN;
+            default:
+                throw new IllegalArgumentException("Unknown placeholder ${" + name + "} in " + TEMPLATE
+                        + " (expected stylesheet, accessToken or idToken)");
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A growable byte buffer that writes HTML-escaped text; anything outside printable ASCII is written as a
+     * character reference, so no encoder is needed. Unlike ByteArrayOutputStream it takes no lock per write.
+     */
+    private static final class Buffer {
+        private byte[] bytes = new byte[8 * 1024];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+
+        void writeBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        void writeEscaped(String value, byte[] ifEmpty) {
+            if (value == null || value.isEmpty()) {
+                writeBytes(ifEmpty);
+                return;
+            }
+            // Room for the common case, where nothing needs escaping
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= 0x20 && c < 0x7f && c != '<' && c != '>' && c != '&' && c != '"' && c != '\'') {
+                    if (size == bytes.length) {
+                        ensureCapacity(1);
+                    }
+                    bytes[size++] = (byte) c;
+                } else {
+                    int codePoint = value.codePointAt(i);
+                    if (Character.isSupplementaryCodePoint(codePoint)) {
+                        i++;
+                    }
+                    writeBytes(("&#x" + Integer.toHexString(codePoint) + ";").getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+        }
+
+        private void ensureCapacity(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+    }
+}
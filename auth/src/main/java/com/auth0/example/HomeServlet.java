@@ -1,7 +1,6 @@
 package com.auth0.example;
 
-import com.auth0.SessionUtils;
-
+import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -9,29 +8,36 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
- * HomeServlet - Reads the previously saved tokens and shows them on the home.jsp resource.
+ * HomeServlet - Reads the previously saved session and shows its tokens on the home page.
  * This servlet handles requests to the protected home page after successful authentication.
+ * The page is rendered by HomePage from a template prepared when the servlet starts, so the first request
+ * after a deploy doesn't wait for a JSP compile.
  */
 public class HomeServlet extends HttpServlet {
 
-    @Override
-    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
-        // Retrieve tokens from the session
-        final String accessToken = (String) SessionUtils.get(req, "accessToken");
-        final String idToken = (String) SessionUtils.get(req, "idToken");
+    private HomePage page;
 
-        // Set the userId attribute for display in the JSP
-        if (accessToken != null) {
-            req.setAttribute("userId", accessToken);
-        } else if (idToken != null) {
-            req.setAttribute("userId", idToken);
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        try {
+            page = HomePage.load(config.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't load the home page template", e);
         }
+    }
 
-        // Set tokens as attributes for the JSP to display
-        req.setAttribute("accessToken", accessToken);
-        req.setAttribute("idToken", idToken);
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        // Auth0Filter has already loaded the session and its principal
+        final AuthSession session = (AuthSession) req.getAttribute(AuthSession.REQUEST_ATTRIBUTE);
+        final UserPrincipal principal = (UserPrincipal) req.getAttribute(UserPrincipal.REQUEST_ATTRIBUTE);
 
-        // Forward to the home.jsp view
-        req.getRequestDispatcher("/WEB-INF/jsp/home.jsp").forward(req, res);
+        // Show the tokens (null when the store keeps no tokens)
+        if (session != null && principal != null) {
+            page.render(res, session.getAccessToken(), session.getIdToken());
+        } else {
+            page.render(res, null, null);
+        }
     }
 }
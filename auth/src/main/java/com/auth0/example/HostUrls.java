@@ -0,0 +1,129 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * HostUrls - Builds a URL that depends on the scheme, host and port the request came in on, and caches it
+ * per (scheme, host, port), so the hot path is a map lookup instead of string formatting and URL encoding.
+ * <p>
+ * The Host header is chosen by the client: requests for hosts outside the allow-list get no URL at all, and
+ * the cache is bounded, so a flood of made-up Host headers can neither fill memory nor end up in a redirect.
+ */
+final class HostUrls {
+
+    // Different ports or schemes on one host name; more than this is not a real deployment
+    private static final int MAX_VARIANTS_PER_HOST = 4;
+
+    private final Function<String, String> factory;
+    private final Set<String> allowedHosts;
+    private final int maxHosts;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param factory      Builds the URL from the request's base URL, e.g. "https://example.com:8443"
+     * @param allowedHosts The lower-case host names URLs may be built for, or null to allow any host
+     * @param maxHosts     The maximum number of host names to cache
+     */
+    HostUrls(Function<String, String> factory, Set<String> allowedHosts, int maxHosts) {
+        this.factory = factory;
+        this.allowedHosts = allowedHosts;
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Creates a HostUrls configured by the com.auth0.allowedHosts (comma-separated host names, "*" for any)
+     * and com.auth0.maxCachedHosts context parameters.
+     *
+     * @param context The ServletContext to read the configuration from
+     * @param factory Builds the URL from the request's base URL
+     * @return The HostUrls
+     */
+    static HostUrls fromContext(ServletContext context, Function<String, String> factory) {
+        String hosts = context.getInitParameter("com.auth0.allowedHosts");
+        Set<String> allowedHosts = null;
+        if (hosts != null && !hosts.trim().isEmpty() && !"*".equals(hosts.trim())) {
+            allowedHosts = new HashSet<>();
+            for (String host : hosts.split(",")) {
+                if (!host.trim().isEmpty()) {
+                    allowedHosts.add(host.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return new HostUrls(factory, allowedHosts,
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.maxCachedHosts", 64));
+    }
+
+    /**
+     * Gets the URL for the request's scheme, host and port.
+     *
+     * @param request The request
+     * @return The URL, or null if the request's host is not allowed
+     */
+    String get(HttpServletRequest request) {
+        String scheme = request.getScheme();
+        String host = request.getServerName();
+        int port = request.getServerPort();
+
+        Entry head = cache.get(host);
+        for (Entry entry = head; entry != null; entry = entry.next) {
+            if (entry.port == port && entry.scheme.equals(scheme)) {
+                return entry.url;
+            }
+        }
+
+        // Only allowed hosts make it into the cache, so the check is needed on a miss only
+        String canonicalHost = host.toLowerCase(Locale.ROOT);
+        if (allowedHosts != null && !allowedHosts.contains(canonicalHost)) {
+            return null;
+        }
+
+        String url = factory.apply(baseUrl(scheme, canonicalHost, port));
+        if (head == null ? cache.size() < maxHosts : head.depth < MAX_VARIANTS_PER_HOST) {
+            cache.put(host, new Entry(scheme, port, url, head));
+        }
+        return url;
+    }
+
+    /**
+     * Formats scheme://host[:port], leaving out the default port for the scheme.
+     */
+    static String baseUrl(String scheme, String host, int port) {
+        StringBuilder url = new StringBuilder(scheme.length() + host.length() + 9)
+                .append(scheme).append("://").append(host);
+        if (("http".equals(scheme) && port != 80) || ("https".equals(scheme) && port != 443)) {
+            url.append(':').append(port);
+        }
+        return url.toString();
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One cached URL; entries for the same host name form an immutable list, newest first.
+     */
+    private static final class Entry {
+        final String scheme;
+        final int port;
+        final String url;
+        final Entry next;
+        final int depth;
+
+        Entry(String scheme, int port, String url, Entry next) {
+            this.scheme = scheme;
+            this.port = port;
+            this.url = url;
+            this.next = next;
+            this.depth = next == null ? 1 : next.depth + 1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.auth0.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * InMemoryRateLimiter - A RateLimiter for a single node. Keys are spread over independently locked stripes,
+ * so concurrent requests for different clients rarely contend, and each stripe keeps its most recently used
+ * keys only, so a flood of distinct addresses cannot grow the heap: the least recently seen client simply
+ * starts over with a fresh window.
+ */
+public class InMemoryRateLimiter implements RateLimiter {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * @param maxEntries The maximum number of keys tracked in total
+     */
+    public InMemoryRateLimiter(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        // A power of two of at least four stripes per core, but never fewer than 16 keys per stripe
+        int count = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 4 - 1, 1)) << 1;
+        while (count > 1 && maxEntries / count < 16) {
+            count >>= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(Math.max(maxEntries / count, 1));
+        }
+        this.mask = count - 1;
+    }
+
+    @Override
+    public long acquire(String key, int limit, long windowMillis) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & mask];
+        long now = System.currentTimeMillis();
+        long index = now / windowMillis;
+        long elapsed = now - index * windowMillis;
+
+        synchronized (stripe) {
+            Window window = stripe.get(key);
+            if (window == null) {
+                window = new Window(index);
+                stripe.put(key, window);
+            } else if (window.index != index) {
+                // Slide forward: the current window becomes the previous one, unless more than one has passed
+                window.previous = window.index == index - 1 ? window.current : 0;
+                window.current = 0;
+                window.index = index;
+            }
+
+            long retryAfter = retryAfterMillis(window.previous, window.current, limit, elapsed, windowMillis);
+            if (retryAfter == 0) {
+                window.current++;
+            }
+            return retryAfter;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Decides on one more request given the counts of the previous and current fixed windows.
+     *
+     * @param previous     Requests admitted in the previous window
+     * @param current      Requests admitted so far in the current window
+     * @param limit        Requests allowed per window
+     * @param elapsed      Milliseconds since the current window started
+     * @param windowMillis The window length
+     * @return 0 if the request is admitted, otherwise the milliseconds until the weighted count drops below the limit
+     */
+    static long retryAfterMillis(long previous, long current, int limit, long elapsed, long windowMillis) {
+        // previous * (window - elapsed) / window + current + 1 <= limit, kept in integers
+        if (previous * (windowMillis - elapsed) + (current + 1) * windowMillis <= limit * windowMillis) {
+            return 0;
+        }
+        if (current >= limit) {
+            // Full for this window; once it becomes the previous one, wait until enough of it has slid out
+            long slideOut = (windowMillis * (current - limit + 1) + current - 1) / current;
+            return windowMillis - elapsed + slideOut;
+        }
+        // Wait until enough of the previous window has slid out
+        long until = windowMillis - (limit - current - 1) * windowMillis / previous;
+        return Math.max(until - elapsed, 1);
+    }
+
+    private static final class Window {
+        long index;
+        long previous;
+        long current;
+
+        Window(long index) {
+            this.index = index;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Window> {
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
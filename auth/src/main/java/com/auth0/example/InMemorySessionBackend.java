@@ -0,0 +1,69 @@
+package com.auth0.example;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * InMemorySessionBackend - An in-process SessionBackend. Sessions do not survive a restart and are not shared
+ * between JVMs; it stands in for Redis in tests and local runs. Several ExternalSessionStores sharing one
+ * instance behave like several nodes sharing one Redis, including near-cache invalidation.
+ */
+public class InMemorySessionBackend implements SessionBackend {
+
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String id) {
+        Entry entry = sessions.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            sessions.remove(id, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String id, byte[] value, long ttlMillis) {
+        sessions.put(id, new Entry(value.clone(), System.currentTimeMillis() + ttlMillis));
+        notifyListeners(id);
+    }
+
+    @Override
+    public void delete(String id) {
+        sessions.remove(id);
+        notifyListeners(id);
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        sessions.clear();
+        listeners.clear();
+    }
+
+    private void notifyListeners(String id) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(id);
+        }
+    }
+
+    private static final class Entry {
+        final byte[] value;
+        final long expiresAt;
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.auth0.example;
+
+import java.math.BigDecimal;
+
+/**
+ * InventoryItem - The catalog details of a SKU, as the portal's inventory shows them (name, category, safety stock,
+ * cost, price and vendor), immutable: editing an item makes a new InventoryItem with the same ordinal.
+ * Its stock lives in the InventoryLedger, in the row of its ordinal.
+ */
+public final class InventoryItem {
+
+    private final String sku;
+    private final int ordinal;
+    private final String name;
+    private final String category;
+    private final long safetyStock;
+    private final BigDecimal cost;
+    private final BigDecimal price;
+    private final String vendor;
+
+    InventoryItem(String sku, int ordinal, String name, String category, long safetyStock, BigDecimal cost,
+                  BigDecimal price, String vendor) {
+        this.sku = sku;
+        this.ordinal = ordinal;
+        this.name = name;
+        this.category = category;
+        this.safetyStock = safetyStock;
+        this.cost = cost;
+        this.price = price;
+        this.vendor = vendor;
+    }
+
+    /**
+     * The item with the same details in another ledger row.
+     */
+    InventoryItem withOrdinal(int ordinal) {
+        return new InventoryItem(sku, ordinal, name, category, safetyStock, cost, price, vendor);
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * The item's row in the InventoryLedger; assigned when the SKU is first stored, never reused.
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * The total stock, over all locations, below which the item needs reordering.
+     */
+    public long getSafetyStock() {
+        return safetyStock;
+    }
+
+    public BigDecimal getCost() {
+        return cost;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getVendor() {
+        return vendor;
+    }
+}
@@ -0,0 +1,289 @@
+package com.auth0.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * InventoryLedger - The stock of every SKU at every location, as one primitive long per SKU and location, so
+ * millions of cells take 8 bytes each and a stock movement is a single compare-and-set, with no lock and no boxing.
+ * <ul>
+ *     <li>A SKU gets an ordinal, its row, when first stored; locations are fixed columns. The cells of a row are
+ *     next to each other, so a SKU's total over all locations reads one cache line</li>
+ *     <li>A cell packs the units on hand (high 32 bits) and the units reserved for orders (low 32 bits), so a
+ *     reservation checks what is available and takes it in the same compare-and-set</li>
+ *     <li>Rows are allocated in pages of 4096 SKUs that are never moved, so a compare-and-set never races with
+ *     the ledger growing; only the small arrays of page references are copied when they fill up</li>
+ * </ul>
+ * Items' catalog details are InventoryItems, looked up by SKU or ordinal. The ledger is in memory only.
+ * A StockListener, such as the LowStockDetector, hears of every change to a SKU's units on hand or details.
+ */
+public class InventoryLedger {
+
+    /**
+     * Kinds of stock movement; quantities are in units.
+     */
+    public enum Movement {
+        /** Goods arrived: on hand grows by the quantity */
+        RECEIVE,
+        /** Set aside for an order: reserved grows by the quantity, if that much is available */
+        RESERVE,
+        /** A reservation is cancelled: reserved shrinks by the quantity */
+        RELEASE,
+        /** Reserved goods left: on hand and reserved shrink by the quantity */
+        SHIP,
+        /** A correction, e.g. breakage: on hand changes by the quantity, which may be negative */
+        ADJUST,
+        /** A stock count: on hand becomes the quantity */
+        COUNT
+    }
+
+    /**
+     * Told, on the thread that made the change, after a SKU's units on hand or its details changed. Reservations
+     * alone don't change what is on hand, so they aren't told.
+     */
+    public interface StockListener {
+        void stockChanged(int ordinal);
+    }
+
+    /** The result of a movement that would take more than there is, or leave less on hand than is reserved */
+    public static final long INSUFFICIENT = -1;
+    /** The result of a movement that would leave a count below 0 or above Integer.MAX_VALUE */
+    public static final long OUT_OF_RANGE = -2;
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+    private static final long MAX_UNITS = Integer.MAX_VALUE;
+
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ITEMS = MethodHandles.arrayElementVarHandle(InventoryItem[].class);
+
+    private final List<String> locations;
+    private final ConcurrentMap<String, InventoryItem> bySku = new ConcurrentHashMap<>();
+
+    // Grown under the ledger's lock; a page is published before the ordinals in it are
+    private volatile long[][] cellPages = new long[16][];
+    private volatile InventoryItem[][] itemPages = new InventoryItem[16][];
+    private volatile int size;
+    private volatile StockListener listener;
+
+    /**
+     * @param locations The stock locations, e.g. warehouse and store; the columns of every row
+     */
+    public InventoryLedger(List<String> locations) {
+        if (locations.isEmpty() || locations.size() != locations.stream().distinct().count()) {
+            throw new IllegalArgumentException("Inventory locations must be a non-empty list of distinct names");
+        }
+        this.locations = Collections.unmodifiableList(new ArrayList<>(locations));
+    }
+
+    public List<String> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Sets the one listener told of stock changes from now on, or none if null.
+     */
+    public void setListener(StockListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The location's column, or -1 if there is no such location
+     */
+    public int location(String name) {
+        return locations.indexOf(name);
+    }
+
+    /**
+     * Stores a SKU's details, giving a new SKU the next row, with no stock. The listener is told of a changed
+     * SKU, not a new one: its stock is usually counted next, and it is told of that.
+     *
+     * @param item The details; its ordinal is ignored
+     * @return The stored item, with its ordinal
+     */
+    public InventoryItem put(InventoryItem item) {
+        boolean[] existed = new boolean[1];
+        InventoryItem stored = bySku.compute(item.getSku(), (sku, previous) -> {
+            existed[0] = previous != null;
+            InventoryItem next = item.withOrdinal(previous != null ? previous.getOrdinal() : addRow());
+            int ordinal = next.getOrdinal();
+            ITEMS.setRelease(itemPages[ordinal >>> PAGE_SHIFT], ordinal & (PAGE_ROWS - 1), next);
+            return next;
+        });
+        // Outside compute, which holds a lock on the SKU's bin
+        if (existed[0]) {
+            stockChanged(stored.getOrdinal());
+        }
+        return stored;
+    }
+
+    /**
+     * @return The item, or null if the SKU isn't stored
+     */
+    public InventoryItem get(String sku) {
+        return bySku.get(sku);
+    }
+
+    /**
+     * @return The item in the row, or null if the row is beyond the last
+     */
+    public InventoryItem get(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            return null;
+        }
+        return (InventoryItem) ITEMS.getAcquire(itemPages[ordinal >>> PAGE_SHIFT], ordinal & (PAGE_ROWS - 1));
+    }
+
+    /**
+     * @return The number of SKUs, which is also the next ordinal
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The packed cell of a SKU at a location; read it with onHand, reserved and available
+     */
+    public long cell(int ordinal, int location) {
+        long[] page = cellPages[ordinal >>> PAGE_SHIFT];
+        return (long) CELLS.getVolatile(page, cellIndex(ordinal, location));
+    }
+
+    /**
+     * @return The units on hand of a SKU over all locations
+     */
+    public long totalOnHand(int ordinal) {
+        long[] page = cellPages[ordinal >>> PAGE_SHIFT];
+        int first = cellIndex(ordinal, 0);
+        long total = 0;
+        for (int i = 0; i < locations.size(); i++) {
+            total += onHand((long) CELLS.getVolatile(page, first + i));
+        }
+        return total;
+    }
+
+    /**
+     * Moves stock of a SKU at a location, atomically.
+     *
+     * @param ordinal  The SKU's row
+     * @param location The location's column
+     * @param movement The kind of movement
+     * @param quantity The units; positive, except for ADJUST (non-zero) and COUNT (0 or more)
+     * @return The cell after the movement, or INSUFFICIENT or OUT_OF_RANGE if the movement was refused and the
+     * cell is unchanged
+     */
+    public long move(int ordinal, int location, Movement movement, long quantity) {
+        long[] page = cellPages[ordinal >>> PAGE_SHIFT];
+        int index = cellIndex(ordinal, location);
+        long cell = (long) CELLS.getVolatile(page, index);
+        while (true) {
+            long next = apply(cell, movement, quantity);
+            if (next < 0) {
+                return next;
+            }
+            long witness = (long) CELLS.compareAndExchange(page, index, cell, next);
+            if (witness == cell) {
+                if (onHand(next) != onHand(cell)) {
+                    stockChanged(ordinal);
+                }
+                return next;
+            }
+            cell = witness;
+        }
+    }
+
+    public static long onHand(long cell) {
+        return cell >>> 32;
+    }
+
+    public static long reserved(long cell) {
+        return cell & 0xFFFFFFFFL;
+    }
+
+    public static long available(long cell) {
+        return onHand(cell) - reserved(cell);
+    }
+
+    private static long apply(long cell, Movement movement, long quantity) {
+        long onHand = onHand(cell);
+        long reserved = reserved(cell);
+        switch (movement) {
+            case RECEIVE:
+                onHand += quantity;
+                break;
+            case RESERVE:
+                if (onHand - reserved < quantity) {
+                    return INSUFFICIENT;
+                }
+                reserved += quantity;
+                break;
+            case RELEASE:
+                if (reserved < quantity) {
+                    return INSUFFICIENT;
+                }
+                reserved -= quantity;
+                break;
+            case SHIP:
+                if (reserved < quantity) {
+                    return INSUFFICIENT;
+                }
+                onHand -= quantity;
+                reserved -= quantity;
+                break;
+            case ADJUST:
+                onHand += quantity;
+                break;
+            case COUNT:
+                onHand = quantity;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown movement: " + movement);
+        }
+        if (onHand < 0 || onHand > MAX_UNITS) {
+            return OUT_OF_RANGE;
+        }
+        // What is reserved must stay on hand; reserve and ship can't get here otherwise
+        if (onHand < reserved) {
+            return INSUFFICIENT;
+        }
+        return onHand << 32 | reserved;
+    }
+
+    private void stockChanged(int ordinal) {
+        StockListener listener = this.listener;
+        if (listener != null) {
+            listener.stockChanged(ordinal);
+        }
+    }
+
+    private int cellIndex(int ordinal, int location) {
+        return (ordinal & (PAGE_ROWS - 1)) * locations.size() + location;
+    }
+
+    /**
+     * @return The ordinal of a new, empty row
+     */
+    private synchronized int addRow() {
+        int ordinal = size;
+        if (ordinal == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The inventory ledger is full");
+        }
+        int page = ordinal >>> PAGE_SHIFT;
+        if (page == cellPages.length) {
+            cellPages = Arrays.copyOf(cellPages, page * 2);
+            itemPages = Arrays.copyOf(itemPages, page * 2);
+        }
+        if (cellPages[page] == null) {
+            cellPages[page] = new long[PAGE_ROWS * locations.size()];
+            itemPages[page] = new InventoryItem[PAGE_ROWS];
+        }
+        size = ordinal + 1;
+        return ordinal;
+    }
+}
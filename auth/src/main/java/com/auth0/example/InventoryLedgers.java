@@ -0,0 +1,74 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InventoryLedgers - Shares one InventoryLedger per application through a ServletContext attribute, with the
+ * stock locations of the com.auth0.inventory.locations context parameter (comma-separated, default
+ * "warehouse,store", the locations of the portal's inventory), and the LowStockDetector listening to it, with the
+ * hysteresis of com.auth0.inventory.lowStockHysteresisPercent (default 10).
+ */
+public final class InventoryLedgers {
+
+    private static final String ATTRIBUTE = InventoryLedger.class.getName();
+    private static final String DETECTOR_ATTRIBUTE = LowStockDetector.class.getName();
+
+    private InventoryLedgers() {}
+
+    /**
+     * Gets the application's InventoryLedger, creating it on first use.
+     *
+     * @param context The ServletContext to read the configuration from and keep the ledger in
+     * @return The shared InventoryLedger
+     */
+    public static InventoryLedger get(ServletContext context) {
+        Object ledger = context.getAttribute(ATTRIBUTE);
+        if (ledger == null) {
+            synchronized (InventoryLedgers.class) {
+                ledger = context.getAttribute(ATTRIBUTE);
+                if (ledger == null) {
+                    ledger = create(context);
+                }
+            }
+        }
+        return (InventoryLedger) ledger;
+    }
+
+    /**
+     * Gets the LowStockDetector of the application's InventoryLedger, creating both on first use.
+     *
+     * @param context The ServletContext to read the configuration from and keep the ledger in
+     * @return The shared LowStockDetector
+     */
+    public static LowStockDetector getLowStockDetector(ServletContext context) {
+        get(context);
+        return (LowStockDetector) context.getAttribute(DETECTOR_ATTRIBUTE);
+    }
+
+    private static InventoryLedger create(ServletContext context) {
+        InventoryLedger ledger = new InventoryLedger(getLocations(context));
+        LowStockDetector detector = new LowStockDetector(ledger, EventBuses.get(context),
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.inventory.lowStockHysteresisPercent", 10));
+        ledger.setListener(detector);
+        // The detector first, so whoever finds the ledger finds it too
+        context.setAttribute(DETECTOR_ATTRIBUTE, detector);
+        context.setAttribute(ATTRIBUTE, ledger);
+        return ledger;
+    }
+
+    private static List<String> getLocations(ServletContext context) {
+        String value = context.getInitParameter("com.auth0.inventory.locations");
+        if (value == null || value.trim().isEmpty()) {
+            value = "warehouse,store";
+        }
+        List<String> locations = new ArrayList<>();
+        for (String location : value.split(",")) {
+            if (!location.trim().isEmpty()) {
+                locations.add(location.trim());
+            }
+        }
+        return locations;
+    }
+}
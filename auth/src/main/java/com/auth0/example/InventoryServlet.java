@@ -0,0 +1,359 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * InventoryServlet - The ERP inventory API for logged-in portal users, on the InventoryLedger. Items have the shape
+ * of the portal's inventory (id, name, category, stock per location, safetyStock, cost, price, vendor), plus the
+ * units reserved per location:
+ * <ul>
+ *     <li>GET /portal/api/inventory - {"items": [...], "nextCursor": ...}, in the order the SKUs were added, a page
+ *     at a time (limit, default 50, at most 500; cursor from the previous page)</li>
+ *     <li>GET /portal/api/inventory/{sku} - the item</li>
+ *     <li>PUT /portal/api/inventory/{sku} - stores the item's details (201 for a new SKU); a stock object counts
+ *     the units on hand at the locations it names. Answers 409, having changed nothing, if a count is below the
+ *     units reserved at its location; a count refused by a reservation that comes in meanwhile is left out and
+ *     its location listed in notCounted</li>
+ *     <li>POST /portal/api/inventory/{sku}/movements - {"type", "location", "quantity"} moves stock: receive,
+ *     reserve, release, ship, adjust or count. Answers the location's stock, or 409 if there isn't enough</li>
+ * </ul>
+ * Every movement and count publishes inventory.updated, with the location's stock after it, on the EventBus.
+ */
+public class InventoryServlet extends HttpServlet {
+
+    private static final String MOVEMENTS = "/movements";
+
+    private InventoryLedger ledger;
+    private LowStockDetector lowStock;
+    private EventBus events;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        try {
+            ledger = InventoryLedgers.get(config.getServletContext());
+            lowStock = InventoryLedgers.getLowStockDetector(config.getServletContext());
+            events = EventBuses.get(config.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the InventoryLedger instance", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String sku = itemPath(req);
+        if (sku == null) {
+            list(req, res);
+            return;
+        }
+        InventoryItem item = sku.endsWith(MOVEMENTS) ? null : ledger.get(sku);
+        if (item == null) {
+            ApiJson.error(res, HttpServletResponse.SC_NOT_FOUND, "Item not found");
+            return;
+        }
+        try (JsonGenerator json = ApiJson.start(res, HttpServletResponse.SC_OK)) {
+            writeItem(json, item);
+        }
+    }
+
+    @Override
+    protected void doPut(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String sku = itemPath(req);
+        if (sku == null || sku.endsWith(MOVEMENTS)) {
+            res.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        JsonNode body = ApiJson.readObject(req, res);
+        if (body == null) {
+            return;
+        }
+
+        InventoryItem details;
+        try {
+            details = new InventoryItem(sku, -1, text(body, "name"), text(body, "category"),
+                    units(body.path("safetyStock"), "safetyStock", 0), decimal(body, "cost"), decimal(body, "price"),
+                    text(body, "vendor"));
+            checkStock(body.path("stock"));
+        } catch (IllegalArgumentException e) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        // Every count is checked before anything is written, so a refused PUT changes nothing
+        InventoryItem existing = ledger.get(sku);
+        boolean created = existing == null;
+        Iterator<Map.Entry<String, JsonNode>> counts = body.path("stock").fields();
+        while (!created && counts.hasNext()) {
+            Map.Entry<String, JsonNode> count = counts.next();
+            int location = ledger.location(count.getKey());
+            long reserved = InventoryLedger.reserved(ledger.cell(existing.getOrdinal(), location));
+            if (count.getValue().longValue() < reserved) {
+                ApiJson.error(res, HttpServletResponse.SC_CONFLICT, "Stock at " + count.getKey()
+                        + " can't be counted below the " + reserved + " units reserved there");
+                return;
+            }
+        }
+
+        InventoryItem item = ledger.put(details);
+        // A reservation that comes in after the check can still refuse a count; the rest are applied all the same
+        List<String> notCounted = new ArrayList<>();
+        counts = body.path("stock").fields();
+        while (counts.hasNext()) {
+            Map.Entry<String, JsonNode> count = counts.next();
+            int location = ledger.location(count.getKey());
+            long cell = ledger.move(item.getOrdinal(), location, InventoryLedger.Movement.COUNT,
+                    count.getValue().longValue());
+            if (cell < 0) {
+                notCounted.add(count.getKey());
+                continue;
+            }
+            events.publish(EventBus.Type.INVENTORY_UPDATED, item, ledger.getLocations().get(location), cell);
+        }
+        if (created) {
+            // With its stock counted, a new SKU may start out low
+            lowStock.stockChanged(item.getOrdinal());
+        }
+        try (JsonGenerator json = ApiJson.start(res, created ? HttpServletResponse.SC_CREATED : HttpServletResponse.SC_OK)) {
+            writeItem(json, item, notCounted);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String path = itemPath(req);
+        if (path == null || !path.endsWith(MOVEMENTS)) {
+            res.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        InventoryItem item = ledger.get(path.substring(0, path.length() - MOVEMENTS.length()));
+        if (item == null) {
+            ApiJson.error(res, HttpServletResponse.SC_NOT_FOUND, "Item not found");
+            return;
+        }
+        JsonNode body = ApiJson.readObject(req, res);
+        if (body == null) {
+            return;
+        }
+
+        InventoryLedger.Movement movement;
+        int location;
+        long quantity;
+        try {
+            movement = movement(body.path("type"));
+            location = ledger.location(body.path("location").asText());
+            if (!body.path("location").isTextual() || location < 0) {
+                throw new IllegalArgumentException("location must be one of " + ledger.getLocations());
+            }
+            JsonNode value = body.path("quantity");
+            if (!value.isIntegralNumber() || !value.canConvertToLong()) {
+                throw new IllegalArgumentException("quantity must be a whole number");
+            }
+            quantity = value.longValue();
+            if (movement == InventoryLedger.Movement.ADJUST ? quantity == 0
+                    : movement == InventoryLedger.Movement.COUNT ? quantity < 0 : quantity <= 0) {
+                throw new IllegalArgumentException("quantity must be positive (non-zero to adjust, 0 or more to count)");
+            }
+        } catch (IllegalArgumentException e) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        long cell = ledger.move(item.getOrdinal(), location, movement, quantity);
+        if (cell == InventoryLedger.INSUFFICIENT) {
+            ApiJson.error(res, HttpServletResponse.SC_CONFLICT, "Insufficient stock");
+            return;
+        }
+        if (cell == InventoryLedger.OUT_OF_RANGE) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, "Quantity out of range");
+            return;
+        }
+        events.publish(EventBus.Type.INVENTORY_UPDATED, item, ledger.getLocations().get(location), cell);
+        try (JsonGenerator json = ApiJson.start(res, HttpServletResponse.SC_OK)) {
+            json.writeStartObject();
+            json.writeStringField("id", item.getSku());
+            json.writeStringField("location", ledger.getLocations().get(location));
+            json.writeNumberField("onHand", InventoryLedger.onHand(cell));
+            json.writeNumberField("reserved", InventoryLedger.reserved(cell));
+            json.writeNumberField("available", InventoryLedger.available(cell));
+            json.writeEndObject();
+        }
+    }
+
+    private void list(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        int from;
+        int limit;
+        try {
+            String cursor = req.getParameter("cursor");
+            from = cursor == null || cursor.trim().isEmpty() ? 0 : parseCursor(cursor.trim());
+            limit = ApiJson.limit(req.getParameter("limit"));
+        } catch (IllegalArgumentException e) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try (JsonGenerator json = ApiJson.start(res, HttpServletResponse.SC_OK)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("items");
+            int size = ledger.size();
+            int ordinal = from;
+            for (int written = 0; ordinal < size && written < limit; ordinal++) {
+                // Null while a new SKU is being stored
+                InventoryItem item = ledger.get(ordinal);
+                if (item != null) {
+                    writeItem(json, item);
+                    written++;
+                }
+            }
+            json.writeEndArray();
+            json.writeStringField("nextCursor", ordinal < size ? Integer.toString(ordinal, 36) : null);
+            json.writeEndObject();
+        }
+    }
+
+    private void writeItem(JsonGenerator json, InventoryItem item) throws IOException {
+        writeItem(json, item, Collections.emptyList());
+    }
+
+    /**
+     * @param notCounted The locations whose count a PUT couldn't apply, written as notCounted unless empty
+     */
+    private void writeItem(JsonGenerator json, InventoryItem item, List<String> notCounted) throws IOException {
+        List<String> locations = ledger.getLocations();
+        json.writeStartObject();
+        json.writeStringField("id", item.getSku());
+        writeIfSet(json, "name", item.getName());
+        writeIfSet(json, "category", item.getCategory());
+        json.writeObjectFieldStart("stock");
+        for (int i = 0; i < locations.size(); i++) {
+            json.writeNumberField(locations.get(i), InventoryLedger.onHand(ledger.cell(item.getOrdinal(), i)));
+        }
+        json.writeEndObject();
+        json.writeObjectFieldStart("reserved");
+        for (int i = 0; i < locations.size(); i++) {
+            json.writeNumberField(locations.get(i), InventoryLedger.reserved(ledger.cell(item.getOrdinal(), i)));
+        }
+        json.writeEndObject();
+        json.writeNumberField("safetyStock", item.getSafetyStock());
+        if (item.getCost() != null) {
+            json.writeFieldName("cost");
+            json.writeNumber(item.getCost().toPlainString());
+        }
+        if (item.getPrice() != null) {
+            json.writeFieldName("price");
+            json.writeNumber(item.getPrice().toPlainString());
+        }
+        writeIfSet(json, "vendor", item.getVendor());
+        if (!notCounted.isEmpty()) {
+            json.writeArrayFieldStart("notCounted");
+            for (String location : notCounted) {
+                json.writeString(location);
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeIfSet(JsonGenerator json, String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    private void checkStock(JsonNode stock) {
+        if (stock.isMissingNode()) {
+            return;
+        }
+        if (!stock.isObject()) {
+            throw new IllegalArgumentException("stock must be an object of units per location");
+        }
+        Iterator<Map.Entry<String, JsonNode>> counts = stock.fields();
+        while (counts.hasNext()) {
+            Map.Entry<String, JsonNode> count = counts.next();
+            if (ledger.location(count.getKey()) < 0) {
+                throw new IllegalArgumentException("Unknown location " + count.getKey() + ", expected one of "
+                        + ledger.getLocations());
+            }
+            units(count.getValue(), "stock." + count.getKey(), 0);
+        }
+    }
+
+    private static InventoryLedger.Movement movement(JsonNode type) {
+        if (type.isTextual()) {
+            try {
+                return InventoryLedger.Movement.valueOf(type.asText().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException("type must be receive, reserve, release, ship, adjust or count");
+    }
+
+    private static String text(JsonNode body, String name) {
+        JsonNode value = body.path(name);
+        if (value.isMissingNode() || value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return value.asText();
+    }
+
+    private static BigDecimal decimal(JsonNode body, String name) {
+        JsonNode value = body.path(name);
+        if (value.isMissingNode() || value.isNull()) {
+            return null;
+        }
+        if (!value.isNumber()) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        // As JavaScript prints it: 15.00 is 15
+        BigDecimal decimal = value.decimalValue();
+        return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+    }
+
+    private static long units(JsonNode value, String name, long defaultValue) {
+        if (value.isMissingNode() || value.isNull()) {
+            return defaultValue;
+        }
+        if (!value.isIntegralNumber() || !value.canConvertToInt() || value.intValue() < 0) {
+            throw new IllegalArgumentException(name + " must be a whole number of units, 0 or more");
+        }
+        return value.longValue();
+    }
+
+    /**
+     * @return The SKU, or the SKU and /movements, after /portal/api/inventory; null for the collection
+     */
+    private static String itemPath(HttpServletRequest req) {
+        String path = req.getPathInfo();
+        return path == null || path.length() <= 1 ? null : path.substring(1);
+    }
+
+    private static int parseCursor(String cursor) {
+        try {
+            int ordinal = Integer.parseInt(cursor, 36);
+            if (ordinal < 0) {
+                throw new NumberFormatException();
+            }
+            return ordinal;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
@@ -13,16 +13,26 @@ import java.io.IOException;
  * LoginServlet - Invoked when the user attempts to log in.
  * The servlet uses the client_id and domain parameters to create a valid Authorize URL
  * and redirects the user there.
+ * The callback URL is cached per scheme, host and port, and only built for the hosts listed in
+ * com.auth0.allowedHosts.
  */
 public class LoginServlet extends HttpServlet {
 
     private AuthenticationController authenticationController;
+    private HostUrls callbackUrls;
+    private String scope;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
         try {
             authenticationController = AuthenticationControllerProvider.getInstance(config);
+            callbackUrls = HostUrls.fromContext(config.getServletContext(), baseUrl -> baseUrl + "/callback");
+            scope = config.getServletContext().getInitParameter("com.auth0.scope");
+            if (scope == null || scope.trim().isEmpty()) {
+                // offline_access asks for a refresh token, so the filter can renew sessions without a new login
+                scope = "openid profile email offline_access";
+            }
         } catch (Exception e) {
             throw new ServletException("Couldn't create the AuthenticationController instance", e);
         }
@@ -30,17 +40,21 @@ public class LoginServlet extends HttpServlet {
 
     @Override
     protected void doGet(final HttpServletRequest req, final HttpServletResponse res) throws ServletException, IOException {
-        // Build the callback URL dynamically
-        String redirectUri = req.getScheme() + "://" + req.getServerName();
-        if ((req.getScheme().equals("http") && req.getServerPort() != 80) ||
-            (req.getScheme().equals("https") && req.getServerPort() != 443)) {
-            redirectUri += ":" + req.getServerPort();
+        long start = System.nanoTime();
+
+        // Look up the callback URL for this scheme, host and port; unknown hosts never reach Auth0
+        String redirectUri = callbackUrls.get(req);
+        if (redirectUri == null) {
+            Metrics.LOGIN_UNKNOWN_HOST.increment();
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown host");
+            return;
         }
-        redirectUri += "/callback";
 
         // Build the authorization URL and redirect the user
         String authorizeUrl = authenticationController.buildAuthorizeUrl(req, res, redirectUri)
+                .withScope(scope)
                 .build();
         res.sendRedirect(authorizeUrl);
+        Metrics.LOGIN.recordSince(start);
     }
 }
@@ -11,44 +11,53 @@ import java.io.IOException;
  * LogoutServlet - Invoked when the user clicks the logout link.
  * The servlet invalidates the user session and redirects the user to Auth0's logout endpoint,
  * which then redirects back to the login page.
+ * Logout never creates a session, and the logout URL is built once per host, so bot traffic hitting /logout
+ * costs neither session table entries nor string formatting.
  */
 public class LogoutServlet extends HttpServlet {
 
-    private String domain;
-    private String clientId;
+    private SessionStore sessionStore;
+    private PrincipalCache principalCache;
+    private HostUrls logoutUrls;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
-        domain = AuthenticationControllerProvider.getDomain(config);
-        clientId = AuthenticationControllerProvider.getClientId(config);
+        String domain = AuthenticationControllerProvider.getDomain(config);
+        String clientId = AuthenticationControllerProvider.getClientId(config);
+        sessionStore = SessionStores.get(config.getServletContext());
+        principalCache = AuthenticationControllerProvider.getPrincipalCache(config.getServletContext());
+
+        // Build the constant part of the Auth0 logout URL once
+        // Format: https://{YOUR-DOMAIN}/v2/logout?client_id={YOUR-CLIENT-ID}&returnTo={RETURN-URL}
+        String logoutUrlPrefix = "https://" + domain + "/v2/logout?client_id=" + HostUrls.encode(clientId) + "&returnTo=";
+
+        // The return URL (where to redirect after logout) depends on the host; it is encoded once per host
+        logoutUrls = HostUrls.fromContext(config.getServletContext(),
+                baseUrl -> logoutUrlPrefix + HostUrls.encode(baseUrl + "/login"));
     }
 
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
-        // Invalidate the session if it exists
-        if (request.getSession() != null) {
-            request.getSession().invalidate();
-        }
+        long start = System.nanoTime();
 
-        // Build the return URL (where to redirect after logout)
-        String returnUrl = String.format("%s://%s", request.getScheme(), request.getServerName());
-        if ((request.getScheme().equals("http") && request.getServerPort() != 80) ||
-            (request.getScheme().equals("https") && request.getServerPort() != 443)) {
-            returnUrl += ":" + request.getServerPort();
+        // Invalidate the session if it exists, wherever it is stored; an anonymous request never creates one
+        AuthSession session = sessionStore.load(request);
+        if (session != null) {
+            principalCache.remove(session.getId());
+        }
+        sessionStore.invalidate(request, response);
+
+        // Never send the user back to a host we don't serve
+        String logoutUrl = logoutUrls.get(request);
+        if (logoutUrl == null) {
+            Metrics.LOGOUT_UNKNOWN_HOST.increment();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown host");
+            return;
         }
-        returnUrl += "/login";
-
-        // Build Auth0 logout URL
-        // Format: https://{YOUR-DOMAIN}/v2/logout?client_id={YOUR-CLIENT-ID}&returnTo={RETURN-URL}
-        String logoutUrl = String.format(
-                "https://%s/v2/logout?client_id=%s&returnTo=%s",
-                domain,
-                clientId,
-                returnUrl
-        );
 
         // Redirect to Auth0 logout endpoint
         response.sendRedirect(logoutUrl);
+        Metrics.LOGOUT.recordSince(start);
     }
 }
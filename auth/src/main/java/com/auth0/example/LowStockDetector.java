@@ -0,0 +1,310 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * LowStockDetector - Keeps the SKUs whose total units on hand are at or below their safety stock, worst first, up
+ * to date as the InventoryLedger changes, instead of checking every item on every request as the portal's
+ * check-levels does. It is the ledger's StockListener:
+ * <ul>
+ *     <li>The low SKUs are an indexed binary heap on deficit (safety stock minus units on hand), with each SKU's
+ *     slot kept by ordinal, so a change to one SKU moves only that SKU: O(log n) in the number of low SKUs</li>
+ *     <li>A SKU is low, and in the heap, while its units on hand are at or below its safety stock. Dropping there
+ *     publishes inventory.low, and the SKU stays alerted until its stock rises more than the hysteresis above
+ *     the safety stock, so stock hovering around the safety stock doesn't publish an event on every sale. The
+ *     hysteresis only gates the event: a SKU back above its safety stock leaves the heap at once</li>
+ * </ul>
+ * Changes to the heap are applied one at a time, under the detector's lock, each reading the SKU's stock afresh,
+ * so the heap ends up agreeing with the ledger whatever order concurrent changes are told in. The usual change,
+ * to a SKU that is above its safety stock and neither in the heap nor alerted, doesn't take the lock: a per-SKU
+ * flag says whether the detector tracks the SKU, and it is set before the locked path reads the stock, so either
+ * the locked path sees the change or the change sees the flag and takes the lock too.
+ */
+public class LowStockDetector implements InventoryLedger.StockListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockDetector.class);
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final VarHandle FLAGS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final InventoryLedger ledger;
+    private final EventBus events;
+    private final int hysteresisPercent;
+
+    // The heap: the ordinal and deficit of the SKU in each slot, the largest deficit in slot 0
+    private int[] heap = new int[64];
+    private long[] deficits = new long[64];
+    private int count;
+    // The heap slot of each ordinal, or -1 if the SKU isn't low
+    private int[] slots = new int[0];
+    // The ordinals that published inventory.low and haven't yet risen past the hysteresis
+    private final BitSet alerted = new BitSet();
+    // Per ordinal, in pages that are never moved: 1 while the SKU is in the heap, alerted or being updated. Pages
+    // are added under the lock by copying the outer array, so a new page is published by the volatile write
+    private volatile byte[][] tracked = new byte[0][];
+
+    /**
+     * @param ledger            The ledger whose SKUs to watch; set the detector as its listener
+     * @param events            Where to publish inventory.low
+     * @param hysteresisPercent How far above its safety stock, in percent of it, a SKU's stock must rise before
+     *                          dropping back to it publishes inventory.low again; at least one unit for a non-zero
+     *                          percentage
+     */
+    public LowStockDetector(InventoryLedger ledger, EventBus events, int hysteresisPercent) {
+        if (hysteresisPercent < 0 || hysteresisPercent > 100) {
+            throw new IllegalArgumentException("The low stock hysteresis must be 0 to 100 percent");
+        }
+        this.ledger = ledger;
+        this.events = events;
+        this.hysteresisPercent = hysteresisPercent;
+    }
+
+    /**
+     * A low SKU, as the portal's check-levels lists it.
+     */
+    public static final class Shortfall {
+        private final InventoryItem item;
+        private final long currentStock;
+
+        Shortfall(InventoryItem item, long currentStock) {
+            this.item = item;
+            this.currentStock = currentStock;
+        }
+
+        public InventoryItem getItem() {
+            return item;
+        }
+
+        /**
+         * The units on hand over all locations.
+         */
+        public long getCurrentStock() {
+            return currentStock;
+        }
+
+        /**
+         * The units short of the safety stock; 0 for a SKU exactly at it.
+         */
+        public long getDeficit() {
+            return item.getSafetyStock() - currentStock;
+        }
+    }
+
+    @Override
+    public void stockChanged(int ordinal) {
+        InventoryItem current = ledger.get(ordinal);
+        if (current == null) {
+            return;
+        }
+        // Well stocked and not tracked: nothing in the heap or the alerts to change
+        if (ledger.totalOnHand(ordinal) > current.getSafetyStock() && !isTracked(ordinal)) {
+            return;
+        }
+
+        Shortfall crossed;
+        synchronized (this) {
+            // Flagged before the stock is read; see the class comment
+            setTracked(ordinal, true);
+            InventoryItem item = ledger.get(ordinal);
+            long stock = ledger.totalOnHand(ordinal);
+            crossed = update(ordinal, item.getSafetyStock(), stock) ? new Shortfall(item, stock) : null;
+            if (slotOf(ordinal) < 0 && !alerted.get(ordinal)) {
+                setTracked(ordinal, false);
+            }
+        }
+        // Outside the lock, so logging doesn't hold up other SKUs' changes
+        if (crossed != null) {
+            log.info("{} is low: {} on hand, safety stock {}", crossed.getItem().getSku(), crossed.getCurrentStock(),
+                    crossed.getItem().getSafetyStock());
+            events.publish(EventBus.Type.INVENTORY_LOW, crossed.getItem(), null, crossed.getCurrentStock());
+        }
+    }
+
+    /**
+     * @return The number of low SKUs
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @param limit The most SKUs to return
+     * @return The low SKUs with the largest deficits, largest first, in O(limit log limit)
+     */
+    public synchronized List<Shortfall> worst(int limit) {
+        if (count == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // Slots to visit, largest deficit first: the root, then the children of each slot taken
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(
+                (a, b) -> Long.compare(deficits[b], deficits[a]));
+        frontier.add(0);
+        List<Shortfall> worst = new ArrayList<>(Math.min(limit, count));
+        while (!frontier.isEmpty() && worst.size() < limit) {
+            int slot = frontier.poll();
+            int ordinal = heap[slot];
+            worst.add(new Shortfall(ledger.get(ordinal), ledger.totalOnHand(ordinal)));
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < count; child++) {
+                frontier.add(child);
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Writes a low SKU as check-levels lists it and inventory.low carries it: {"sku", "name", "currentStock",
+     * "safetyStock", "deficit"}.
+     */
+    static void writeShortfall(JsonGenerator json, InventoryItem item, long currentStock) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("sku", item.getSku());
+        json.writeStringField("name", item.getName());
+        json.writeNumberField("currentStock", currentStock);
+        json.writeNumberField("safetyStock", item.getSafetyStock());
+        json.writeNumberField("deficit", item.getSafetyStock() - currentStock);
+        json.writeEndObject();
+    }
+
+    private boolean isTracked(int ordinal) {
+        byte[][] pages = tracked;
+        int page = ordinal >>> PAGE_SHIFT;
+        return page < pages.length && (byte) FLAGS.getVolatile(pages[page], ordinal & (PAGE_SIZE - 1)) != 0;
+    }
+
+    private void setTracked(int ordinal, boolean value) {
+        byte[][] pages = tracked;
+        int page = ordinal >>> PAGE_SHIFT;
+        if (page >= pages.length) {
+            byte[][] grown = Arrays.copyOf(pages, page + 1);
+            for (int i = pages.length; i < grown.length; i++) {
+                grown[i] = new byte[PAGE_SIZE];
+            }
+            tracked = grown;
+            pages = grown;
+        }
+        FLAGS.setVolatile(pages[page], ordinal & (PAGE_SIZE - 1), (byte) (value ? 1 : 0));
+    }
+
+    private int slotOf(int ordinal) {
+        return ordinal < slots.length ? slots[ordinal] : -1;
+    }
+
+    /**
+     * Applies a SKU's current stock to the heap and its alert.
+     *
+     * @return Whether the SKU just became low, and inventory.low is due
+     */
+    private boolean update(int ordinal, long safetyStock, long stock) {
+        long deficit = safetyStock - stock;
+        int slot = slotOf(ordinal);
+        if (deficit < 0) {
+            if (slot >= 0) {
+                remove(slot);
+            }
+            // Rounded up, so any hysteresis is at least a unit
+            if (-deficit > (safetyStock * hysteresisPercent + 99) / 100) {
+                alerted.clear(ordinal);
+            }
+            return false;
+        }
+        if (slot < 0) {
+            insert(ordinal, deficit);
+        } else if (deficit > deficits[slot]) {
+            deficits[slot] = deficit;
+            siftUp(slot);
+        } else if (deficit < deficits[slot]) {
+            deficits[slot] = deficit;
+            siftDown(slot);
+        }
+        if (alerted.get(ordinal)) {
+            return false;
+        }
+        alerted.set(ordinal);
+        return true;
+    }
+
+    private void insert(int ordinal, long deficit) {
+        if (ordinal >= slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(ordinal + 1, Math.max(64, length * 2)));
+            Arrays.fill(slots, length, slots.length, -1);
+        }
+        if (count == heap.length) {
+            heap = Arrays.copyOf(heap, count * 2);
+            deficits = Arrays.copyOf(deficits, count * 2);
+        }
+        heap[count] = ordinal;
+        deficits[count] = deficit;
+        slots[ordinal] = count;
+        siftUp(count++);
+    }
+
+    private void remove(int slot) {
+        slots[heap[slot]] = -1;
+        int last = --count;
+        if (slot == last) {
+            return;
+        }
+        // The last SKU takes the slot, then moves whichever way its deficit says
+        long removed = deficits[slot];
+        place(heap[last], deficits[last], slot);
+        if (deficits[slot] > removed) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    private void siftUp(int slot) {
+        int ordinal = heap[slot];
+        long deficit = deficits[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (deficits[parent] >= deficit) {
+                break;
+            }
+            place(heap[parent], deficits[parent], slot);
+            slot = parent;
+        }
+        place(ordinal, deficit, slot);
+    }
+
+    private void siftDown(int slot) {
+        int ordinal = heap[slot];
+        long deficit = deficits[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && deficits[child + 1] > deficits[child]) {
+                child++;
+            }
+            if (deficits[child] <= deficit) {
+                break;
+            }
+            place(heap[child], deficits[child], slot);
+            slot = child;
+        }
+        place(ordinal, deficit, slot);
+    }
+
+    private void place(int ordinal, long deficit, int slot) {
+        heap[slot] = ordinal;
+        deficits[slot] = deficit;
+        slots[ordinal] = slot;
+    }
+}
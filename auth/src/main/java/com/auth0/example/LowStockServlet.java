@@ -0,0 +1,60 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * LowStockServlet - GET /portal/api/inventory/check-levels for logged-in portal users: the SKUs at or below their
+ * safety stock, as the portal's check-levels answers, {"checked", "lowStockCount", "lowStockItems": [{"sku", "name",
+ * "currentStock", "safetyStock", "deficit"}]}, largest deficit first (limit, default 50, at most 500).
+ * The LowStockDetector keeps the list as stock moves, so this reads it rather than checking every item.
+ */
+public class LowStockServlet extends HttpServlet {
+
+    private InventoryLedger ledger;
+    private LowStockDetector lowStock;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        try {
+            ledger = InventoryLedgers.get(config.getServletContext());
+            lowStock = InventoryLedgers.getLowStockDetector(config.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the LowStockDetector instance", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        int limit;
+        try {
+            limit = ApiJson.limit(req.getParameter("limit"));
+        } catch (IllegalArgumentException e) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        int checked = ledger.size();
+        int count = lowStock.size();
+        List<LowStockDetector.Shortfall> worst = lowStock.worst(limit);
+        try (JsonGenerator json = ApiJson.start(res, HttpServletResponse.SC_OK)) {
+            json.writeStartObject();
+            json.writeNumberField("checked", checked);
+            json.writeNumberField("lowStockCount", count);
+            json.writeArrayFieldStart("lowStockItems");
+            for (LowStockDetector.Shortfall shortfall : worst) {
+                LowStockDetector.writeShortfall(json, shortfall.getItem(), shortfall.getCurrentStock());
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
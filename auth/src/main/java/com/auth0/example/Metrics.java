@@ -0,0 +1,289 @@
+package com.auth0.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics - Latency histograms and counters for the authentication endpoints, exported in the Prometheus text
+ * format by MetricsServlet.
+ * Recording is lock-free and allocation-free: every histogram bucket and counter is a LongAdder, so concurrent
+ * requests do not contend on a shared value. Latencies are exported as histograms rather than precomputed
+ * quantiles, so p50/p99 can be aggregated across pods with histogram_quantile().
+ */
+public final class Metrics {
+
+    private static final List<Metric> REGISTRY = new ArrayList<>();
+
+    public static final Histogram FILTER = histogram("auth_filter_duration_seconds",
+            "Time spent in Auth0Filter before the protected resource runs.");
+    public static final Counter FILTER_AUTHENTICATED = counter("auth_filter_requests_total",
+            "Requests to protected paths by outcome.", "outcome", "authenticated");
+    public static final Counter FILTER_NO_SESSION = counter("auth_filter_requests_total",
+            "Requests to protected paths by outcome.", "outcome", "no_session");
+    public static final Counter FILTER_INVALID_TOKEN = counter("auth_filter_requests_total",
+            "Requests to protected paths by outcome.", "outcome", "invalid_token");
+    public static final Counter FILTER_FORBIDDEN = counter("auth_filter_requests_total",
+            "Requests to protected paths by outcome.", "outcome", "forbidden");
+
+    public static final Counter PRINCIPAL_CACHE_HIT = counter("auth_principal_cache_requests_total",
+            "Principal cache lookups by result.", "result", "hit");
+    public static final Counter PRINCIPAL_CACHE_MISS = counter("auth_principal_cache_requests_total",
+            "Principal cache lookups by result.", "result", "miss");
+    public static final Counter PRINCIPAL_CACHE_EXPIRED = counter("auth_principal_cache_evictions_total",
+            "Principals removed from the cache by cause.", "cause", "expired");
+    public static final Counter PRINCIPAL_CACHE_CAPACITY = counter("auth_principal_cache_evictions_total",
+            "Principals removed from the cache by cause.", "cause", "capacity");
+    public static final Counter PRINCIPAL_CACHE_LOGOUT = counter("auth_principal_cache_evictions_total",
+            "Principals removed from the cache by cause.", "cause", "logout");
+
+    public static final Histogram BEARER = histogram("auth_bearer_duration_seconds",
+            "Time spent in BearerTokenFilter before the API resource runs.");
+    public static final Counter BEARER_AUTHENTICATED = counter("auth_bearer_requests_total",
+            "API requests by outcome.", "outcome", "authenticated");
+    public static final Counter BEARER_MISSING_TOKEN = counter("auth_bearer_requests_total",
+            "API requests by outcome.", "outcome", "missing_token");
+    public static final Counter BEARER_INVALID_TOKEN = counter("auth_bearer_requests_total",
+            "API requests by outcome.", "outcome", "invalid_token");
+    public static final Counter BEARER_FORBIDDEN = counter("auth_bearer_requests_total",
+            "API requests by outcome.", "outcome", "forbidden");
+
+    public static final Histogram LOGIN = histogram("auth_login_duration_seconds",
+            "Time to build the authorize URL and redirect to Auth0.");
+    public static final Counter LOGIN_UNKNOWN_HOST = counter("auth_host_rejections_total",
+            "Login and logout requests rejected for an unknown Host header.", "endpoint", "login");
+    public static final Counter LOGOUT_UNKNOWN_HOST = counter("auth_host_rejections_total",
+            "Login and logout requests rejected for an unknown Host header.", "endpoint", "logout");
+
+    public static final Histogram CALLBACK = histogram("auth_callback_duration_seconds",
+            "Time from the arrival of a login callback to the response, including waiting for an exchange slot.");
+    public static final Histogram CODE_EXCHANGE = histogram("auth_code_exchange_duration_seconds",
+            "Time spent exchanging the authorization code for tokens with Auth0, including its ID token checks.");
+    public static final Histogram TOKEN_VERIFICATION = histogram("auth_token_verification_duration_seconds",
+            "Time spent verifying the ID token of a new login.");
+    public static final Counter CALLBACK_SUCCESS = counter("auth_callbacks_total",
+            "Login callbacks by outcome.", "outcome", "success");
+    public static final Counter CALLBACK_FAILURE = counter("auth_callbacks_total",
+            "Login callbacks by outcome.", "outcome", "failure");
+    public static final Counter CALLBACK_ERROR = counter("auth_callbacks_total",
+            "Login callbacks by outcome.", "outcome", "error");
+    public static final Counter CALLBACK_REJECTED = counter("auth_callbacks_total",
+            "Login callbacks by outcome.", "outcome", "rejected");
+    public static final Counter CALLBACK_TIMEOUT = counter("auth_callbacks_total",
+            "Login callbacks by outcome.", "outcome", "timeout");
+
+    public static final Histogram TOKEN_REFRESH = histogram("auth_token_refresh_duration_seconds",
+            "Time spent renewing a session's tokens with its refresh token.");
+    public static final Counter REFRESH_SUCCESS = counter("auth_token_refreshes_total",
+            "Token refreshes by outcome; joined requests shared a refresh another request made.", "outcome", "success");
+    public static final Counter REFRESH_FAILURE = counter("auth_token_refreshes_total",
+            "Token refreshes by outcome; joined requests shared a refresh another request made.", "outcome", "failure");
+    public static final Counter REFRESH_JOINED = counter("auth_token_refreshes_total",
+            "Token refreshes by outcome; joined requests shared a refresh another request made.", "outcome", "joined");
+    public static final Counter REFRESH_REJECTED = counter("auth_token_refreshes_total",
+            "Token refreshes by outcome; joined requests shared a refresh another request made.", "outcome", "rejected");
+    public static final Counter REFRESH_TIMEOUT = counter("auth_token_refreshes_total",
+            "Token refreshes by outcome; joined requests shared a refresh another request made.", "outcome", "timeout");
+
+    public static final Counter RATE_LIMITED_IP = counter("auth_rate_limit_requests_total",
+            "Login and callback requests the rate limiter did not simply admit, by outcome.", "outcome", "limited_ip");
+    public static final Counter RATE_LIMITED_SESSION = counter("auth_rate_limit_requests_total",
+            "Login and callback requests the rate limiter did not simply admit, by outcome.", "outcome", "limited_session");
+    public static final Counter RATE_LIMIT_ERROR = counter("auth_rate_limit_requests_total",
+            "Login and callback requests the rate limiter did not simply admit, by outcome.", "outcome", "backend_error");
+
+    public static final Histogram LOGOUT = histogram("auth_logout_duration_seconds",
+            "Time to invalidate the session and redirect to Auth0.");
+
+    public static final Histogram ORDER_JOURNAL_FORCE = histogram("orders_journal_force_duration_seconds",
+            "Time to force one batch of order journal writes to disk.");
+    public static final Counter ORDER_JOURNAL_FORCED = counter("orders_journal_writes_total",
+            "Durable order writes; batched writes reached the disk with another write's force.", "commit", "forced");
+    public static final Counter ORDER_JOURNAL_BATCHED = counter("orders_journal_writes_total",
+            "Durable order writes; batched writes reached the disk with another write's force.", "commit", "batched");
+
+    public static final Histogram WEBHOOK_DELIVERY = histogram("webhook_delivery_duration_seconds",
+            "Time from sending a webhook request to its response or failure.");
+    public static final Counter WEBHOOK_DELIVERED = counter("webhook_deliveries_total",
+            "Webhook delivery attempts by result; dropped deliveries found their endpoint's queue full.", "result", "delivered");
+    public static final Counter WEBHOOK_RETRIED = counter("webhook_deliveries_total",
+            "Webhook delivery attempts by result; dropped deliveries found their endpoint's queue full.", "result", "retried");
+    public static final Counter WEBHOOK_FAILED = counter("webhook_deliveries_total",
+            "Webhook delivery attempts by result; dropped deliveries found their endpoint's queue full.", "result", "failed");
+    public static final Counter WEBHOOK_DROPPED = counter("webhook_deliveries_total",
+            "Webhook delivery attempts by result; dropped deliveries found their endpoint's queue full.", "result", "dropped");
+
+    // By EventBus.Type ordinal
+    public static final Counter[] EVENTS = eventCounters();
+    public static final Histogram EVENT_LAG = histogram("erp_event_lag_seconds",
+            "Time from publishing a domain event to the metrics consumer handling it.");
+    public static final Counter EVENTS_LOST_WEBHOOKS = counter("erp_events_lost_total",
+            "Domain events a consumer lost by falling a whole event bus behind.", "consumer", "webhooks");
+    public static final Counter EVENTS_LOST_METRICS = counter("erp_events_lost_total",
+            "Domain events a consumer lost by falling a whole event bus behind.", "consumer", "metrics");
+    public static final Counter EVENTS_LOST_AUDIT = counter("erp_events_lost_total",
+            "Domain events a consumer lost by falling a whole event bus behind.", "consumer", "audit");
+
+    private Metrics() {}
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @param out The writer to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeTo(Writer out) throws IOException {
+        // A family's HELP and TYPE are written once, before all its series, wherever they were registered
+        Map<String, List<Metric>> families = new LinkedHashMap<>();
+        for (Metric metric : REGISTRY) {
+            families.computeIfAbsent(metric.name, name -> new ArrayList<>()).add(metric);
+        }
+        for (List<Metric> family : families.values()) {
+            Metric first = family.get(0);
+            out.write("# HELP " + first.name + " " + first.help + "\n");
+            out.write("# TYPE " + first.name + " " + first.type() + "\n");
+            for (Metric metric : family) {
+                metric.writeTo(out);
+            }
+        }
+    }
+
+    private static Histogram histogram(String name, String help) {
+        Histogram histogram = new Histogram(name, help);
+        REGISTRY.add(histogram);
+        return histogram;
+    }
+
+    private static Counter counter(String name, String help, String labelName, String labelValue) {
+        Counter counter = new Counter(name, help, labelName + "=\"" + labelValue + "\"");
+        REGISTRY.add(counter);
+        return counter;
+    }
+
+    private static Counter[] eventCounters() {
+        EventBus.Type[] types = EventBus.Type.values();
+        Counter[] counters = new Counter[types.length];
+        for (EventBus.Type type : types) {
+            counters[type.ordinal()] = counter("erp_events_total", "Domain events published, by type.",
+                    "event", type.getName());
+        }
+        return counters;
+    }
+
+    private abstract static class Metric {
+        final String name;
+        final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        abstract String type();
+
+        abstract void writeTo(Writer out) throws IOException;
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter extends Metric {
+        private final String labels;
+        private final LongAdder count = new LongAdder();
+
+        Counter(String name, String help, String labels) {
+            super(name, help);
+            this.labels = labels;
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void writeTo(Writer out) throws IOException {
+            out.write(name + "{" + labels + "} " + count.sum() + "\n");
+        }
+    }
+
+    /**
+     * A latency histogram with fixed buckets from 50 microseconds to 30 seconds.
+     */
+    public static final class Histogram extends Metric {
+        private static final String[] BOUNDS = {
+                "0.00005", "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01",
+                "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10", "30"};
+        private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+        static {
+            for (int i = 0; i < BOUNDS.length; i++) {
+                BOUNDS_NANOS[i] = Math.round(Double.parseDouble(BOUNDS[i]) * 1e9);
+            }
+        }
+
+        // One more than the bounds: the last bucket holds everything above 30 seconds
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram(String name, String help) {
+            super(name, help);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records the time elapsed since a System.nanoTime() reading.
+         *
+         * @param startNanos The System.nanoTime() value at the start of the timed operation
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos The duration in nanoseconds
+         */
+        public void record(long nanos) {
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sumNanos.add(nanos);
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void writeTo(Writer out) throws IOException {
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += buckets[i].sum();
+                out.write(name + "_bucket{le=\"" + BOUNDS[i] + "\"} " + cumulative + "\n");
+            }
+            cumulative += buckets[BOUNDS.length].sum();
+            out.write(name + "_bucket{le=\"+Inf\"} " + cumulative + "\n");
+            out.write(name + "_sum " + sumNanos.sum() / 1e9 + "\n");
+            out.write(name + "_count " + cumulative + "\n");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.auth0.example;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MetricsAccessFilter - Keeps /metrics to the scrapers: a request gets through if it comes from an address in
+ * com.auth0.metrics.allowedAddresses (comma-separated addresses or CIDR ranges, loopback only by default), or
+ * carries "Authorization: Bearer" with the com.auth0.metrics.token. Anything else gets a 403.
+ * <p>
+ * The remote address is the one the container reports; behind a proxy that rewrites it, use the token.
+ */
+public class MetricsAccessFilter implements Filter {
+
+    private static final String DEFAULT_ALLOWED_ADDRESSES = "127.0.0.1,::1";
+    private static final String BEARER = "Bearer ";
+
+    private List<Range> allowed;
+    private byte[] token;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        try {
+            ServletContext context = filterConfig.getServletContext();
+            String addresses = context.getInitParameter("com.auth0.metrics.allowedAddresses");
+            allowed = parseRanges(addresses == null ? DEFAULT_ALLOWED_ADDRESSES : addresses);
+            String tokenParam = context.getInitParameter("com.auth0.metrics.token");
+            token = tokenParam == null || tokenParam.trim().isEmpty()
+                    ? null : tokenParam.trim().getBytes(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the MetricsAccessFilter instance", e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        if (hasToken(req) || isAllowed(req.getRemoteAddr())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletResponse res = (HttpServletResponse) response;
+        res.setHeader("Cache-Control", "no-store");
+        res.sendError(HttpServletResponse.SC_FORBIDDEN);
+    }
+
+    private boolean hasToken(HttpServletRequest req) {
+        String authorization = req.getHeader("Authorization");
+        if (token == null || authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return false;
+        }
+        // Constant time, so the token cannot be guessed byte by byte
+        return MessageDigest.isEqual(token, authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean isAllowed(String remoteAddr) {
+        byte[] address = parseAddress(remoteAddr);
+        if (address == null) {
+            return false;
+        }
+        for (Range range : allowed) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses "10.0.0.0/8, 192.168.1.7, ::1" style lists. Only address literals are accepted, so configuration
+     * never triggers a DNS lookup.
+     */
+    static List<Range> parseRanges(String value) {
+        List<Range> ranges = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int slash = entry.indexOf('/');
+            byte[] network = parseAddress(slash < 0 ? entry : entry.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("com.auth0.metrics.allowedAddresses has an invalid address: " + entry);
+            }
+            int prefix;
+            try {
+                prefix = slash < 0 ? network.length * 8 : Integer.parseInt(entry.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("com.auth0.metrics.allowedAddresses has an invalid prefix: " + entry);
+            }
+            if (prefix < 0 || prefix > network.length * 8) {
+                throw new IllegalArgumentException("com.auth0.metrics.allowedAddresses has an invalid prefix: " + entry);
+            }
+            ranges.add(new Range(network, prefix));
+        }
+        return ranges;
+    }
+
+    /**
+     * @return The address bytes of an IPv4 or IPv6 literal, or null if it is not one
+     */
+    static byte[] parseAddress(String literal) {
+        if (literal == null) {
+            return null;
+        }
+        String address = literal.startsWith("[") && literal.endsWith("]")
+                ? literal.substring(1, literal.length() - 1) : literal;
+        if (address.isEmpty() || !address.matches("[0-9A-Fa-f:.%]+") || (address.indexOf(':') < 0 && !address.matches("[0-9.]+"))) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * An address range: the network's first prefix bits.
+     */
+    static final class Range {
+        private final byte[] network;
+        private final int prefix;
+
+        Range(byte[] network, int prefix) {
+            this.network = network;
+            this.prefix = prefix;
+        }
+
+        boolean contains(byte[] address) {
+            // An IPv4 address never matches an IPv6 range, and the other way around
+            if (address.length != network.length) {
+                return false;
+            }
+            int bytes = prefix / 8;
+            for (int i = 0; i < bytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int bits = prefix % 8;
+            if (bits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - bits);
+            return (address[bytes] & mask) == (network[bytes] & mask);
+        }
+    }
+}
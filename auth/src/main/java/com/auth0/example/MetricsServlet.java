@@ -0,0 +1,25 @@
+package com.auth0.example;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * MetricsServlet - Exposes the authentication metrics in the Prometheus text format for scraping.
+ * MetricsAccessFilter decides who may read it.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        StringWriter body = new StringWriter(8192);
+        Metrics.writeTo(body);
+
+        res.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        res.setHeader("Cache-Control", "no-store");
+        res.getWriter().write(body.toString());
+    }
+}
@@ -0,0 +1,157 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Order - An ERP order, immutable: a status change makes a new Order.
+ * It is written in the JSON shape of the Node server's orders API (id, customerId, items, shippingAddress,
+ * metadata, status, total, createdAt, updatedAt), leaving out the fields a client never sent, as
+ * JSON.stringify does with undefined. The fields a client sends are kept as they came.
+ */
+public final class Order {
+
+    // Date.prototype.toISOString: always milliseconds, always UTC
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final String id;
+    private final long sequence;
+    private final JsonNode customerId;
+    private final JsonNode items;
+    private final JsonNode shippingAddress;
+    private final JsonNode metadata;
+    private final String status;
+    private final BigDecimal total;
+    private final long createdAtMillis;
+    private final long updatedAtMillis;
+
+    Order(String id, long sequence, JsonNode customerId, JsonNode items, JsonNode shippingAddress, JsonNode metadata,
+          String status, BigDecimal total, long createdAtMillis, long updatedAtMillis) {
+        this.id = id;
+        this.sequence = sequence;
+        this.customerId = customerId;
+        this.items = items;
+        this.shippingAddress = shippingAddress;
+        this.metadata = metadata;
+        this.status = status;
+        this.total = total;
+        this.createdAtMillis = createdAtMillis;
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    /**
+     * The order with a new status, updated at the given time.
+     */
+    Order withStatus(String status, long updatedAtMillis) {
+        return new Order(id, sequence, customerId, items, shippingAddress, metadata, status, total, createdAtMillis,
+                updatedAtMillis);
+    }
+
+    /**
+     * The order total as the Node server computes it: the sum of price times quantity over the items, or 0 if
+     * there are no items or any price or quantity isn't a number. Summed in decimal, so 0.1 + 0.2 is 0.3.
+     */
+    static BigDecimal total(JsonNode items) {
+        if (items == null || !items.isArray()) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (JsonNode item : items) {
+            JsonNode price = item.get("price");
+            JsonNode quantity = item.get("quantity");
+            if (price == null || !price.isNumber() || quantity == null || !quantity.isNumber()) {
+                return BigDecimal.ZERO;
+            }
+            total = total.add(price.decimalValue().multiply(quantity.decimalValue()));
+        }
+        return total.signum() == 0 ? BigDecimal.ZERO : total.stripTrailingZeros();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The order's place in creation order; unique, never reused.
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * The customer id as a string, to index by; null if the order has none, or it isn't a string or number.
+     */
+    public String getCustomerKey() {
+        return customerId != null && customerId.isValueNode() && !customerId.isNull() ? customerId.asText() : null;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * @return The time of the last status change, or 0 if there was none
+     */
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+
+    JsonNode getCustomerId() {
+        return customerId;
+    }
+
+    JsonNode getItems() {
+        return items;
+    }
+
+    JsonNode getShippingAddress() {
+        return shippingAddress;
+    }
+
+    JsonNode getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Writes the order as a JSON object.
+     */
+    void writeJson(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", id);
+        writeIfSent(json, "customerId", customerId);
+        writeIfSent(json, "items", items);
+        writeIfSent(json, "shippingAddress", shippingAddress);
+        writeIfSent(json, "metadata", metadata);
+        json.writeStringField("status", status);
+        json.writeFieldName("total");
+        // Plain notation, as JavaScript prints numbers of this size
+        json.writeNumber(total.toPlainString());
+        json.writeStringField("createdAt", ISO.format(Instant.ofEpochMilli(createdAtMillis)));
+        if (updatedAtMillis != 0) {
+            json.writeStringField("updatedAt", ISO.format(Instant.ofEpochMilli(updatedAtMillis)));
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeIfSent(JsonGenerator json, String name, JsonNode value) throws IOException {
+        if (value != null && !value.isMissingNode()) {
+            json.writeFieldName(name);
+            json.writeTree(value);
+        }
+    }
+}
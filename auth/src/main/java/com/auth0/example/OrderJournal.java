@@ -0,0 +1,571 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * OrderJournal - Keeps the orders on disk: every order write is appended to a log of memory-mapped segment files,
+ * and the log is replayed into the OrderStore on startup.
+ * <ul>
+ *     <li>A record is the whole order after the write, so replay puts the records back in log order</li>
+ *     <li>An append only copies the record into the mapped segment; awaitDurable then forces it to disk. Writers
+ *     that arrive while a force runs wait for the next one, which covers all of them (group commit), so the
+ *     cost of a force is shared by every order in its batch</li>
+ *     <li>A full segment is forced and the next one started. After snapshotSegments full segments the store
+ *     writes a snapshot of all orders, and the segments and snapshot before it are deleted</li>
+ *     <li>Every record carries a CRC32. Replay stops at the first torn record of the last segment, which was
+ *     never acknowledged, and clears the rest of that segment before appending resumes there</li>
+ * </ul>
+ * Positions are byte offsets in the log as a whole: a segment file is named after the position of its first
+ * record, a snapshot after the position the log continues at.
+ */
+final class OrderJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Payload length and CRC32, then the payload
+    private static final int HEADER_BYTES = 8;
+    private static final byte FORMAT = 1;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int snapshotSegments;
+
+    // Appends; the fields below are guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final TreeMap<Long, Path> fullSegments = new TreeMap<>();
+    private MappedByteBuffer segment;
+    private long segmentBase;
+    private Path segmentFile;
+    private long appended;
+    private long snapshotPosition;
+    private Path snapshotFile;
+    private boolean closed;
+    private volatile boolean snapshotDue;
+
+    // Group commit; the fields below are guarded by forceLock, which is never held while taking appendLock
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Condition forced = forceLock.newCondition();
+    private long durable;
+    private boolean forcing;
+
+    /**
+     * @param directory        The directory of the segments and snapshots, created if missing
+     * @param segmentBytes     The size of a segment file
+     * @param snapshotSegments How many full segments make a snapshot due
+     */
+    OrderJournal(Path directory, int segmentBytes, int snapshotSegments) {
+        if (segmentBytes < 64 * 1024 || snapshotSegments < 1) {
+            throw new IllegalArgumentException("Order journal segments must be at least 64 KiB, "
+                    + "and a snapshot must be due after at least one segment");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.snapshotSegments = snapshotSegments;
+    }
+
+    /**
+     * Reads the latest snapshot and the segments after it, and opens the log for appends after the last intact
+     * record. Call once, before anything is appended.
+     *
+     * @param sink Takes the orders in log order; a later record of an order replaces the earlier ones
+     * @throws IOException if the journal can't be read, or is corrupt anywhere but at its very end
+     */
+    void replay(Consumer<Order> sink) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // A snapshot that was still being written
+                    Files.delete(file);
+                } else if (name.endsWith(SNAPSHOT_SUFFIX)) {
+                    snapshots.put(position(name, SNAPSHOT_SUFFIX), file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(position(name, SEGMENT_SUFFIX), file);
+                }
+            }
+        }
+
+        long start = 0;
+        int orders = 0;
+        Map.Entry<Long, Path> snapshot = snapshots.pollLastEntry();
+        if (snapshot != null) {
+            start = snapshot.getKey();
+            snapshotPosition = start;
+            snapshotFile = snapshot.getValue();
+            ByteBuffer data = map(snapshotFile, FileChannel.MapMode.READ_ONLY, 0);
+            while (data.hasRemaining()) {
+                int length = recordLength(data);
+                if (length <= 0) {
+                    throw new IOException("Corrupt order snapshot " + snapshotFile + " at byte " + data.position());
+                }
+                sink.accept(decode(data, length));
+                orders++;
+            }
+            for (Path older : snapshots.values()) {
+                Files.delete(older);
+            }
+        }
+
+        int records = 0;
+        while (!segments.isEmpty()) {
+            Map.Entry<Long, Path> entry = segments.pollFirstEntry();
+            long base = entry.getKey();
+            Path file = entry.getValue();
+            boolean last = segments.isEmpty();
+            if (!last && segments.firstKey() <= start) {
+                // Wholly before the snapshot
+                Files.delete(file);
+                continue;
+            }
+
+            MappedByteBuffer data = map(file, last ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0);
+            data.position((int) Math.min(Math.max(0, start - base), data.limit()));
+            int length;
+            while ((length = recordLength(data)) > 0) {
+                sink.accept(decode(data, length));
+                records++;
+            }
+            if (length < 0 && !last) {
+                // Full segments were forced before the next one was started, so this isn't a crash
+                throw new IOException("Corrupt order journal segment " + file + " at byte " + data.position());
+            }
+
+            if (last) {
+                clearFrom(data, file);
+                segment = data;
+                segmentBase = base;
+                segmentFile = file;
+            } else {
+                fullSegments.put(base, file);
+            }
+        }
+        if (segment == null) {
+            openSegment(start, 0);
+        }
+
+        appended = segmentBase + segment.position();
+        durable = appended;
+        snapshotDue = fullSegments.size() >= snapshotSegments;
+        log.info("Replayed {} orders from the snapshot and {} journal records from {}", orders, records, directory);
+    }
+
+    /**
+     * Appends an order; it is in the log, but not necessarily on disk, until awaitDurable returns for the
+     * returned position.
+     *
+     * @return The position after the record
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException if a new segment can't be started
+     */
+    long append(Order order) {
+        byte[] payload = encode(order);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int size = HEADER_BYTES + payload.length;
+
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The order journal is closed");
+            }
+            if (segment.remaining() < size) {
+                roll(size);
+            }
+            segment.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            appended = segmentBase + segment.position();
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't start a new order journal segment in " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the log is on disk up to the given position, forcing it there unless another writer's force
+     * already covers it.
+     *
+     * @param position A position append returned
+     */
+    void awaitDurable(long position) {
+        boolean batched = true;
+        forceLock.lock();
+        try {
+            while (durable < position) {
+                if (forcing) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+                // Lead the next force; whoever arrives meanwhile waits for it or the one after
+                forcing = true;
+                batched = false;
+                forceLock.unlock();
+                long target = 0;
+                try {
+                    target = forceAppended();
+                } finally {
+                    forceLock.lock();
+                    forcing = false;
+                    durable = Math.max(durable, target);
+                    forced.signalAll();
+                }
+            }
+        } finally {
+            forceLock.unlock();
+        }
+        (batched ? Metrics.ORDER_JOURNAL_BATCHED : Metrics.ORDER_JOURNAL_FORCED).increment();
+    }
+
+    /**
+     * @return The position after the last appended record
+     */
+    long position() {
+        appendLock.lock();
+        try {
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether enough segments have filled up since the last snapshot to write a new one
+     */
+    boolean isSnapshotDue() {
+        return snapshotDue;
+    }
+
+    /**
+     * Writes a snapshot, then deletes the segments and the snapshot it makes obsolete.
+     *
+     * @param position The log position the snapshot continues at: the orders must include every record before it
+     * @param orders   The orders
+     */
+    void writeSnapshot(long position, Iterable<Order> orders) throws IOException {
+        appendLock.lock();
+        try {
+            if (snapshotFile != null && position <= snapshotPosition) {
+                return;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        // The log must not end before the snapshot on disk, or replay would skip what is appended after a crash
+        awaitDurable(position);
+
+        Path file = directory.resolve(fileName(position, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(file.getFileName() + TEMP_SUFFIX);
+        long start = System.nanoTime();
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            for (Order order : orders) {
+                byte[] payload = encode(order);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+                count++;
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        List<Path> obsolete = new ArrayList<>();
+        appendLock.lock();
+        try {
+            if (snapshotFile != null) {
+                obsolete.add(snapshotFile);
+            }
+            snapshotPosition = position;
+            snapshotFile = file;
+            // A full segment ends where the next one starts
+            Iterator<Map.Entry<Long, Path>> segments = fullSegments.entrySet().iterator();
+            while (segments.hasNext()) {
+                Map.Entry<Long, Path> entry = segments.next();
+                Long next = fullSegments.higherKey(entry.getKey());
+                if ((next != null ? next : segmentBase) > position) {
+                    break;
+                }
+                obsolete.add(entry.getValue());
+                segments.remove();
+            }
+            snapshotDue = fullSegments.size() >= snapshotSegments;
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+        log.info("Wrote a snapshot of {} orders in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Forces what was appended and refuses further appends.
+     */
+    @Override
+    public void close() {
+        long position;
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+            position = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        markDurable(position);
+    }
+
+    /**
+     * Forces the current segment.
+     *
+     * @return The position it is on disk up to
+     */
+    private long forceAppended() {
+        MappedByteBuffer buffer;
+        long target;
+        appendLock.lock();
+        try {
+            buffer = segment;
+            target = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        long start = System.nanoTime();
+        buffer.force();
+        Metrics.ORDER_JOURNAL_FORCE.recordSince(start);
+        return target;
+    }
+
+    private void markDurable(long position) {
+        forceLock.lock();
+        try {
+            if (position > durable) {
+                durable = position;
+                forced.signalAll();
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Called with appendLock held: forces the full segment, so the log on disk never has a gap, and starts the next.
+     */
+    private void roll(int recordSize) throws IOException {
+        long start = System.nanoTime();
+        segment.force();
+        Metrics.ORDER_JOURNAL_FORCE.recordSince(start);
+        markDurable(appended);
+
+        fullSegments.put(segmentBase, segmentFile);
+        openSegment(appended, recordSize);
+        snapshotDue = fullSegments.size() >= snapshotSegments;
+    }
+
+    private void openSegment(long base, int minBytes) throws IOException {
+        Path file = directory.resolve(fileName(base, SEGMENT_SUFFIX));
+        segment = map(file, FileChannel.MapMode.READ_WRITE, Math.max(segmentBytes, minBytes));
+        segmentBase = base;
+        segmentFile = file;
+        syncDirectory();
+    }
+
+    /**
+     * Zeroes the segment from its position on, if anything but zeroes is there: the tail of a torn write could
+     * otherwise pass for a record once new records overwrite part of it.
+     */
+    private static void clearFrom(MappedByteBuffer data, Path file) {
+        int end = data.position();
+        int dirty = end;
+        while (dirty + Long.BYTES <= data.limit() && data.getLong(dirty) == 0) {
+            dirty += Long.BYTES;
+        }
+        while (dirty < data.limit() && data.get(dirty) == 0) {
+            dirty++;
+        }
+        if (dirty == data.limit()) {
+            return;
+        }
+        log.warn("Discarding a torn record at byte {} of {}", end, file);
+        for (int i = end; i < data.limit(); i++) {
+            data.put(i, (byte) 0);
+        }
+        data.force();
+    }
+
+    /**
+     * Maps a file, growing it to size bytes if it is shorter.
+     */
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode, int size) throws IOException {
+        boolean write = mode == FileChannel.MapMode.READ_WRITE;
+        try (FileChannel channel = write
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(mode, 0, Math.max(channel.size(), size));
+        }
+    }
+
+    /**
+     * Makes created, renamed and deleted files durable; not every platform can open a directory for this.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Couldn't sync the order journal directory", e);
+        }
+    }
+
+    /**
+     * @return The length of the intact record at the buffer's position, 0 where the records end, or -1 if the
+     * record there is torn or corrupt
+     */
+    private static int recordLength(ByteBuffer data) {
+        int at = data.position();
+        if (data.remaining() < HEADER_BYTES) {
+            return 0;
+        }
+        int length = data.getInt(at);
+        if (length == 0) {
+            return 0;
+        }
+        if (length < 0 || length > data.remaining() - HEADER_BYTES) {
+            return -1;
+        }
+        ByteBuffer payload = data.duplicate();
+        payload.position(at + HEADER_BYTES).limit(at + HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == data.getInt(at + 4) ? length : -1;
+    }
+
+    private static String fileName(long position, String suffix) {
+        return String.format("%020d%s", position, suffix);
+    }
+
+    private static long position(String fileName, String suffix) throws IOException {
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in the order journal directory: " + fileName, e);
+        }
+    }
+
+    static byte[] encode(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            writeBytes(out, order.getId().getBytes(StandardCharsets.UTF_8));
+            out.writeLong(order.getSequence());
+            out.writeLong(order.getCreatedAtMillis());
+            out.writeLong(order.getUpdatedAtMillis());
+            writeBytes(out, order.getStatus().getBytes(StandardCharsets.UTF_8));
+            out.writeInt(order.getTotal().scale());
+            writeBytes(out, order.getTotal().unscaledValue().toByteArray());
+            writeJson(out, order.getCustomerId());
+            writeJson(out, order.getItems());
+            writeJson(out, order.getShippingAddress());
+            writeJson(out, order.getMetadata());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the record at the buffer's position and moves past it.
+     */
+    private static Order decode(ByteBuffer data, int length) throws IOException {
+        ByteBuffer in = data.duplicate();
+        in.position(data.position() + HEADER_BYTES).limit(data.position() + HEADER_BYTES + length);
+        data.position(in.limit());
+        if (in.get() != FORMAT) {
+            throw new IOException("Unknown order record format");
+        }
+        String id = new String(readBytes(in), StandardCharsets.UTF_8);
+        long sequence = in.getLong();
+        long createdAtMillis = in.getLong();
+        long updatedAtMillis = in.getLong();
+        String status = new String(readBytes(in), StandardCharsets.UTF_8);
+        int scale = in.getInt();
+        BigDecimal total = new BigDecimal(new BigInteger(readBytes(in)), scale);
+        return new Order(id, sequence, readJson(in), readJson(in), readJson(in), readJson(in),
+                status, total, createdAtMillis, updatedAtMillis);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+
+    // Fields the client never sent are stored as length -1
+    private static void writeJson(DataOutputStream out, JsonNode value) throws IOException {
+        if (value == null || value.isMissingNode()) {
+            out.writeInt(-1);
+        } else {
+            writeBytes(out, ApiJson.MAPPER.writeValueAsBytes(value));
+        }
+    }
+
+    private static JsonNode readJson(ByteBuffer in) throws IOException {
+        int length = in.getInt(in.position());
+        if (length < 0) {
+            in.getInt();
+            return MissingNode.getInstance();
+        }
+        return ApiJson.MAPPER.readTree(readBytes(in));
+    }
+}
@@ -0,0 +1,182 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * OrderServlet - The ERP orders API of the Node server (/api/orders), for logged-in portal users, with the
+ * same JSON shapes, on the indexed OrderStore:
+ * <ul>
+ *     <li>GET /portal/api/orders - {"orders": [...], "nextCursor": ...}, in creation order, a page at a time
+ *     (limit, default 50, at most 500; cursor from the previous page), optionally filtered by customerId,
+ *     status, createdFrom and createdBefore (ISO 8601 or epoch milliseconds)</li>
+ *     <li>GET /portal/api/orders/{id} - the order</li>
+ *     <li>POST /portal/api/orders - creates an order from customerId, items, shippingAddress and metadata (201)</li>
+ *     <li>PATCH /portal/api/orders/{id} - sets the order's status</li>
+ * </ul>
+ * Unlike the Node server, listing returns a page rather than every order. As it does, creating an order publishes
+ * order.created, and setting an order's status to shipped or cancelled publishes order.shipped or order.cancelled,
+ * on the EventBus, once the change is stored.
+ */
+public class OrderServlet extends HttpServlet {
+
+    private OrderStore orders;
+    private EventBus events;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        try {
+            orders = OrderStores.get(config.getServletContext());
+            events = EventBuses.get(config.getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the OrderStore instance", e);
+        }
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        // HttpServlet doesn't know PATCH
+        if ("PATCH".equals(req.getMethod())) {
+            doPatch(req, res);
+        } else {
+            super.service(req, res);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String id = orderId(req);
+        if (id == null) {
+            list(req, res);
+            return;
+        }
+        Order order = orders.get(id);
+        if (order == null) {
+            ApiJson.error(res, HttpServletResponse.SC_NOT_FOUND, "Order not found");
+            return;
+        }
+        write(res, HttpServletResponse.SC_OK, order);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        if (orderId(req) != null) {
+            res.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        JsonNode body = ApiJson.readObject(req, res);
+        if (body == null) {
+            return;
+        }
+
+        // As the Node server: items defaults to [], the other fields are kept only if sent
+        JsonNode items = body.path("items");
+        if (items.isMissingNode() || items.isNull() || (items.isValueNode() && !items.asBoolean(true))) {
+            items = ApiJson.MAPPER.createArrayNode();
+        }
+        Order order = orders.create(body.path("customerId"), items, body.path("shippingAddress"), body.path("metadata"));
+        events.publish(EventBus.Type.ORDER_CREATED, order, null, 0);
+        write(res, HttpServletResponse.SC_CREATED, order);
+    }
+
+    protected void doPatch(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String id = orderId(req);
+        if (id == null) {
+            res.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        JsonNode body = ApiJson.readObject(req, res);
+        if (body == null) {
+            return;
+        }
+        JsonNode status = body.path("status");
+        if (!status.isTextual() || status.asText().trim().isEmpty()) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, "status is required");
+            return;
+        }
+
+        OrderStore.StatusChange change = orders.updateStatus(id, status.asText().trim());
+        if (change == null) {
+            ApiJson.error(res, HttpServletResponse.SC_NOT_FOUND, "Order not found");
+            return;
+        }
+        // As the Node server, on the change to the status only; the store decides under the order's lock, so
+        // concurrent requests setting the same status publish once
+        Order order = change.getOrder();
+        if (change.isChanged() && "shipped".equals(order.getStatus())) {
+            events.publish(EventBus.Type.ORDER_SHIPPED, order, null, 0);
+        } else if (change.isChanged() && "cancelled".equals(order.getStatus())) {
+            events.publish(EventBus.Type.ORDER_CANCELLED, order, null, 0);
+        }
+        write(res, HttpServletResponse.SC_OK, order);
+    }
+
+    private void list(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        OrderStore.Page page;
+        try {
+            page = orders.list(
+                    emptyToNull(req.getParameter("customerId")),
+                    emptyToNull(req.getParameter("status")),
+                    time(req.getParameter("createdFrom"), Long.MIN_VALUE),
+                    time(req.getParameter("createdBefore"), Long.MAX_VALUE),
+                    emptyToNull(req.getParameter("cursor")),
+                    ApiJson.limit(req.getParameter("limit")));
+        } catch (IllegalArgumentException e) {
+            ApiJson.error(res, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try (JsonGenerator json = ApiJson.start(res, HttpServletResponse.SC_OK)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("orders");
+            for (Order order : page.getOrders()) {
+                order.writeJson(json);
+            }
+            json.writeEndArray();
+            json.writeStringField("nextCursor", page.getNextCursor());
+            json.writeEndObject();
+        }
+    }
+
+    private static void write(HttpServletResponse res, int status, Order order) throws IOException {
+        try (JsonGenerator json = ApiJson.start(res, status)) {
+            order.writeJson(json);
+        }
+    }
+
+    /**
+     * @return The id in /portal/api/orders/{id}, or null for the collection
+     */
+    private static String orderId(HttpServletRequest req) {
+        String path = req.getPathInfo();
+        return path == null || path.length() <= 1 ? null : path.substring(1);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static long time(String value, long defaultValue) {
+        if (emptyToNull(value) == null) {
+            return defaultValue;
+        }
+        String trimmed = value.trim();
+        try {
+            return trimmed.chars().allMatch(Character::isDigit)
+                    ? Long.parseLong(trimmed)
+                    : Instant.parse(trimmed).toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a time: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * OrderStore - The ERP orders, in memory and indexed, so that no request scans them all:
+ * <ul>
+ *     <li>by id - a hash map, O(1)</li>
+ *     <li>by creation time, and by creation time per customer and per status - sorted sets of keys, so a page
+ *     of a listing costs O(log n) to find plus its own length</li>
+ * </ul>
+ * Orders are immutable; a status change replaces the order under its id, then moves its key from the old
+ * status index to the new one. The sorted indexes only hold keys, and a listing reads each order back by id
+ * and checks it against the filter, so it never returns an order that no longer matches, even while it races
+ * with a status change. Listings are in creation order and paginated with an opaque cursor.
+ * <p>
+ * With an OrderJournal, every write is appended to the journal under the order's lock, one of a fixed set striped
+ * by id, so the journal has the writes of one order in the order they were made, and returns once the journal has
+ * it on disk. The append, which may start a new segment, happens outside the hash map's compute functions, so it
+ * never blocks the other orders in the map's bin. Snapshots are
+ * written in the background when the journal asks for one, and on close.
+ */
+public class OrderStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStore.class);
+
+    // A power of two, so an id's stripe is a mask of its hash
+    private static final int ORDER_LOCKS = 256;
+
+    private final ConcurrentMap<String, Order> byId = new ConcurrentHashMap<>();
+    private final NavigableSet<Key> byCreated = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<String, NavigableSet<Key>> byCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NavigableSet<Key>> byStatus = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Lock[] orderLocks = new Lock[ORDER_LOCKS];
+
+    private final OrderJournal journal;
+    // Writes share the read lock; a snapshot takes the write lock to find a position no write is still before
+    private final ReadWriteLock writes = new ReentrantReadWriteLock();
+    private final ExecutorService snapshots;
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+
+    /**
+     * A store that keeps its orders in memory only.
+     */
+    public OrderStore() {
+        this(null, null);
+    }
+
+    private OrderStore(OrderJournal journal, ExecutorService snapshots) {
+        for (int i = 0; i < orderLocks.length; i++) {
+            orderLocks[i] = new ReentrantLock();
+        }
+        this.journal = journal;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * A store that keeps its orders in the journal, starting with the orders replayed from it.
+     *
+     * @param journal The journal, not yet replayed; the store closes it
+     * @throws IOException if the journal can't be replayed
+     */
+    OrderStore(OrderJournal journal) throws IOException {
+        this(journal, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        // The last record of each order wins; indexing them in creation order keeps the sorted indexes' inserts local
+        Map<String, Order> replayed = new HashMap<>();
+        journal.replay(order -> replayed.put(order.getId(), order));
+        List<Order> orders = new ArrayList<>(replayed.values());
+        orders.sort(Comparator.comparingLong(Order::getCreatedAtMillis).thenComparingLong(Order::getSequence));
+        for (Order order : orders) {
+            put(order);
+        }
+    }
+
+    /**
+     * Creates and stores an order, in status pending; with a journal, returns once the order is on disk.
+     *
+     * @return The new order
+     */
+    public Order create(JsonNode customerId, JsonNode items, JsonNode shippingAddress, JsonNode metadata) {
+        BigDecimal total = Order.total(items);
+        long now = System.currentTimeMillis();
+        while (true) {
+            // The Node server's id format: 32 random bits, so ids collide now and then at a few 100k orders
+            String id = "ord_" + UUID.randomUUID().toString().substring(0, 8);
+            Order order = new Order(id, sequence.incrementAndGet(), customerId, items, shippingAddress, metadata,
+                    "pending", total, now, 0);
+            long position;
+            Lock lock = lockWrites();
+            Lock orderLock = lockOrder(id);
+            try {
+                if (byId.containsKey(id)) {
+                    continue;
+                }
+                // Journaled, then stored and indexed, under the id's lock, so a status change can't come in between
+                position = journal(order);
+                byId.put(id, order);
+                index(order);
+            } finally {
+                orderLock.unlock();
+                lock.unlock();
+            }
+            awaitDurable(position);
+            return order;
+        }
+    }
+
+    /**
+     * Stores an order as it is, replacing any order with its id; used by replay, so it isn't journaled.
+     */
+    private void put(Order order) {
+        sequence.accumulateAndGet(order.getSequence(), Math::max);
+        byId.compute(order.getId(), (id, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(order);
+            return order;
+        });
+    }
+
+    /**
+     * @return The order, or null if there is none with this id
+     */
+    public Order get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Changes an order's status; with a journal, returns once the change is on disk.
+     *
+     * @return The updated order and the status it had before, or null if there is none with this id
+     */
+    public StatusChange updateStatus(String id, String status) {
+        long position;
+        Order updated;
+        String previousStatus;
+        Lock lock = lockWrites();
+        Lock orderLock = lockOrder(id);
+        try {
+            Order order = byId.get(id);
+            if (order == null) {
+                return null;
+            }
+            // Read under the id's lock, so of concurrent changes to the same status exactly one sees it change
+            previousStatus = order.getStatus();
+            updated = order.withStatus(status, System.currentTimeMillis());
+            position = journal(updated);
+            byId.put(id, updated);
+            if (!order.getStatus().equals(status)) {
+                // Under the id's lock, so concurrent changes of one order move its key in turn
+                Key orderKey = keyOf(order);
+                statusIndex(status).add(orderKey);
+                statusIndex(order.getStatus()).remove(orderKey);
+            }
+        } finally {
+            orderLock.unlock();
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return new StatusChange(updated, previousStatus);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Lists orders in creation order.
+     *
+     * @param customer       Only this customer's orders, or null for all
+     * @param status         Only orders in this status, or null for all
+     * @param createdFrom    Only orders created at or after this time (epoch millis), or Long.MIN_VALUE
+     * @param createdBefore  Only orders created before this time (epoch millis), or Long.MAX_VALUE
+     * @param cursor         The cursor of the previous page, or null for the first
+     * @param limit          The most orders to return
+     * @return The page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public Page list(String customer, String status, long createdFrom, long createdBefore, String cursor, int limit) {
+        // The narrowest index that covers the filter; for both, a customer's orders are fewer
+        NavigableSet<Key> index = customer != null ? byCustomer.get(customer)
+                : status != null ? byStatus.get(status)
+                : byCreated;
+        if (index == null || limit <= 0) {
+            return new Page(Collections.emptyList(), null);
+        }
+
+        // Resume after the cursor, unless the time filter starts later
+        Key start = new Key(createdFrom, Long.MIN_VALUE, null);
+        Key after = cursor != null ? Key.parse(cursor) : null;
+        Key end = new Key(createdBefore, Long.MIN_VALUE, null);
+        Key from = after != null && after.compareTo(start) >= 0 ? after : start;
+        if (from.compareTo(end) >= 0) {
+            return new Page(Collections.emptyList(), null);
+        }
+        NavigableSet<Key> range = index.subSet(from, from != after, end, false);
+
+        List<Order> orders = new ArrayList<>(Math.min(limit, 64));
+        Key last = null;
+        for (Key key : range) {
+            Order order = byId.get(key.id);
+            if (order == null || order.getSequence() != key.sequence
+                    || (customer != null && !customer.equals(order.getCustomerKey()))
+                    || (status != null && !status.equals(order.getStatus()))) {
+                continue;
+            }
+            if (orders.size() == limit) {
+                // There is at least one more
+                return new Page(orders, last.format());
+            }
+            orders.add(order);
+            last = key;
+        }
+        return new Page(orders, null);
+    }
+
+    /**
+     * Writes a snapshot of all orders to the journal, so replay can start there.
+     */
+    void snapshot() throws IOException {
+        long position;
+        writes.writeLock().lock();
+        try {
+            position = journal.position();
+        } finally {
+            writes.writeLock().unlock();
+        }
+        // Orders changed after the position are in the snapshot too, and replaying their records again is harmless
+        journal.writeSnapshot(position, byId.values());
+    }
+
+    /**
+     * Writes a last snapshot, so the next start replays little, and closes the journal.
+     */
+    @Override
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+            snapshot();
+        } catch (IOException e) {
+            log.warn("Couldn't write the order snapshot at shutdown; the journal is replayed instead", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private Lock lockWrites() {
+        Lock lock = writes.readLock();
+        lock.lock();
+        return lock;
+    }
+
+    private Lock lockOrder(String id) {
+        int hash = id.hashCode();
+        Lock lock = orderLocks[(hash ^ (hash >>> 16)) & (ORDER_LOCKS - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    private long journal(Order order) {
+        return journal == null ? 0 : journal.append(order);
+    }
+
+    private void awaitDurable(long position) {
+        if (journal == null) {
+            return;
+        }
+        journal.awaitDurable(position);
+        if (journal.isSnapshotDue() && snapshotting.compareAndSet(false, true)) {
+            try {
+                snapshots.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Couldn't write an order snapshot", e);
+                    } finally {
+                        snapshotting.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closing; close writes the snapshot
+                snapshotting.set(false);
+            }
+        }
+    }
+
+    private void index(Order order) {
+        Key key = keyOf(order);
+        byCreated.add(key);
+        String customer = order.getCustomerKey();
+        if (customer != null) {
+            byCustomer.computeIfAbsent(customer, c -> new ConcurrentSkipListSet<>()).add(key);
+        }
+        statusIndex(order.getStatus()).add(key);
+    }
+
+    private void unindex(Order order) {
+        Key key = keyOf(order);
+        byCreated.remove(key);
+        String customer = order.getCustomerKey();
+        if (customer != null) {
+            NavigableSet<Key> keys = byCustomer.get(customer);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+        NavigableSet<Key> keys = byStatus.get(order.getStatus());
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private NavigableSet<Key> statusIndex(String status) {
+        return byStatus.computeIfAbsent(status, s -> new ConcurrentSkipListSet<>());
+    }
+
+    private static Key keyOf(Order order) {
+        return new Key(order.getCreatedAtMillis(), order.getSequence(), order.getId());
+    }
+
+    /**
+     * An order after a status change, and the status it had before.
+     */
+    public static final class StatusChange {
+        private final Order order;
+        private final String previousStatus;
+
+        StatusChange(Order order, String previousStatus) {
+            this.order = order;
+            this.previousStatus = previousStatus;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public String getPreviousStatus() {
+            return previousStatus;
+        }
+
+        /**
+         * @return Whether the status is different from before, rather than set to what it already was
+         */
+        public boolean isChanged() {
+            return !previousStatus.equals(order.getStatus());
+        }
+    }
+
+    /**
+     * A page of orders, and the cursor of the next page, or null if this is the last one.
+     */
+    public static final class Page {
+        private final List<Order> orders;
+        private final String nextCursor;
+
+        Page(List<Order> orders, String nextCursor) {
+            this.orders = orders;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    /**
+     * An index entry: creation time, then sequence, which is unique.
+     */
+    private static final class Key implements Comparable<Key> {
+        final long createdAtMillis;
+        final long sequence;
+        final String id;
+
+        Key(long createdAtMillis, long sequence, String id) {
+            this.createdAtMillis = createdAtMillis;
+            this.sequence = sequence;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byTime = Long.compare(createdAtMillis, other.createdAtMillis);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && compareTo((Key) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence);
+        }
+
+        String format() {
+            return Long.toString(createdAtMillis, 36) + "." + Long.toString(sequence, 36);
+        }
+
+        static Key parse(String cursor) {
+            int dot = cursor.indexOf('.');
+            try {
+                return new Key(Long.parseLong(cursor.substring(0, dot), 36), Long.parseLong(cursor.substring(dot + 1), 36), null);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * OrderStores - Shares one OrderStore per application through a ServletContext attribute, so every servlet
+ * that reads or writes orders sees the same orders.
+ * With com.auth0.orders.journalDir set, the store keeps its orders in an OrderJournal in that directory and
+ * starts with the orders replayed from it; otherwise orders live in memory only and are lost on restart.
+ */
+public final class OrderStores {
+
+    private static final String ATTRIBUTE = OrderStore.class.getName();
+
+    private OrderStores() {}
+
+    /**
+     * Gets the application's OrderStore, creating it on first use.
+     *
+     * @param context The ServletContext to read the configuration from and keep the store in
+     * @return The shared OrderStore
+     */
+    public static OrderStore get(ServletContext context) {
+        Object store = context.getAttribute(ATTRIBUTE);
+        if (store == null) {
+            synchronized (OrderStores.class) {
+                store = context.getAttribute(ATTRIBUTE);
+                if (store == null) {
+                    store = create(context);
+                    context.setAttribute(ATTRIBUTE, store);
+                }
+            }
+        }
+        return (OrderStore) store;
+    }
+
+    /**
+     * Closes the application's OrderStore, if one was created, which snapshots and closes its journal.
+     *
+     * @param context The ServletContext the store was published in
+     */
+    public static synchronized void close(ServletContext context) {
+        Object store = context.getAttribute(ATTRIBUTE);
+        if (store != null) {
+            context.removeAttribute(ATTRIBUTE);
+            ((OrderStore) store).close();
+        }
+    }
+
+    private static OrderStore create(ServletContext context) {
+        String directory = context.getInitParameter("com.auth0.orders.journalDir");
+        if (directory == null || directory.trim().isEmpty()) {
+            return new OrderStore();
+        }
+
+        int segmentMegabytes = AuthenticationControllerProvider.getIntParameter(context, "com.auth0.orders.segmentMegabytes", 64);
+        if (segmentMegabytes < 1 || segmentMegabytes > 1024) {
+            throw new IllegalArgumentException("com.auth0.orders.segmentMegabytes must be 1 to 1024");
+        }
+        Path path = Paths.get(directory.trim());
+        OrderJournal journal = new OrderJournal(path, segmentMegabytes * 1024 * 1024,
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.orders.snapshotSegments", 4));
+        try {
+            return new OrderStore(journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't replay the order journal in " + path, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.auth0.example;
+
+/**
+ * PrincipalCache - A bounded, expiry-aware map from session id to the session's UserPrincipal.
+ * CallbackServlet fills it when a login completes, Auth0Filter reads it on every protected request (a lock-free
+ * map lookup) and LogoutServlet evicts the entry. An entry lives at most until its principal expires; a miss,
+ * e.g. on another node or after a restart, is refilled by the filter after verifying the session's token.
+ * A full cache is swept as BoundedCache describes. Hits, misses and evictions are counted in Metrics.
+ */
+final class PrincipalCache {
+
+    private final BoundedCache<String, UserPrincipal> entries;
+
+    /**
+     * @param maxEntries The maximum number of principals to keep; 0 disables caching
+     */
+    PrincipalCache(int maxEntries) {
+        this.entries = new BoundedCache<>(maxEntries, System::currentTimeMillis, UserPrincipal::isExpired,
+                (expired, evicted) -> {
+                    Metrics.PRINCIPAL_CACHE_EXPIRED.add(expired);
+                    Metrics.PRINCIPAL_CACHE_CAPACITY.add(evicted);
+                });
+    }
+
+    /**
+     * Looks up the principal of a session.
+     *
+     * @param sessionId The session id
+     * @return The principal, or null if it is not cached or has expired
+     */
+    UserPrincipal get(String sessionId) {
+        UserPrincipal principal = entries.get(sessionId);
+        if (principal == null) {
+            Metrics.PRINCIPAL_CACHE_MISS.increment();
+            return null;
+        }
+        if (principal.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(sessionId, principal)) {
+                Metrics.PRINCIPAL_CACHE_EXPIRED.increment();
+            }
+            Metrics.PRINCIPAL_CACHE_MISS.increment();
+            return null;
+        }
+        Metrics.PRINCIPAL_CACHE_HIT.increment();
+        return principal;
+    }
+
+    /**
+     * Remembers the principal of a session until it expires.
+     *
+     * @param sessionId The session id
+     * @param principal The principal
+     */
+    void put(String sessionId, UserPrincipal principal) {
+        entries.put(sessionId, principal);
+    }
+
+    /**
+     * Forgets the principal of a session, e.g. at logout.
+     *
+     * @param sessionId The session id
+     */
+    void remove(String sessionId) {
+        if (entries.remove(sessionId) != null) {
+            Metrics.PRINCIPAL_CACHE_LOGOUT.increment();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,111 @@
+package com.auth0.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimitFilter - Throttles the login endpoints (/login and /callback) before they redirect to Auth0 or
+ * exchange a code with it, so credential-stuffing bots and redirect loops cannot exhaust the container
+ * threads, the token exchange slots or the tenant's rate limits.
+ * <p>
+ * Every request counts against its client address (com.auth0.rateLimit.ipRequests per window) and, when it
+ * carries a session cookie, against that session (com.auth0.rateLimit.sessionRequests), separately for each
+ * endpoint. A request over either limit gets a 429 with a Retry-After header and never reaches the servlet.
+ * The counters live in the RateLimiter selected by com.auth0.rateLimit.backend; if Redis cannot be reached
+ * the request is let through, as the Node server does, because logins matter more than throttling.
+ */
+public class RateLimitFilter implements Filter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private RateLimiter rateLimiter;
+    private String cookieName;
+    private int ipRequests;
+    private int sessionRequests;
+    private long windowMillis;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        try {
+            rateLimiter = AuthenticationControllerProvider.getRateLimiter(filterConfig.getServletContext());
+            cookieName = SessionStores.getCookieName(filterConfig.getServletContext());
+            ipRequests = AuthenticationControllerProvider.getIntParameter(filterConfig.getServletContext(), "com.auth0.rateLimit.ipRequests", 60);
+            sessionRequests = AuthenticationControllerProvider.getIntParameter(filterConfig.getServletContext(), "com.auth0.rateLimit.sessionRequests", 10);
+            windowMillis = TimeUnit.SECONDS.toMillis(
+                    AuthenticationControllerProvider.getIntParameter(filterConfig.getServletContext(), "com.auth0.rateLimit.windowSeconds", 60));
+            if (ipRequests < 1 || sessionRequests < 1 || windowMillis < 1) {
+                throw new IllegalArgumentException("com.auth0.rateLimit.ipRequests, sessionRequests and windowSeconds must be positive");
+            }
+        } catch (Exception e) {
+            throw new ServletException("Couldn't create the RateLimiter instance", e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+        String endpoint = req.getServletPath();
+
+        // Per client address first: it also covers clients that drop their cookies
+        long retryAfter = acquire(endpoint + ":ip:" + req.getRemoteAddr(), ipRequests);
+        if (retryAfter > 0) {
+            Metrics.RATE_LIMITED_IP.increment();
+            reject(res, retryAfter);
+            return;
+        }
+
+        // Then per browser session, which catches a redirect loop behind a shared (NAT) address;
+        // the cookie is only read, so no session is created here
+        String sessionId = SessionCookies.find(req, cookieName);
+        if (sessionId == null) {
+            sessionId = req.getRequestedSessionId();
+        }
+        if (sessionId != null) {
+            retryAfter = acquire(endpoint + ":session:" + sessionId, sessionRequests);
+            if (retryAfter > 0) {
+                Metrics.RATE_LIMITED_SESSION.increment();
+                reject(res, retryAfter);
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private long acquire(String key, int limit) {
+        try {
+            return rateLimiter.acquire(key, limit, windowMillis);
+        } catch (IOException | RuntimeException e) {
+            // Fail open: an unreachable backend must not lock everybody out
+            Metrics.RATE_LIMIT_ERROR.increment();
+            log.warn("Rate limit check failed, allowing the request", e);
+            return 0;
+        }
+    }
+
+    private static void reject(HttpServletResponse res, long retryAfterMillis) throws IOException {
+        // Retry-After takes whole seconds; round up so the client does not come back too early
+        res.setHeader("Retry-After", Long.toString(Math.max((retryAfterMillis + 999) / 1000, 1)));
+        res.setHeader("Cache-Control", "no-store");
+        res.sendError(429, "Too many login attempts, please try again later");
+    }
+
+    @Override
+    public void destroy() {
+        // The RateLimiter is shared and closed with the application
+    }
+}
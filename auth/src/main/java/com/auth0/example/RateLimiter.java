@@ -0,0 +1,29 @@
+package com.auth0.example;
+
+import java.io.IOException;
+
+/**
+ * RateLimiter - Counts requests per key in a sliding window and tells callers when a key is over its limit.
+ * <p>
+ * The window is approximated the way the Redis rate limiters usually do it: requests are counted in fixed
+ * windows aligned to the epoch, and the count of the previous window is weighted by how much of it still
+ * overlaps the sliding window. This needs two counters per key instead of one timestamp per request, and
+ * unlike a fixed window it does not let a client send twice the limit across a window boundary.
+ * Only admitted requests are counted, so a client that backs off gets in again when its window has slid on.
+ */
+public interface RateLimiter extends AutoCloseable {
+
+    /**
+     * Counts a request for the key if it is within the limit.
+     *
+     * @param key          The key, e.g. the client address
+     * @param limit        The number of requests the key may make per window
+     * @param windowMillis The window length
+     * @return 0 if the request is admitted, otherwise how many milliseconds until one would be
+     * @throws IOException if a shared backend cannot be reached
+     */
+    long acquire(String key, int limit, long windowMillis) throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,415 @@
+package com.auth0.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * RedisClient - A small, dependency-free client for the Redis protocol (RESP2).
+ * Connections are pooled and commands can be pipelined, i.e. several commands are written before any reply
+ * is read, so a SET followed by a PUBLISH costs one round trip. Subscriptions run on their own connection
+ * and thread and reconnect automatically.
+ * <p>
+ * Accepts the same URLs as the Node server's REDIS_URL: redis://[user:password@]host[:port][/db],
+ * or rediss:// for TLS.
+ */
+public class RedisClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisClient.class);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String host;
+    private final int port;
+    private final boolean tls;
+    private final String user;
+    private final String password;
+    private final int database;
+    private final int timeoutMillis;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final List<Subscription> subscriptions = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean closed;
+
+    /**
+     * @param url           The Redis URL
+     * @param poolSize      The maximum number of connections used for commands
+     * @param timeoutMillis The connect and read timeout, and the longest a caller waits for a pooled connection
+     */
+    public RedisClient(String url, int poolSize, int timeoutMillis) {
+        URI uri = URI.create(url);
+        if (!"redis".equals(uri.getScheme()) && !"rediss".equals(uri.getScheme())) {
+            throw new IllegalArgumentException("Redis URL must start with redis:// or rediss://");
+        }
+        this.host = uri.getHost();
+        this.port = uri.getPort() == -1 ? 6379 : uri.getPort();
+        this.tls = "rediss".equals(uri.getScheme());
+
+        String userInfo = uri.getRawUserInfo();
+        if (userInfo == null) {
+            this.user = null;
+            this.password = null;
+        } else {
+            int colon = userInfo.indexOf(':');
+            String name = colon < 0 ? "" : decode(userInfo.substring(0, colon));
+            this.user = name.isEmpty() ? null : name;
+            this.password = decode(colon < 0 ? userInfo : userInfo.substring(colon + 1));
+        }
+
+        String path = uri.getPath();
+        this.database = path == null || path.length() <= 1 ? 0 : Integer.parseInt(path.substring(1));
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Runs a single command.
+     *
+     * @param args The command and its arguments; Strings are sent as UTF-8, byte arrays as-is
+     * @return The reply: a String, Long, byte[] (bulk string), List (array) or null
+     * @throws IOException if the connection fails or Redis replies with an error
+     */
+    public Object execute(Object... args) throws IOException {
+        return pipeline(Collections.singletonList(args)).get(0);
+    }
+
+    /**
+     * Runs several commands in one round trip.
+     *
+     * @param commands The commands, each as an argument array
+     * @return The replies, in command order
+     * @throws IOException if the connection fails or any command fails; all replies are read before an error is thrown
+     */
+    public List<Object> pipeline(List<Object[]> commands) throws IOException {
+        Connection connection = borrow();
+        boolean healthy = false;
+        try {
+            for (Object[] command : commands) {
+                connection.write(command);
+            }
+            connection.out.flush();
+
+            List<Object> replies = new ArrayList<>(commands.size());
+            ErrorReply error = null;
+            for (int i = 0; i < commands.size(); i++) {
+                Object reply = connection.read();
+                if (reply instanceof ErrorReply && error == null) {
+                    error = (ErrorReply) reply;
+                }
+                replies.add(reply);
+            }
+            healthy = true;
+            if (error != null) {
+                throw error;
+            }
+            return replies;
+        } finally {
+            release(connection, healthy);
+        }
+    }
+
+    /**
+     * Subscribes to a channel on a dedicated connection and thread.
+     *
+     * @param channel     The channel
+     * @param onMessage   Called with every message
+     * @param onReconnect Called after the subscription was re-established; messages may have been missed
+     */
+    public void subscribe(String channel, Consumer<String> onMessage, Runnable onReconnect) {
+        Subscription subscription = new Subscription(channel, onMessage, onReconnect);
+        subscriptions.add(subscription);
+        subscription.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (subscriptions) {
+            for (Subscription subscription : subscriptions) {
+                subscription.stop();
+            }
+        }
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Connection borrow() throws IOException {
+        if (closed) {
+            throw new IOException("Redis client is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a Redis connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a Redis connection", e);
+        }
+        Connection connection = idle.pollFirst();
+        if (connection != null) {
+            return connection;
+        }
+        try {
+            return connect(timeoutMillis);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(Connection connection, boolean healthy) {
+        if (healthy && !closed) {
+            // Most recently used first, so idle connections beyond the working set can time out server-side
+            idle.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+        permits.release();
+    }
+
+    private Connection connect(int readTimeoutMillis) throws IOException {
+        Socket socket = tls ? SSLSocketFactory.getDefault().createSocket() : new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            Connection connection = new Connection(socket);
+            if (password != null) {
+                connection.call(user == null ? new Object[]{"AUTH", password} : new Object[]{"AUTH", user, password});
+            }
+            if (database != 0) {
+                connection.call("SELECT", Integer.toString(database));
+            }
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An error reply from Redis. The connection remains usable.
+     */
+    public static class ErrorReply extends IOException {
+        ErrorReply(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One socket speaking RESP2.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+        }
+
+        Object call(Object... args) throws IOException {
+            write(args);
+            out.flush();
+            Object reply = read();
+            if (reply instanceof ErrorReply) {
+                throw (ErrorReply) reply;
+            }
+            return reply;
+        }
+
+        void write(Object[] args) throws IOException {
+            out.write('*');
+            writeDecimal(args.length);
+            for (Object arg : args) {
+                byte[] bytes = arg instanceof byte[] ? (byte[]) arg : arg.toString().getBytes(StandardCharsets.UTF_8);
+                out.write('$');
+                writeDecimal(bytes.length);
+                out.write(bytes);
+                out.write(CRLF);
+            }
+        }
+
+        private void writeDecimal(long value) throws IOException {
+            out.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+        }
+
+        Object read() throws IOException {
+            int type = in.read();
+            switch (type) {
+                case '+':
+                    return readLine();
+                case '-':
+                    return new ErrorReply(readLine());
+                case ':':
+                    return Long.parseLong(readLine());
+                case '$': {
+                    int length = Integer.parseInt(readLine());
+                    if (length < 0) {
+                        return null;
+                    }
+                    byte[] bytes = new byte[length];
+                    readFully(bytes);
+                    readLine();
+                    return bytes;
+                }
+                case '*': {
+                    int length = Integer.parseInt(readLine());
+                    if (length < 0) {
+                        return null;
+                    }
+                    List<Object> items = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++) {
+                        items.add(read());
+                    }
+                    return items;
+                }
+                case -1:
+                    throw new EOFException("Redis closed the connection");
+                default:
+                    throw new IOException("Unexpected RESP type byte: " + type);
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(16);
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b == -1) {
+                    throw new EOFException("Redis closed the connection");
+                }
+                line.append((char) b);
+            }
+            if (in.read() != '\n') {
+                throw new IOException("Malformed RESP line");
+            }
+            return line.toString();
+        }
+
+        private void readFully(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int n = in.read(bytes, offset, bytes.length - offset);
+                if (n < 0) {
+                    throw new EOFException("Redis closed the connection");
+                }
+                offset += n;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing more to do with a broken connection
+            }
+        }
+    }
+
+    /**
+     * A channel subscription that reconnects with exponential backoff.
+     */
+    private final class Subscription implements Runnable {
+        private final String channel;
+        private final Consumer<String> onMessage;
+        private final Runnable onReconnect;
+        private final Thread thread;
+        private volatile Connection connection;
+        private volatile boolean stopped;
+
+        Subscription(String channel, Consumer<String> onMessage, Runnable onReconnect) {
+            this.channel = channel;
+            this.onMessage = onMessage;
+            this.onReconnect = onReconnect;
+            this.thread = new Thread(this, "redis-subscriber-" + channel);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() {
+            stopped = true;
+            Connection current = connection;
+            if (current != null) {
+                current.close();
+            }
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            long backoffMillis = 100;
+            boolean reconnecting = false;
+            while (!stopped) {
+                try {
+                    // No read timeout: the connection idles until a message arrives
+                    connection = connect(0);
+                    connection.call("SUBSCRIBE", channel);
+                    backoffMillis = 100;
+                    if (reconnecting) {
+                        onReconnect.run();
+                    }
+                    while (!stopped) {
+                        Object reply = connection.read();
+                        if (reply instanceof List && ((List<?>) reply).size() == 3
+                                && "message".equals(asString(((List<?>) reply).get(0)))) {
+                            onMessage.accept(asString(((List<?>) reply).get(2)));
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (stopped) {
+                        return;
+                    }
+                    log.warn("Redis subscription to {} lost, retrying in {} ms", channel, backoffMillis, e);
+                } finally {
+                    Connection current = connection;
+                    if (current != null) {
+                        current.close();
+                    }
+                }
+                reconnecting = true;
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, TimeUnit.SECONDS.toMillis(30));
+            }
+        }
+
+        private String asString(Object value) {
+            return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+        }
+    }
+}
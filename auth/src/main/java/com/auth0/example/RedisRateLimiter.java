@@ -0,0 +1,50 @@
+package com.auth0.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RedisRateLimiter - A RateLimiter shared by all nodes, on the same ratelimit:* keys as the Node server's
+ * rateLimit.check. Each fixed window is an INCR counter that expires after two windows; the increment, its
+ * expiry and the read of the previous window are pipelined, so a check costs one round trip. A request over
+ * the limit is taken back with a DECR, which only the rejected requests pay for.
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    private final RedisClient redis;
+
+    public RedisRateLimiter(RedisClient redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public long acquire(String key, int limit, long windowMillis) throws IOException {
+        long now = System.currentTimeMillis();
+        long index = now / windowMillis;
+        String currentKey = KEY_PREFIX + key + ":" + index;
+
+        List<Object> replies = redis.pipeline(Arrays.asList(
+                new Object[]{"INCR", currentKey},
+                new Object[]{"PEXPIRE", currentKey, Long.toString(windowMillis * 2)},
+                new Object[]{"GET", KEY_PREFIX + key + ":" + (index - 1)}));
+        long current = (Long) replies.get(0) - 1;
+        byte[] previous = (byte[]) replies.get(2);
+
+        long retryAfter = InMemoryRateLimiter.retryAfterMillis(
+                previous == null ? 0 : Long.parseLong(new String(previous, StandardCharsets.US_ASCII)),
+                current, limit, now - index * windowMillis, windowMillis);
+        if (retryAfter != 0) {
+            redis.execute("DECR", currentKey);
+        }
+        return retryAfter;
+    }
+
+    @Override
+    public void close() {
+        redis.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.auth0.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * RedisSessionBackend - Keeps sessions in Redis so every node can serve every user and a restart
+ * logs nobody out. Writes and deletes are pipelined with a PUBLISH on the invalidation channel,
+ * so telling the other nodes costs no extra round trip.
+ */
+public class RedisSessionBackend implements SessionBackend {
+
+    private static final String KEY_PREFIX = "auth:session:";
+    private static final String INVALIDATION_CHANNEL = "auth:session:invalidate";
+
+    private final RedisClient redis;
+
+    public RedisSessionBackend(RedisClient redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public byte[] get(String id) throws IOException {
+        return (byte[]) redis.execute("GET", KEY_PREFIX + id);
+    }
+
+    @Override
+    public void put(String id, byte[] value, long ttlMillis) throws IOException {
+        redis.pipeline(Arrays.asList(
+                new Object[]{"SET", KEY_PREFIX + id, value, "PX", Long.toString(Math.max(ttlMillis, 1))},
+                new Object[]{"PUBLISH", INVALIDATION_CHANNEL, id}));
+    }
+
+    @Override
+    public void delete(String id) throws IOException {
+        redis.pipeline(Arrays.asList(
+                new Object[]{"DEL", KEY_PREFIX + id},
+                new Object[]{"PUBLISH", INVALIDATION_CHANNEL, id}));
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        // After a reconnect, messages may have been missed: drop everything
+        redis.subscribe(INVALIDATION_CHANNEL, listener, () -> listener.accept(null));
+    }
+
+    @Override
+    public void close() {
+        redis.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.auth0.example;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * SessionBackend - The shared key/value storage behind an ExternalSessionStore.
+ * Besides storing serialized sessions, a backend tells every node when a session changes or is deleted,
+ * so nodes can drop it from their near-caches.
+ */
+public interface SessionBackend extends AutoCloseable {
+
+    /**
+     * @param id The session id
+     * @return The serialized session, or null if there is none
+     * @throws IOException if the backend cannot be reached
+     */
+    byte[] get(String id) throws IOException;
+
+    /**
+     * Stores a session and notifies every node that it changed.
+     *
+     * @param id        The session id
+     * @param value     The serialized session
+     * @param ttlMillis How long the backend keeps the session
+     * @throws IOException if the backend cannot be reached
+     */
+    void put(String id, byte[] value, long ttlMillis) throws IOException;
+
+    /**
+     * Deletes a session and notifies every node that it is gone.
+     *
+     * @param id The session id
+     * @throws IOException if the backend cannot be reached
+     */
+    void delete(String id) throws IOException;
+
+    /**
+     * Registers the listener for change notifications from any node. The listener receives the session id,
+     * or null when notifications may have been missed and every cached session should be dropped.
+     *
+     * @param listener The listener
+     */
+    void onInvalidate(Consumer<String> listener);
+
+    @Override
+    void close();
+}
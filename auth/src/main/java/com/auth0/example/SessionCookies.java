@@ -0,0 +1,52 @@
+package com.auth0.example;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * SessionCookies - Reads and writes the cookies session stores bind sessions to the browser with.
+ */
+final class SessionCookies {
+
+    private SessionCookies() {}
+
+    /**
+     * @param req  The HTTP request
+     * @param name The cookie name
+     * @return The value of the first cookie with that name, or null
+     */
+    static String find(HttpServletRequest req, String name) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds an HttpOnly, SameSite=Lax cookie for the whole site; Secure when the request came over HTTPS.
+     * Written by hand because the Servlet 3.1 Cookie API cannot express SameSite.
+     *
+     * @param req    The HTTP request
+     * @param res    The HTTP response
+     * @param name   The cookie name
+     * @param value  The cookie value
+     * @param maxAge The lifetime in seconds; 0 deletes the cookie
+     */
+    static void add(HttpServletRequest req, HttpServletResponse res, String name, String value, long maxAge) {
+        StringBuilder header = new StringBuilder(name.length() + value.length() + 64)
+                .append(name).append('=').append(value)
+                .append("; Max-Age=").append(maxAge)
+                .append("; Path=/; HttpOnly; SameSite=Lax");
+        if (req.isSecure()) {
+            header.append("; Secure");
+        }
+        res.addHeader("Set-Cookie", header.toString());
+    }
+}
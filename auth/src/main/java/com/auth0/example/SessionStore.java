@@ -0,0 +1,67 @@
+package com.auth0.example;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * SessionStore - Where the AuthSession lives between requests.
+ * Implementations:
+ * <ul>
+ *     <li>ContainerSessionStore - the servlet container's HttpSession (the default)</li>
+ *     <li>CookieSessionStore - an encrypted cookie, no server-side state</li>
+ *     <li>ExternalSessionStore - a shared backend (Redis, or in-process memory for tests) with a near-cache</li>
+ * </ul>
+ * Use SessionStores.get(ServletContext) to obtain the store configured in web.xml.
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /**
+     * Loads the session of the current request. Never creates server-side state.
+     *
+     * @param req The HTTP request
+     * @return The session, or null if there is none or it has expired
+     * @throws IOException if the store cannot be reached
+     */
+    AuthSession load(HttpServletRequest req) throws IOException;
+
+    /**
+     * Stores a new or updated session and binds it to the browser.
+     *
+     * @param req     The HTTP request
+     * @param res     The HTTP response
+     * @param session The session to store
+     * @throws IOException if the store cannot be reached
+     */
+    void save(HttpServletRequest req, HttpServletResponse res, AuthSession session) throws IOException;
+
+    /**
+     * Replaces the data of the session the request is bound to, e.g. after its tokens were renewed,
+     * without issuing a new session id: parallel requests still carrying the current id must keep working.
+     *
+     * @param req     The HTTP request
+     * @param res     The HTTP response
+     * @param session The updated session, with the same id as the current one
+     * @throws IOException if the store cannot be reached
+     */
+    default void update(HttpServletRequest req, HttpServletResponse res, AuthSession session) throws IOException {
+        save(req, res, session);
+    }
+
+    /**
+     * Removes the session of the current request, if any, on every node. Never creates server-side state.
+     *
+     * @param req The HTTP request
+     * @param res The HTTP response
+     * @throws IOException if the store cannot be reached
+     */
+    void invalidate(HttpServletRequest req, HttpServletResponse res) throws IOException;
+
+    /**
+     * Releases connections and background threads.
+     */
+    @Override
+    default void close() {
+        // Nothing to release by default
+    }
+}
@@ -0,0 +1,104 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionStores - Creates the SessionStore selected by the com.auth0.session.mode context parameter
+ * and shares one instance per application through a ServletContext attribute:
+ * <ul>
+ *     <li>container (default) - ContainerSessionStore</li>
+ *     <li>cookie - CookieSessionStore</li>
+ *     <li>redis - ExternalSessionStore on Redis (com.auth0.session.redisUrl, or the REDIS_URL environment variable)</li>
+ *     <li>memory - ExternalSessionStore on an in-process backend, for tests and local runs</li>
+ * </ul>
+ */
+public final class SessionStores {
+
+    private static final String ATTRIBUTE = SessionStore.class.getName();
+
+    private SessionStores() {}
+
+    /**
+     * Gets the application's SessionStore, creating it on first use.
+     *
+     * @param context The ServletContext to read the configuration from
+     * @return The shared SessionStore
+     */
+    public static SessionStore get(ServletContext context) {
+        Object store = context.getAttribute(ATTRIBUTE);
+        if (store == null) {
+            synchronized (SessionStores.class) {
+                store = context.getAttribute(ATTRIBUTE);
+                if (store == null) {
+                    store = create(context);
+                    context.setAttribute(ATTRIBUTE, store);
+                }
+            }
+        }
+        return (SessionStore) store;
+    }
+
+    /**
+     * Closes the application's SessionStore, if one was created.
+     *
+     * @param context The ServletContext the store was published in
+     */
+    public static synchronized void close(ServletContext context) {
+        Object store = context.getAttribute(ATTRIBUTE);
+        if (store != null) {
+            context.removeAttribute(ATTRIBUTE);
+            ((SessionStore) store).close();
+        }
+    }
+
+    static String getCookieName(ServletContext context) {
+        String cookieName = context.getInitParameter("com.auth0.session.cookieName");
+        return cookieName == null || cookieName.trim().isEmpty() ? "zerp_session" : cookieName.trim();
+    }
+
+    private static SessionStore create(ServletContext context) {
+        String mode = context.getInitParameter("com.auth0.session.mode");
+        mode = mode == null ? "container" : mode.trim().toLowerCase();
+
+        switch (mode) {
+            case "container":
+                return new ContainerSessionStore();
+            case "cookie":
+                return CookieSessionStore.fromContext(context);
+            case "redis":
+                return external(context, new RedisSessionBackend(new RedisClient(
+                        getRedisUrl(context),
+                        AuthenticationControllerProvider.getIntParameter(context, "com.auth0.session.redisPoolSize", 8),
+                        AuthenticationControllerProvider.getIntParameter(context, "com.auth0.session.redisTimeoutMillis", 1000))));
+            case "memory":
+                return external(context, new InMemorySessionBackend());
+            default:
+                throw new IllegalArgumentException("Unknown com.auth0.session.mode: " + mode
+                        + " (expected container, cookie, redis or memory)");
+        }
+    }
+
+    private static SessionStore external(ServletContext context, SessionBackend backend) {
+        return new ExternalSessionStore(
+                backend,
+                getCookieName(context),
+                TimeUnit.SECONDS.toMillis(AuthenticationControllerProvider.getIntParameter(context, "com.auth0.session.nearCacheSeconds", 5)),
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.session.nearCacheMaxEntries", 10_000));
+    }
+
+    static String getRedisUrl(ServletContext context) {
+        String url = context.getInitParameter("com.auth0.session.redisUrl");
+        if (url == null || url.trim().isEmpty()) {
+            // Same variables the Node server reads
+            url = System.getenv("REDIS_URL");
+            if (url == null) {
+                url = System.getenv("FLY_REDIS_URL");
+            }
+        }
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing com.auth0.session.redisUrl (or REDIS_URL). Did you update src/main/webapp/WEB-INF/web.xml?");
+        }
+        return url.trim();
+    }
+}
@@ -0,0 +1,154 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * StaticResourceServlet - Serves the files under /static/ (stylesheets and the like) from memory, with a strong
+ * ETag derived from their content, the same way on every container. Text files are gzipped once, when first
+ * requested, and clients that accept gzip get that copy, so they are never compressed per request.
+ * Pages link them by their versioned URL (versionedUrl: /static/home.css?v=...), which changes with the content,
+ * so a request for the current version may be cached for a year; any other request has to revalidate, which
+ * costs a 304 while the file is unchanged.
+ */
+public class StaticResourceServlet extends HttpServlet {
+
+    static final String PATH = "/static";
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String name = req.getPathInfo();
+        if (name == null || name.endsWith("/") || name.contains("..")) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Files are read once; the webapp's static files don't change while it runs
+        Resource resource = resources.get(name);
+        if (resource == null) {
+            resource = Resource.load(getServletContext(), name);
+            if (resource == null) {
+                res.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            resources.putIfAbsent(name, resource);
+        }
+
+        boolean gzip = resource.gzipped != null && CompressionFilter.acceptsGzip(req.getHeader("Accept-Encoding"));
+        // Each encoding is a representation of its own, with its own ETag
+        String etag = gzip ? resource.gzipEtag : resource.etag;
+        res.setHeader("ETag", etag);
+        res.setHeader("Cache-Control", resource.version.equals(req.getParameter("v")) ? IMMUTABLE : REVALIDATE);
+        if (resource.gzipped != null) {
+            res.setHeader("Vary", "Accept-Encoding");
+        }
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] content = gzip ? resource.gzipped : resource.content;
+        res.setContentType(resource.contentType);
+        if (gzip) {
+            res.setHeader("Content-Encoding", "gzip");
+        }
+        res.setContentLength(content.length);
+        res.getOutputStream().write(content);
+    }
+
+    /**
+     * The URL to link a static file by: it carries the file's version, so it can be cached for good.
+     *
+     * @param context The ServletContext the file is served from
+     * @param name    The file's path under /static, e.g. /home.css
+     * @return The context-relative URL with the version, e.g. /static/home.css?v=...
+     */
+    static String versionedUrl(ServletContext context, String name) throws IOException {
+        Resource resource = Resource.load(context, name);
+        if (resource == null) {
+            throw new IllegalArgumentException("Missing " + PATH + name);
+        }
+        return context.getContextPath() + PATH + name + "?v=" + resource.version;
+    }
+
+    private static final class Resource {
+        final byte[] content;
+        final String contentType;
+        final String version;
+        final String etag;
+        // Null when gzip doesn't make it smaller, e.g. for images
+        final byte[] gzipped;
+        final String gzipEtag;
+
+        private Resource(byte[] content, String contentType) throws IOException {
+            this.content = content;
+            this.contentType = contentType;
+            this.version = hash(content);
+            this.etag = '"' + version + '"';
+            this.gzipped = CompressionFilter.isCompressible(contentType) ? gzip(content) : null;
+            this.gzipEtag = '"' + version + "-gzip\"";
+        }
+
+        /**
+         * @return The file, or null if there is none
+         */
+        static Resource load(ServletContext context, String name) throws IOException {
+            try (InputStream in = context.getResourceAsStream(PATH + name)) {
+                if (in == null) {
+                    return null;
+                }
+                String contentType = context.getMimeType(name);
+                if (contentType == null) {
+                    contentType = "application/octet-stream";
+                } else if (contentType.startsWith("text/") && !contentType.contains("charset")) {
+                    contentType += ";charset=UTF-8";
+                }
+                return new Resource(in.readAllBytes(), contentType);
+            }
+        }
+
+        private static byte[] gzip(byte[] content) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length);
+            // Done once per file, so the strongest compression is affordable
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                out.write(content);
+            }
+            return bytes.size() < content.length ? bytes.toByteArray() : null;
+        }
+
+        private static String hash(byte[] content) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+                // 96 bits are plenty to tell versions of one file apart
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.auth0.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TokenExchangeExecutor - Runs the blocking code-for-token exchanges of the CallbackServlet, so they wait on Auth0
+ * without holding a container thread.
+ * At most maxConcurrent exchanges run at once and at most maxQueued more wait for a slot; anything beyond that
+ * is rejected right away, so a login peak turns into quick 503s instead of a pile-up.
+ * <p>
+ * On Java 21 and later every exchange gets its own virtual thread (the concurrency limit still applies);
+ * on older runtimes a fixed pool of platform threads is used.
+ */
+final class TokenExchangeExecutor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenExchangeExecutor.class);
+
+    private final ThreadPoolExecutor pool;
+    private final ThreadFactory virtualThreads;
+    private final Semaphore running;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final int maxAdmitted;
+    private volatile boolean closed;
+
+    /**
+     * @param maxConcurrent The maximum number of exchanges running at once
+     * @param maxQueued     The maximum number of exchanges waiting for a slot
+     */
+    TokenExchangeExecutor(int maxConcurrent, int maxQueued) {
+        this.maxAdmitted = maxConcurrent + maxQueued;
+        this.virtualThreads = virtualThreadFactory();
+        if (virtualThreads != null) {
+            this.pool = null;
+            this.running = new Semaphore(maxConcurrent);
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(maxQueued, 1)), runnable -> {
+                        Thread thread = new Thread(runnable, "token-exchange-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+            this.running = null;
+        }
+    }
+
+    /**
+     * Creates an executor sized by the com.auth0.callback.maxConcurrent and com.auth0.callback.maxQueued
+     * context parameters.
+     *
+     * @param context The ServletContext to read the configuration from
+     * @return The executor
+     */
+    static TokenExchangeExecutor fromContext(ServletContext context) {
+        return new TokenExchangeExecutor(
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.callback.maxConcurrent", 32),
+                AuthenticationControllerProvider.getIntParameter(context, "com.auth0.callback.maxQueued", 256));
+    }
+
+    /**
+     * Starts an exchange, unless too many are already running or waiting.
+     *
+     * @param exchange The exchange
+     * @return false if the exchange was rejected and will not run
+     */
+    boolean submit(Runnable exchange) {
+        if (closed || admitted.incrementAndGet() > maxAdmitted) {
+            admitted.decrementAndGet();
+            return false;
+        }
+        Runnable task = () -> {
+            try {
+                exchange.run();
+            } finally {
+                admitted.decrementAndGet();
+            }
+        };
+        try {
+            if (pool != null) {
+                pool.execute(task);
+            } else {
+                virtualThreads.newThread(() -> {
+                    running.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                    }
+                }).start();
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Looks up Thread.ofVirtual() reflectively, so the code still compiles and runs on Java 11.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "token-exchange-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads are not available, using a platform thread pool for token exchanges", e);
+            return null;
+        }
+    }
+}
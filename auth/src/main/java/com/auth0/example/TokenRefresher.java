@@ -0,0 +1,257 @@
+package com.auth0.example;
+
+import com.auth0.Tokens;
+import com.auth0.client.HttpOptions;
+import com.auth0.client.auth.AuthAPI;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TokenRefresher - Renews a session's tokens with its refresh token shortly before they expire, so an active
+ * user is never sent through the login redirects again. Auth0Filter calls it on protected requests.
+ * <p>
+ * Refreshes are single-flight per session: when parallel tabs or XHRs of one session all find it due, the first
+ * one calls Auth0 and the others wait for and share its result. The result is also remembered for a grace
+ * period, so a request that still carries the old refresh token (e.g. one that read the session just before it
+ * was updated) reuses it instead of presenting a rotated-out token, which Auth0 would treat as token theft.
+ * A failed refresh is remembered the same way, so a broken refresh token costs one call per grace period and
+ * the user simply logs in again when the session expires.
+ * <p>
+ * The call to Auth0 runs on a bounded TokenExchangeExecutor rather than the container thread: requests wait for
+ * it at most com.auth0.refresh.timeoutMillis and then carry on with the current session while it is still valid. The renewed session is stored by the first request that sees it, on its own thread, so a refresh that
+ * outlives the request that started it is still saved by the next request of the session.
+ * <p>
+ * Only stores that keep tokens can refresh; a CookieSessionStore session has no refresh token and expires as
+ * before. The single-flight is per node: with the Redis store, nodes that refresh the same session at the same
+ * moment rely on the reuse interval of Auth0's refresh token rotation.
+ */
+final class TokenRefresher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRefresher.class);
+
+    private final AuthAPI authAPI;
+    private final TokenVerifier tokenVerifier;
+    private final TokenExchangeExecutor executor;
+    private final long refreshAheadMillis;
+    private final long waitMillis;
+    private final long graceNanos;
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Stores a renewed session; called on the thread of the first request that sees the renewed session only.
+     */
+    interface Saver {
+        void save(AuthSession renewed) throws IOException;
+    }
+
+    /**
+     * @param authAPI            The client for Auth0's token endpoint
+     * @param tokenVerifier      Verifies the renewed ID token
+     * @param executor           Runs the calls to Auth0
+     * @param refreshAheadMillis How long before the session expires it is refreshed
+     * @param waitMillis         How long a request waits for a refresh, its own or one another request started
+     * @param graceMillis        How long the outcome of a refresh is reused for requests with the old refresh token
+     */
+    TokenRefresher(AuthAPI authAPI, TokenVerifier tokenVerifier, TokenExchangeExecutor executor,
+                   long refreshAheadMillis, long waitMillis, long graceMillis) {
+        this.authAPI = authAPI;
+        this.tokenVerifier = tokenVerifier;
+        this.executor = executor;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.waitMillis = waitMillis;
+        this.graceNanos = TimeUnit.MILLISECONDS.toNanos(graceMillis);
+    }
+
+    /**
+     * Creates a refresher configured by the com.auth0.refresh.* context parameters; at most
+     * com.auth0.refresh.maxConcurrent refreshes run at once, and com.auth0.refresh.maxQueued more wait for a slot.
+     *
+     * @param context The ServletContext to read the configuration from
+     * @return The refresher
+     */
+    static TokenRefresher fromContext(ServletContext context) {
+        String domain = context.getInitParameter("com.auth0.domain");
+        String clientId = context.getInitParameter("com.auth0.clientId");
+        String clientSecret = context.getInitParameter("com.auth0.clientSecret");
+        if (domain == null || clientId == null || clientSecret == null) {
+            throw new IllegalArgumentException("Missing domain, clientId, or clientSecret. Did you update src/main/webapp/WEB-INF/web.xml?");
+        }
+
+        int timeoutMillis = AuthenticationControllerProvider.getIntParameter(context, "com.auth0.refresh.timeoutMillis", 5000);
+        HttpOptions options = new HttpOptions();
+        // The client takes whole seconds
+        options.setConnectTimeout(Math.max((timeoutMillis + 999) / 1000, 1));
+        options.setReadTimeout(Math.max((timeoutMillis + 999) / 1000, 1));
+
+        return new TokenRefresher(
+                new AuthAPI(domain, clientId, clientSecret, options),
+                AuthenticationControllerProvider.getTokenVerifier(context),
+                new TokenExchangeExecutor(
+                        AuthenticationControllerProvider.getIntParameter(context, "com.auth0.refresh.maxConcurrent", 8),
+                        AuthenticationControllerProvider.getIntParameter(context, "com.auth0.refresh.maxQueued", 64)),
+                TimeUnit.SECONDS.toMillis(AuthenticationControllerProvider.getIntParameter(context, "com.auth0.refresh.aheadSeconds", 300)),
+                timeoutMillis,
+                TimeUnit.SECONDS.toMillis(AuthenticationControllerProvider.getIntParameter(context, "com.auth0.refresh.graceSeconds", 30)));
+    }
+
+    /**
+     * @param session   The current session
+     * @param nowMillis The current time
+     * @return true if the session has a refresh token and expires within the refresh window
+     */
+    boolean isDue(AuthSession session, long nowMillis) {
+        return session.getRefreshToken() != null && nowMillis >= session.getExpiresAtMillis() - refreshAheadMillis;
+    }
+
+    /**
+     * Renews the session's tokens, or joins a refresh of the same session that is running or just finished.
+     *
+     * @param session The session to renew
+     * @param saver   Stores the renewed session if this call is the first to see it
+     * @return The renewed session; if the refresh failed or took too long, the current session while it is still
+     * valid, else null
+     */
+    AuthSession refresh(AuthSession session, Saver saver) {
+        Flight flight = new Flight(session.getRefreshToken());
+        Flight existing = flights.putIfAbsent(session.getId(), flight);
+        while (existing != null) {
+            if (existing.refreshToken.equals(session.getRefreshToken()) && !existing.isStale(graceNanos)) {
+                // Someone already refreshed (or is refreshing) exactly this token
+                Metrics.REFRESH_JOINED.increment();
+                return finish(existing, session, saver);
+            }
+            // A previous generation of the session, or an outcome too old to reuse
+            if (flights.replace(session.getId(), existing, flight)) {
+                break;
+            }
+            existing = flights.putIfAbsent(session.getId(), flight);
+        }
+
+        sweep();
+        long start = System.nanoTime();
+        if (!executor.submit(() -> run(session, flight, start))) {
+            // Too many refreshes already; a later request of the session tries again
+            Metrics.REFRESH_REJECTED.increment();
+            flights.remove(session.getId(), flight);
+            flight.complete(null);
+            return current(session);
+        }
+        return finish(flight, session, saver);
+    }
+
+    private void run(AuthSession session, Flight flight, long start) {
+        AuthSession renewed = null;
+        try {
+            renewed = exchange(session);
+            Metrics.REFRESH_SUCCESS.increment();
+        } catch (IOException | RuntimeException e) {
+            // Auth0Exception is an IOException: Auth0 refused the refresh token or could not be reached;
+            // a JWTVerificationException means it sent an ID token that does not verify
+            log.warn("Refreshing the tokens of a session failed", e);
+            Metrics.REFRESH_FAILURE.increment();
+        } finally {
+            Metrics.TOKEN_REFRESH.recordSince(start);
+            flight.complete(renewed);
+        }
+    }
+
+    /**
+     * Waits for a refresh and stores its outcome if nobody has yet.
+     */
+    private AuthSession finish(Flight flight, AuthSession session, Saver saver) {
+        AuthSession renewed = await(flight);
+        if (renewed == null) {
+            return current(session);
+        }
+        if (flight.saved.compareAndSet(false, true)) {
+            try {
+                saver.save(renewed);
+            } catch (IOException e) {
+                // Leave it to the next request of the session
+                flight.saved.set(false);
+                log.warn("Storing a refreshed session failed", e);
+                return current(session);
+            }
+        }
+        return renewed;
+    }
+
+    /**
+     * The session to carry on with when there is no renewed one: the current session, until it expires.
+     */
+    private static AuthSession current(AuthSession session) {
+        return session.isExpired(System.currentTimeMillis()) ? null : session;
+    }
+
+    private AuthSession exchange(AuthSession session) throws Auth0Exception {
+        TokenHolder holder = authAPI.renewAuth(session.getRefreshToken()).execute();
+        if (holder.getIdToken() == null) {
+            throw new JWTVerificationException("The refresh response has no ID token; was the openid scope requested?");
+        }
+        Tokens tokens = new Tokens(holder.getAccessToken(), holder.getIdToken(), holder.getRefreshToken(),
+                holder.getTokenType(), holder.getExpiresIn());
+        return session.renewed(tokens, tokenVerifier.verify(holder.getIdToken()));
+    }
+
+    private AuthSession await(Flight flight) {
+        try {
+            return flight.result.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (TimeoutException e) {
+            Metrics.REFRESH_TIMEOUT.increment();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drops outcomes that are past their grace period. Refreshes are rare (about one per session per token
+     * lifetime), so a full pass over the few recent ones is cheap.
+     */
+    private void sweep() {
+        flights.values().removeIf(flight -> flight.isStale(graceNanos));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * One refresh of one refresh token: running until result completes, then reusable for the grace period.
+     */
+    private static final class Flight {
+        final String refreshToken;
+        final CompletableFuture<AuthSession> result = new CompletableFuture<>();
+        final AtomicBoolean saved = new AtomicBoolean();
+        volatile long completedAtNanos;
+
+        Flight(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
+
+        void complete(AuthSession renewed) {
+            completedAtNanos = System.nanoTime();
+            result.complete(renewed);
+        }
+
+        boolean isStale(long graceNanos) {
+            return result.isDone() && System.nanoTime() - completedAtNanos > graceNanos;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.auth0.example;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * TokenVerifier - Verifies RS256 tokens locally (signature, exp, aud and iss) against the
+ * JwkProvider shared with the AuthenticationController.
+ * Successful results are memoized per token until the token expires, so only the first
+ * request carrying a given token pays for the RSA signature check.
+ */
+public class TokenVerifier {
+
+    private final JWTVerifier verifier;
+    private final VerifiedTokenCache cache;
+
+    /**
+     * @param jwkProvider     The provider used to resolve signing keys by key id (kid)
+     * @param issuer          The expected iss claim, e.g. https://{YOUR-DOMAIN}/
+     * @param audience        The expected aud claim
+     * @param leewaySeconds   The clock skew tolerated on exp, nbf and iat
+     * @param maxCachedTokens The maximum number of verified tokens to remember; 0 disables caching
+     */
+    public TokenVerifier(JwkProvider jwkProvider, String issuer, String audience, long leewaySeconds, int maxCachedTokens) {
+        this.verifier = JWT.require(Algorithm.RSA256(new JwkKeyProvider(jwkProvider)))
+                .withIssuer(issuer)
+                .withAudience(audience)
+                .acceptLeeway(leewaySeconds)
+                .build();
+        this.cache = new VerifiedTokenCache(maxCachedTokens);
+    }
+
+    /**
+     * Verifies a token, answering from the cache when the same token was verified before.
+     *
+     * @param token The raw JWT
+     * @return The verified token
+     * @throws JWTVerificationException if the token is malformed, forged, expired or issued for someone else
+     */
+    public VerifiedToken verify(String token) throws JWTVerificationException {
+        VerifiedToken verified = cache.get(token);
+        if (verified != null) {
+            return verified;
+        }
+
+        DecodedJWT jwt = verifier.verify(token);
+        if (jwt.getExpiresAt() == null) {
+            // Never remember (or accept) a token that would be valid forever
+            throw new JWTVerificationException("The token has no exp claim");
+        }
+        verified = new VerifiedToken(jwt);
+        cache.put(token, verified);
+        return verified;
+    }
+
+    /**
+     * @return The number of verification results currently cached
+     */
+    public int cachedTokens() {
+        return cache.size();
+    }
+
+    /**
+     * Adapts a JwkProvider to the key lookup interface of java-jwt.
+     */
+    private static final class JwkKeyProvider implements RSAKeyProvider {
+
+        private final JwkProvider jwkProvider;
+
+        JwkKeyProvider(JwkProvider jwkProvider) {
+            this.jwkProvider = jwkProvider;
+        }
+
+        @Override
+        public RSAPublicKey getPublicKeyById(String keyId) {
+            try {
+                PublicKey key = jwkProvider.get(keyId).getPublicKey();
+                if (!(key instanceof RSAPublicKey)) {
+                    throw new IllegalStateException("Key " + keyId + " is not an RSA key");
+                }
+                return (RSAPublicKey) key;
+            } catch (JwkException e) {
+                // java-jwt reports this as a SignatureVerificationException
+                throw new IllegalStateException("Could not resolve signing key " + keyId, e);
+            }
+        }
+
+        @Override
+        public RSAPrivateKey getPrivateKey() {
+            return null;
+        }
+
+        @Override
+        public String getPrivateKeyId() {
+            return null;
+        }
+    }
+}
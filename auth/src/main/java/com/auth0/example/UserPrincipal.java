@@ -0,0 +1,156 @@
+package com.auth0.example;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * UserPrincipal - The signed-in user as protected servlets see it: subject, display name, email, organization,
+ * granted scopes and the time the authentication stops being valid.
+ * Auth0Filter publishes it as a request attribute; it is built once per session and cached by PrincipalCache,
+ * so reading it costs no token decoding or claim parsing. BearerTokenFilter publishes the principal of an API
+ * access token the same way, built once per token.
+ */
+public final class UserPrincipal implements Principal {
+
+    /**
+     * Request attribute under which Auth0Filter publishes the current principal.
+     */
+    public static final String REQUEST_ATTRIBUTE = "com.auth0.principal";
+
+    private final String subject;
+    private final String displayName;
+    private final String email;
+    private final String organization;
+    private final Set<String> scopes;
+    private final long expiresAtMillis;
+    // The scopes as bits of the AccessRules that last checked this principal
+    private volatile ScopeBits scopeBits;
+
+    private UserPrincipal(String subject, String displayName, String email, String organization,
+                          Set<String> scopes, long expiresAtMillis) {
+        this.subject = subject;
+        this.displayName = displayName;
+        this.email = email;
+        this.organization = organization;
+        this.scopes = scopes;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * Builds the principal of a session.
+     *
+     * @param session        The session
+     * @param idTokenExpires The expiry of the session's verified ID token in epoch milliseconds,
+     *                       or Long.MAX_VALUE when the store keeps no tokens
+     * @return The principal, valid until the session or its ID token expires, whichever comes first
+     */
+    static UserPrincipal of(AuthSession session, long idTokenExpires) {
+        return new UserPrincipal(session.getSubject(), session.getName(), session.getEmail(),
+                session.getOrganization(), toSet(session.getScope()), Math.min(session.getExpiresAtMillis(), idTokenExpires));
+    }
+
+    /**
+     * Builds the principal of a verified access token, e.g. a machine-to-machine client's.
+     *
+     * @param accessToken The verified access token
+     * @return The principal, valid until the token expires
+     */
+    static UserPrincipal of(VerifiedToken accessToken) {
+        DecodedJWT jwt = accessToken.getJwt();
+        return new UserPrincipal(jwt.getSubject(), jwt.getClaim("name").asString(), jwt.getClaim("email").asString(),
+                jwt.getClaim("org_id").asString(), toSet(AuthSession.grantedScope(jwt)), accessToken.getExpiresAtMillis());
+    }
+
+    private static Set<String> toSet(String scope) {
+        if (scope == null) {
+            return Collections.emptySet();
+        }
+        Set<String> scopes = new HashSet<>();
+        Collections.addAll(scopes, scope.split(" "));
+        return Collections.unmodifiableSet(scopes);
+    }
+
+    /**
+     * @return The subject, i.e. the Auth0 user id
+     */
+    @Override
+    public String getName() {
+        return subject;
+    }
+
+    /**
+     * @return The subject (sub) claim, i.e. the Auth0 user id
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return The user's display name (name claim), or null
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return The organization (org_id claim), or null
+     */
+    public String getOrganization() {
+        return organization;
+    }
+
+    /**
+     * @return The granted scopes and permissions; empty if none are known
+     */
+    public Set<String> getScopes() {
+        return scopes;
+    }
+
+    public boolean hasScope(String scope) {
+        return scopes.contains(scope);
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    /**
+     * @param rules The compiled access rules
+     * @return The granted scopes as the rules' bitset, computed on the first check and then reused
+     */
+    long[] scopeBits(AccessRules rules) {
+        ScopeBits bits = scopeBits;
+        if (bits == null || bits.rules != rules) {
+            bits = new ScopeBits(rules, rules.toBits(scopes));
+            scopeBits = bits;
+        }
+        return bits.bits;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal[" + subject + "]";
+    }
+
+    private static final class ScopeBits {
+        final AccessRules rules;
+        final long[] bits;
+
+        ScopeBits(AccessRules rules, long[] bits) {
+            this.rules = rules;
+            this.bits = bits;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.auth0.example;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * VerifiedToken - The outcome of a successful local JWT verification.
+ * Protected servlets read the user's identity from the UserPrincipal that Auth0Filter publishes instead.
+ */
+public final class VerifiedToken {
+
+    private final DecodedJWT jwt;
+    private final long expiresAtMillis;
+    private volatile UserPrincipal principal;
+
+    VerifiedToken(DecodedJWT jwt) {
+        this.jwt = jwt;
+        this.expiresAtMillis = jwt.getExpiresAt().getTime();
+    }
+
+    /**
+     * @return The subject (sub) claim, i.e. the Auth0 user id
+     */
+    public String getSubject() {
+        return jwt.getSubject();
+    }
+
+    /**
+     * @return The expiration time (exp) claim in epoch milliseconds
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * @return The decoded token, for reading additional claims
+     */
+    public DecodedJWT getJwt() {
+        return jwt;
+    }
+
+    /**
+     * @return The principal of this token when it is an access token, built on first use and then reused for as
+     *         long as the verification result is cached
+     */
+    UserPrincipal toPrincipal() {
+        UserPrincipal built = principal;
+        if (built == null) {
+            built = UserPrincipal.of(this);
+            principal = built;
+        }
+        return built;
+    }
+
+    boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,95 @@
+package com.auth0.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * VerifiedTokenCache - A bounded, expiry-aware memo of successfully verified tokens.
+ * Entries are keyed by the first 128 bits of the token's SHA-256 hash, so the cache never
+ * retains raw tokens, and each entry lives only until the token's own exp claim.
+ * Failed verifications are never cached. A full cache is swept as BoundedCache describes.
+ */
+final class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    });
+
+    private final BoundedCache<TokenKey, VerifiedToken> entries;
+
+    VerifiedTokenCache(int maxEntries) {
+        this.entries = new BoundedCache<>(maxEntries, System::currentTimeMillis, VerifiedToken::isExpired);
+    }
+
+    /**
+     * Looks up a token that was verified before and has not expired yet.
+     *
+     * @param token The raw JWT
+     * @return The cached verification result, or null on a miss
+     */
+    VerifiedToken get(String token) {
+        TokenKey key = TokenKey.of(token);
+        VerifiedToken verified = entries.get(key);
+        if (verified == null) {
+            return null;
+        }
+        if (verified.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * Remembers a successful verification until the token expires.
+     *
+     * @param token    The raw JWT
+     * @param verified The verification result
+     */
+    void put(String token, VerifiedToken verified) {
+        entries.put(TokenKey.of(token), verified);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 128-bit token fingerprint used as the map key.
+     */
+    private static final class TokenKey {
+        private final long hi;
+        private final long lo;
+
+        private TokenKey(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        static TokenKey of(String token) {
+            MessageDigest digest = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenKey(hash.getLong(), hash.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TokenKey)) {
+                return false;
+            }
+            TokenKey other = (TokenKey) o;
+            return hi == other.hi && lo == other.lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebhookDispatcher - Delivers the EventBus's events to the WebhookEndpoints subscribed to them, as the portal's
+ * triggerWebhooks does: a POST of {"event", "timestamp", "data"} with X-ZeroERP-Event, X-ZeroERP-Timestamp and
+ * X-ZeroERP-Signature, the hex HMAC-SHA256 of the body with the endpoint's secret. Unlike it, the dispatcher
+ * doesn't hold up the publisher and doesn't give up on the first failure:
+ * <ul>
+ *     <li>It is a consumer of the bus, so events are serialized on the bus's thread, not the request's; endpoints
+ *     are indexed by event type, so an event nobody subscribed to costs one array lookup, and an event is
+ *     serialized once, all its deliveries sending the same bytes</li>
+ *     <li>Each endpoint has a bounded queue and a limit on its requests in flight, so a slow endpoint holds
+ *     neither unbounded memory nor the other endpoints' deliveries; a delivery that finds its queue full is
+ *     dropped, logged and counted</li>
+ *     <li>Requests go through one HttpClient, which keeps the connections to each endpoint alive</li>
+ *     <li>A delivery that fails with a network error, a timeout, 408, 429 or a 5xx is retried after 1, 2, 4...
+ *     seconds, at most 10 minutes, with 20% jitter, until maxAttempts; other responses are final. With a retry
+ *     directory, waiting retries are kept in a WebhookRetryStore, and so are undelivered events at shutdown</li>
+ * </ul>
+ * Every attempt of a delivery carries the same X-ZeroERP-Delivery id: delivery is at least once, and an endpoint
+ * can ignore an id it has seen.
+ */
+public class WebhookDispatcher implements EventBus.Handler, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final long RETRY_BASE_MILLIS = 1000;
+    private static final long RETRY_MAX_MILLIS = 10 * 60 * 1000;
+    // How long a retry that finds its endpoint's queue full waits to try again
+    private static final long REQUEUE_MILLIS = 1000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Lane[] NO_LANES = new Lane[0];
+
+    // By EventBus.Type ordinal
+    private final Lane[][] byType = new Lane[EventBus.Type.values().length][];
+    private final Map<String, Lane> byUrl = new HashMap<>();
+    private final int maxAttempts;
+    private final WebhookRetryStore retries;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final ScheduledThreadPoolExecutor scheduler;
+    // Unique over restarts: the start time, then a count
+    private final String idPrefix = Long.toString(System.currentTimeMillis(), 36) + "-";
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param endpoints      The endpoints and the events each receives
+     * @param queueCapacity  The most deliveries waiting for each endpoint
+     * @param concurrency    The most requests in flight to each endpoint
+     * @param maxAttempts    The most times a delivery is sent
+     * @param retryDirectory Where to keep retries over restarts, or null to keep them in memory only
+     * @throws IOException if the stored retries can't be read
+     */
+    public WebhookDispatcher(List<WebhookEndpoint> endpoints, int queueCapacity, int concurrency, int maxAttempts,
+                             Path retryDirectory) throws IOException {
+        if (queueCapacity < 1 || concurrency < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Webhook queue capacity, concurrency and attempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+
+        Map<EventBus.Type, List<Lane>> index = new EnumMap<>(EventBus.Type.class);
+        for (WebhookEndpoint endpoint : endpoints) {
+            Lane lane = new Lane(endpoint, queueCapacity, concurrency);
+            byUrl.put(lane.url, lane);
+            for (String event : endpoint.getEvents()) {
+                index.computeIfAbsent(EventBus.Type.forName(event), e -> new ArrayList<>()).add(lane);
+            }
+        }
+        for (EventBus.Type type : EventBus.Type.values()) {
+            List<Lane> lanes = index.get(type);
+            byType[type.ordinal()] = lanes == null ? NO_LANES : lanes.toArray(new Lane[0]);
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "webhook-dispatch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // No endpoints, no client and its selector thread
+        client = endpoints.isEmpty() ? null : HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .executor(executor)
+                .build();
+        scheduler = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "webhook-retries");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        retries = retryDirectory == null ? null : new WebhookRetryStore(retryDirectory);
+        if (retries != null) {
+            int restored = 0;
+            for (Delivery delivery : retries.load()) {
+                Lane lane = byUrl.get(delivery.url);
+                if (lane == null) {
+                    log.warn("Dropping the retry of webhook delivery {} to {}, which is no longer an endpoint",
+                            delivery.id, delivery.url);
+                    retries.delete(delivery);
+                    continue;
+                }
+                schedule(lane, delivery, Math.max(0, delivery.dueAtMillis - System.currentTimeMillis()));
+                restored++;
+            }
+            if (restored > 0) {
+                log.info("Restored {} webhook retries from {}", restored, retryDirectory);
+            }
+        }
+    }
+
+    /**
+     * Queues the event for its endpoints; the requests are sent from the dispatcher's own threads.
+     */
+    @Override
+    public void onEvent(EventBus.Event event, boolean endOfBatch) {
+        Lane[] lanes = byType[event.getType().ordinal()];
+        if (lanes.length == 0 || closed) {
+            return;
+        }
+        String type = event.getType().getName();
+        String timestamp = event.getTimestamp();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonGenerator json = ApiJson.MAPPER.getFactory().createGenerator(bytes)) {
+            json.writeStartObject();
+            json.writeStringField("event", type);
+            json.writeStringField("timestamp", timestamp);
+            json.writeFieldName("data");
+            event.writeData(json);
+            json.writeEndObject();
+        } catch (IOException e) {
+            log.error("Couldn't serialize the {} event for its webhooks", type, e);
+            return;
+        }
+        byte[] body = bytes.toByteArray();
+        for (Lane lane : lanes) {
+            Delivery delivery = new Delivery(idPrefix + Long.toString(nextId.incrementAndGet(), 36), lane.url,
+                    type, timestamp, body, 1, 0);
+            if (!lane.offer(delivery)) {
+                Metrics.WEBHOOK_DROPPED.increment();
+            }
+        }
+    }
+
+    /**
+     * @return The deliveries queued, in flight or waiting for a retry
+     */
+    public int pending() {
+        int pending = scheduler.getQueue().size();
+        for (Lane lane : byUrl.values()) {
+            pending += lane.pending();
+        }
+        return pending;
+    }
+
+    /**
+     * Stops sending, waits for the requests in flight to finish, and stores what is still queued as retries,
+     * if there is a retry directory; without one, it is lost.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Retries waiting in the scheduler are already stored
+        scheduler.shutdownNow();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        int stored = 0;
+        int lost = 0;
+        for (Lane lane : byUrl.values()) {
+            lane.awaitIdle(deadline);
+            for (Delivery delivery : lane.drain()) {
+                if (retries != null) {
+                    retries.save(delivery.dueAtMillis == 0
+                            ? delivery.at(delivery.attempt, System.currentTimeMillis()) : delivery);
+                    stored++;
+                } else {
+                    lost++;
+                }
+            }
+        }
+        executor.shutdown();
+        if (stored > 0) {
+            log.info("Stored {} undelivered webhooks for a retry after the restart", stored);
+        }
+        if (lost > 0) {
+            log.warn("Dropped {} undelivered webhooks at shutdown; set com.auth0.webhooks.retryDir to keep them", lost);
+        }
+    }
+
+    private void send(Lane lane, Delivery delivery) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(lane.endpoint.getUrl())
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("X-ZeroERP-Event", delivery.event)
+                .header("X-ZeroERP-Timestamp", delivery.timestamp)
+                .header("X-ZeroERP-Delivery", delivery.id)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(delivery.body));
+        if (lane.key != null) {
+            request.header("X-ZeroERP-Signature", sign(lane.key, delivery.body));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<Void>> response;
+        try {
+            response = client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        // On the executor, so a delivery that fails at once doesn't send the next one from this stack
+        response.whenCompleteAsync((result, error) -> completed(lane, delivery, start,
+                result == null ? 0 : result.statusCode(), error), executor);
+    }
+
+    private void completed(Lane lane, Delivery delivery, long start, int status, Throwable error) {
+        Metrics.WEBHOOK_DELIVERY.recordSince(start);
+        boolean stored = retries != null && delivery.dueAtMillis != 0;
+        if (error == null && status >= 200 && status < 300) {
+            Metrics.WEBHOOK_DELIVERED.increment();
+            if (stored) {
+                retries.delete(delivery);
+            }
+        } else if (delivery.attempt < maxAttempts
+                && (error != null || status == 408 || status == 429 || status >= 500)) {
+            Metrics.WEBHOOK_RETRIED.increment();
+            long delay = backoff(delivery.attempt);
+            log.debug("Webhook delivery {} to {} failed ({}); retrying in {} ms", delivery.id, lane.url,
+                    error != null ? error.toString() : status, delay);
+            Delivery retry = delivery.at(delivery.attempt + 1, System.currentTimeMillis() + delay);
+            if (retries != null) {
+                retries.save(retry);
+            }
+            schedule(lane, retry, delay);
+        } else {
+            Metrics.WEBHOOK_FAILED.increment();
+            log.warn("Giving up webhook delivery {} of {} to {} after {} attempts ({})", delivery.id, delivery.event,
+                    lane.url, delivery.attempt, error != null ? error.toString() : status);
+            if (stored) {
+                retries.delete(delivery);
+            }
+        }
+        // Only now, so pending() never misses a delivery between its attempt and its retry
+        lane.finished();
+        lane.pump();
+    }
+
+    private void schedule(Lane lane, Delivery delivery, long delayMillis) {
+        try {
+            scheduler.schedule(() -> {
+                if (!lane.offer(delivery)) {
+                    schedule(lane, delivery, REQUEUE_MILLIS);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closing: the retry is stored, if there is a retry directory
+        }
+    }
+
+    /**
+     * @return The delay before the retry after the given attempt failed: doubling from a second, with 20% jitter
+     */
+    static long backoff(int attempt) {
+        long delay = Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << Math.min(attempt - 1, 20));
+        return (long) (delay * (0.8 + 0.4 * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * @return The hex HMAC-SHA256 of the body
+     */
+    static String sign(SecretKeySpec key, byte[] body) {
+        byte[] mac;
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(key);
+            mac = hmac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is unavailable", e);
+        }
+        char[] hex = new char[mac.length * 2];
+        for (int i = 0; i < mac.length; i++) {
+            hex[2 * i] = HEX[(mac[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[mac[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * One attempt at delivering an event to an endpoint; immutable, and the body is shared by all the event's
+     * deliveries.
+     */
+    static final class Delivery {
+        final String id;
+        final String url;
+        final String event;
+        final String timestamp;
+        final byte[] body;
+        final int attempt;
+        // When a stored retry is due; 0 for a first attempt, which is never stored
+        final long dueAtMillis;
+
+        Delivery(String id, String url, String event, String timestamp, byte[] body, int attempt, long dueAtMillis) {
+            this.id = id;
+            this.url = url;
+            this.event = event;
+            this.timestamp = timestamp;
+            this.body = body;
+            this.attempt = attempt;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        Delivery at(int attempt, long dueAtMillis) {
+            return new Delivery(id, url, event, timestamp, body, attempt, dueAtMillis);
+        }
+    }
+
+    /**
+     * An endpoint's queue and its requests in flight.
+     */
+    private final class Lane {
+        final WebhookEndpoint endpoint;
+        final String url;
+        final SecretKeySpec key;
+        private final int capacity;
+        private final int concurrency;
+        private final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+        private int inFlight;
+        private boolean full;
+
+        Lane(WebhookEndpoint endpoint, int capacity, int concurrency) {
+            this.endpoint = endpoint;
+            this.url = endpoint.getUrl().toString();
+            this.key = endpoint.getSecret() == null ? null
+                    : new SecretKeySpec(endpoint.getSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            this.capacity = capacity;
+            this.concurrency = concurrency;
+        }
+
+        /**
+         * Queues a delivery, and has the executor send it if the concurrency limit allows, so the caller only
+         * pays for the queueing.
+         *
+         * @return false if the queue is full
+         */
+        boolean offer(Delivery delivery) {
+            boolean send;
+            synchronized (this) {
+                if (queue.size() >= capacity) {
+                    // Logged once each time the queue fills up, not for every delivery dropped
+                    if (!full) {
+                        full = true;
+                        log.warn("The webhook queue of {} is full ({} deliveries)", url, capacity);
+                    }
+                    return false;
+                }
+                queue.add(delivery);
+                send = inFlight < concurrency;
+            }
+            if (send) {
+                try {
+                    executor.execute(this::pump);
+                } catch (RejectedExecutionException e) {
+                    // Closed: the delivery stays queued for close to store
+                }
+            }
+            return true;
+        }
+
+        void pump() {
+            while (true) {
+                Delivery next;
+                synchronized (this) {
+                    if (closed || inFlight >= concurrency || queue.isEmpty()) {
+                        return;
+                    }
+                    next = queue.poll();
+                    if (queue.isEmpty()) {
+                        full = false;
+                    }
+                    inFlight++;
+                }
+                send(this, next);
+            }
+        }
+
+        synchronized void finished() {
+            if (--inFlight == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized int pending() {
+            return queue.size() + inFlight;
+        }
+
+        synchronized void awaitIdle(long deadlineNanos) {
+            long remaining;
+            while (inFlight > 0 && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        synchronized List<Delivery> drain() {
+            List<Delivery> left = new ArrayList<>(queue);
+            queue.clear();
+            return left;
+        }
+    }
+}
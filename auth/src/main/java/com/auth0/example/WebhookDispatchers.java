@@ -0,0 +1,70 @@
+package com.auth0.example;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * WebhookDispatchers - Shares one WebhookDispatcher per application through a ServletContext attribute, consuming
+ * the application's EventBus, with the endpoints of com.auth0.webhooks.endpoints (see WebhookEndpoint)
+ * and the queue, concurrency, retry and retry directory settings of the other com.auth0.webhooks parameters.
+ */
+public final class WebhookDispatchers {
+
+    private static final String ATTRIBUTE = WebhookDispatcher.class.getName();
+
+    private WebhookDispatchers() {}
+
+    /**
+     * Gets the application's WebhookDispatcher, creating it on first use.
+     *
+     * @param context The ServletContext to read the configuration from and keep the dispatcher in
+     * @return The shared WebhookDispatcher
+     */
+    public static WebhookDispatcher get(ServletContext context) {
+        Object dispatcher = context.getAttribute(ATTRIBUTE);
+        if (dispatcher == null) {
+            synchronized (WebhookDispatchers.class) {
+                dispatcher = context.getAttribute(ATTRIBUTE);
+                if (dispatcher == null) {
+                    dispatcher = create(context);
+                    EventBuses.get(context).subscribe("webhooks", (WebhookDispatcher) dispatcher,
+                            Metrics.EVENTS_LOST_WEBHOOKS);
+                    context.setAttribute(ATTRIBUTE, dispatcher);
+                }
+            }
+        }
+        return (WebhookDispatcher) dispatcher;
+    }
+
+    /**
+     * Closes the application's WebhookDispatcher, if one was created, storing its undelivered webhooks for retry.
+     * Close the EventBus first, so the events published before are queued for their webhooks.
+     *
+     * @param context The ServletContext the dispatcher was published in
+     */
+    public static synchronized void close(ServletContext context) {
+        Object dispatcher = context.getAttribute(ATTRIBUTE);
+        if (dispatcher != null) {
+            context.removeAttribute(ATTRIBUTE);
+            ((WebhookDispatcher) dispatcher).close();
+        }
+    }
+
+    private static WebhookDispatcher create(ServletContext context) {
+        String endpoints = context.getInitParameter("com.auth0.webhooks.endpoints");
+        String directory = context.getInitParameter("com.auth0.webhooks.retryDir");
+        Path retryDirectory = directory == null || directory.trim().isEmpty() ? null : Paths.get(directory.trim());
+        try {
+            return new WebhookDispatcher(WebhookEndpoint.parse(endpoints == null ? "" : endpoints),
+                    AuthenticationControllerProvider.getIntParameter(context, "com.auth0.webhooks.queueCapacity", 10000),
+                    AuthenticationControllerProvider.getIntParameter(context, "com.auth0.webhooks.concurrency", 4),
+                    AuthenticationControllerProvider.getIntParameter(context, "com.auth0.webhooks.maxAttempts", 10),
+                    retryDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't read the webhook retries in " + retryDirectory, e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.auth0.example;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * WebhookEndpoint - A URL that receives webhooks for some event types, as the portal's webhook registry holds them,
+ * with the secret its deliveries are signed with. The endpoints come from the com.auth0.webhooks.endpoints context
+ * parameter, one per line:
+ * <pre>
+ *     # URL                                  EVENTS (comma-separated)          SECRET (optional)
+ *     https://hooks.example.com/zeroerp      order.created,inventory.low       whsec_4f1c...
+ *     http://localhost:9000/erp-events       inventory.low
+ * </pre>
+ * Deliveries to an endpoint without a secret are not signed.
+ */
+public final class WebhookEndpoint {
+
+    private final URI url;
+    private final Set<String> events;
+    private final String secret;
+
+    public WebhookEndpoint(URI url, Set<String> events, String secret) {
+        if (!"http".equals(url.getScheme()) && !"https".equals(url.getScheme())) {
+            throw new IllegalArgumentException("A webhook URL must be http or https: " + url);
+        }
+        for (String event : events) {
+            if (EventBus.Type.forName(event) == null) {
+                throw new IllegalArgumentException("Unknown webhook event " + event + ", expected one of "
+                        + Arrays.toString(EventBus.Type.values()));
+            }
+        }
+        this.url = url;
+        this.events = Collections.unmodifiableSet(new LinkedHashSet<>(events));
+        this.secret = secret;
+    }
+
+    /**
+     * Parses endpoints in the format described above.
+     *
+     * @param endpoints The endpoints, one per line; blank lines and lines starting with # are ignored
+     * @return The endpoints, in order
+     * @throws IllegalArgumentException if an endpoint is malformed or a URL is given twice
+     */
+    static List<WebhookEndpoint> parse(String endpoints) {
+        List<WebhookEndpoint> parsed = new ArrayList<>();
+        Set<URI> urls = new LinkedHashSet<>();
+        int lineNumber = 0;
+        for (String line : endpoints.split("\n")) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2 || fields.length > 3) {
+                throw new IllegalArgumentException("Webhook endpoint " + lineNumber
+                        + " needs a URL, events and optionally a secret: " + line);
+            }
+            URI url;
+            try {
+                url = new URI(fields[0]);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Webhook endpoint " + lineNumber + " has a malformed URL: " + fields[0], e);
+            }
+            if (!urls.add(url)) {
+                throw new IllegalArgumentException("Webhook endpoint " + lineNumber + " repeats " + url);
+            }
+            Set<String> events = new LinkedHashSet<>();
+            for (String event : fields[1].split(",")) {
+                if (!event.isEmpty()) {
+                    events.add(event);
+                }
+            }
+            parsed.add(new WebhookEndpoint(url, events, fields.length == 3 ? fields[2] : null));
+        }
+        return parsed;
+    }
+
+    public URI getUrl() {
+        return url;
+    }
+
+    public Set<String> getEvents() {
+        return events;
+    }
+
+    /**
+     * The HMAC-SHA256 key of the X-ZeroERP-Signature header, or null to send deliveries unsigned.
+     */
+    public String getSecret() {
+        return secret;
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+}
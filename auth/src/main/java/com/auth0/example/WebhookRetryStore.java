@@ -0,0 +1,131 @@
+package com.auth0.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WebhookRetryStore - The webhook deliveries waiting for a retry, one file each in a directory, so a restart still
+ * retries them. A file is written when a delivery fails and deleted when the delivery succeeds or is given up; it
+ * holds the delivery's URL, event, timestamp, attempt, due time and body, not the endpoint's secret, which is
+ * looked up again when the delivery is sent.
+ * <p>
+ * Files are written to a temporary name and moved into place, so a crash leaves whole files, but aren't forced to
+ * disk: an endpoint that is down fails every delivery, and a force for each would cost more than the deliveries.
+ * A power loss may lose the latest retries.
+ */
+final class WebhookRetryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookRetryStore.class);
+
+    private static final String SUFFIX = ".retry";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final byte FORMAT = 1;
+
+    private final Path directory;
+
+    WebhookRetryStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't create the webhook retry directory " + directory, e);
+        }
+    }
+
+    /**
+     * Stores a delivery due for a retry, replacing any earlier file of the same delivery.
+     */
+    void save(WebhookDispatcher.Delivery delivery) {
+        Path file = directory.resolve(delivery.id + SUFFIX);
+        Path temp = directory.resolve(delivery.id + SUFFIX + TEMP_SUFFIX);
+        try {
+            Files.write(temp, encode(delivery));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The retry is still scheduled in memory; only a restart would lose it
+            log.warn("Couldn't store the retry of webhook delivery {} to {}", delivery.id, delivery.url, e);
+        }
+    }
+
+    void delete(WebhookDispatcher.Delivery delivery) {
+        try {
+            Files.deleteIfExists(directory.resolve(delivery.id + SUFFIX));
+        } catch (IOException e) {
+            log.warn("Couldn't delete the retry file of webhook delivery {}", delivery.id, e);
+        }
+    }
+
+    /**
+     * Reads every stored retry; unreadable files are logged and deleted, as are leftover temporary files.
+     *
+     * @return The deliveries due for a retry, in no particular order
+     */
+    List<WebhookDispatcher.Delivery> load() throws IOException {
+        List<WebhookDispatcher.Delivery> deliveries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    try {
+                        deliveries.add(decode(name.substring(0, name.length() - SUFFIX.length()),
+                                Files.readAllBytes(file)));
+                    } catch (IOException e) {
+                        log.warn("Discarding the unreadable webhook retry {}", file, e);
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        return deliveries;
+    }
+
+    private static byte[] encode(WebhookDispatcher.Delivery delivery) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(delivery.body.length + 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeUTF(delivery.url);
+            out.writeUTF(delivery.event);
+            out.writeUTF(delivery.timestamp);
+            out.writeInt(delivery.attempt);
+            out.writeLong(delivery.dueAtMillis);
+            out.writeInt(delivery.body.length);
+            out.write(delivery.body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static WebhookDispatcher.Delivery decode(String id, byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != FORMAT) {
+                throw new IOException("Unknown webhook retry format");
+            }
+            String url = in.readUTF();
+            String event = in.readUTF();
+            String timestamp = in.readUTF();
+            int attempt = in.readInt();
+            long dueAtMillis = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > bytes.length) {
+                throw new IOException("Malformed webhook retry");
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            return new WebhookDispatcher.Delivery(id, url, event, timestamp, body, attempt, dueAtMillis);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.auth0.example;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.DispatcherType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * EmbeddedServer - The production entry point: runs the application on an embedded Jetty 10 from a single jar
+ * (./gradlew serverJar, then java -jar build/libs/zeroerp-auth-server.jar [port] [virtual|platform]).
+ * <p>
+ * The listener, filters and servlets of web.xml are registered in code, so nothing is parsed or scanned at boot:
+ * no web.xml, no annotation, web-fragment or TLD scanning, and no JSP engine, as the pages are rendered in code
+ * (HomePage); logging is configured in code too (ServerLogging). What is left of a cold start is mostly the
+ * application's own: building the Auth0 client and warming the JWKS cache. Keep the registrations in step with
+ * web.xml, which Gretty and the war still use.
+ * <p>
+ * The context parameters of web.xml are read from system properties (-Dcom.auth0.domain=...), then environment
+ * variables (COM_AUTH0_DOMAIN=...: upper case, dots as underscores), then the properties file named by
+ * -Dzeroerp.config or ZEROERP_CONFIG; anything not set there takes the same default as when it is missing
+ * from web.xml. The port is the first argument, else $PORT, else 3000.
+ * <p>
+ * With -Dzeroerp.http2=true (or ZEROERP_HTTP2=true) the port also speaks cleartext HTTP/2 (h2c), both by
+ * upgrade and with prior knowledge, next to HTTP/1.1: for a proxy that talks HTTP/2 to its backends, and to
+ * try HTTP/2 locally without certificates.
+ * <p>
+ * Jetty 10 is the last javax.servlet line and the first that can run requests on virtual threads. On Java 21
+ * and later every request gets its own virtual thread: a callback or page that blocks on Auth0 or Redis no
+ * longer holds one of a fixed number of container threads. On older runtimes, or with "platform", Jetty's
+ * default pool of 200 platform threads is used, as under Gretty.
+ */
+public final class EmbeddedServer {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedServer.class);
+
+    private EmbeddedServer() {}
+
+    public static void main(String[] args) throws Exception {
+        String defaultPort = System.getenv("PORT") == null ? "3000" : System.getenv("PORT");
+        int port = Integer.parseInt(args.length > 0 && !args[0].isEmpty() ? args[0] : defaultPort);
+        boolean virtual = args.length <= 1 || args[1].isEmpty() || "virtual".equals(args[1]);
+
+        boolean http2 = Boolean.parseBoolean(System.getProperty("zeroerp.http2", System.getenv("ZEROERP_HTTP2")));
+
+        Server server = create(port, threadPool(virtual), http2, loadConfig());
+        server.setStopAtShutdown(true);
+        server.start();
+        log.info("Started on port {} ({}) with {} threads in {} ms",
+                ((ServerConnector) server.getConnectors()[0]).getLocalPort(),
+                http2 ? "HTTP/1.1 and h2c" : "HTTP/1.1",
+                VirtualThreads.isUseVirtualThreads(server.getThreadPool()) ? "virtual" : "platform",
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        server.join();
+    }
+
+    /**
+     * @param port       The HTTP port, or 0 for any free port
+     * @param threadPool The container's thread pool
+     * @param http2      Whether to accept cleartext HTTP/2 besides HTTP/1.1
+     * @param config     Context parameters that neither a system property nor an environment variable sets
+     * @return The server, not yet started
+     */
+    static Server create(int port, QueuedThreadPool threadPool, boolean http2, Properties config) {
+        Server server = new Server(threadPool);
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        HttpConnectionFactory http1 = new HttpConnectionFactory(httpConfig);
+        ServerConnector connector = http2
+                ? new ServerConnector(server, http1, new HTTP2CServerConnectionFactory(httpConfig))
+                : new ServerConnector(server, http1);
+        connector.setPort(port);
+        server.addConnector(connector);
+        server.setHandler(application(config));
+        return server;
+    }
+
+    /**
+     * Builds the application context the way web.xml describes it.
+     */
+    static ServletContextHandler application(Properties config) {
+        ServletContextHandler context = new ConfiguredContext(config);
+        context.setContextPath("/");
+        // The webapp directory minus web.xml, packaged as a classpath resource
+        context.setBaseResource(Resource.newClassPathResource("/webapp"));
+
+        context.addEventListener(new AuthenticationControllerListener());
+        context.addEventListener(new ErpContextListener());
+
+        FilterHolder rateLimitFilter = new FilterHolder(RateLimitFilter.class);
+        rateLimitFilter.setAsyncSupported(true);
+        context.addFilter(rateLimitFilter, "/login", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(rateLimitFilter, "/callback", EnumSet.of(DispatcherType.REQUEST));
+        FilterHolder compressionFilter = new FilterHolder(CompressionFilter.class);
+        context.addFilter(compressionFilter, "/portal/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(compressionFilter, "/api/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(Auth0Filter.class, "/portal/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(BearerTokenFilter.class, "/api/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(MetricsAccessFilter.class, "/metrics", EnumSet.of(DispatcherType.REQUEST));
+
+        context.addServlet(LoginServlet.class, "/login");
+        ServletHolder callbackServlet = new ServletHolder(CallbackServlet.class);
+        callbackServlet.setAsyncSupported(true);
+        context.addServlet(callbackServlet, "/callback");
+        context.addServlet(HomeServlet.class, "/portal/home").setInitOrder(1);
+        context.addServlet(LogoutServlet.class, "/logout");
+        context.addServlet(ApiMeServlet.class, "/api/me");
+        ServletHolder orderServlet = new ServletHolder(OrderServlet.class);
+        context.addServlet(orderServlet, "/portal/api/orders");
+        context.addServlet(orderServlet, "/portal/api/orders/*");
+        ServletHolder inventoryServlet = new ServletHolder(InventoryServlet.class);
+        context.addServlet(inventoryServlet, "/portal/api/inventory");
+        context.addServlet(inventoryServlet, "/portal/api/inventory/*");
+        context.addServlet(LowStockServlet.class, "/portal/api/inventory/check-levels");
+        context.addServlet(MetricsServlet.class, "/metrics");
+        context.addServlet(StaticResourceServlet.class, StaticResourceServlet.PATH + "/*");
+
+        // "/" is served by the login servlet, as web.xml's welcome file
+        ServletHolder defaultServlet = new ServletHolder("default", DefaultServlet.class);
+        defaultServlet.setInitParameter("dirAllowed", "false");
+        defaultServlet.setInitParameter("welcomeServlets", "true");
+        context.addServlet(defaultServlet, "/");
+        context.setWelcomeFiles(new String[]{"login"});
+        return context;
+    }
+
+    /**
+     * @param virtual Whether to run requests on virtual threads where the runtime supports them
+     * @return The container's thread pool
+     */
+    static QueuedThreadPool threadPool(boolean virtual) {
+        QueuedThreadPool pool = new QueuedThreadPool(200, 8);
+        pool.setName("http");
+        if (virtual) {
+            if (VirtualThreads.areSupported()) {
+                // The pool keeps running Jetty's selectors; requests are handed to virtual threads
+                pool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+            } else {
+                log.warn("Virtual threads need Java 21 or later, using platform threads on Java {}",
+                        Runtime.version().feature());
+            }
+        }
+        return pool;
+    }
+
+    private static Properties loadConfig() throws IOException {
+        Properties config = new Properties();
+        String file = System.getProperty("zeroerp.config", System.getenv("ZEROERP_CONFIG"));
+        if (file != null && !file.trim().isEmpty()) {
+            try (InputStream in = Files.newInputStream(Paths.get(file.trim()))) {
+                config.load(in);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * A context whose init parameters come from system properties, the environment and the configuration file.
+     */
+    private static final class ConfiguredContext extends ServletContextHandler {
+        private final Properties config;
+
+        ConfiguredContext(Properties config) {
+            super(ServletContextHandler.SESSIONS);
+            this.config = config;
+        }
+
+        @Override
+        public String getInitParameter(String name) {
+            String value = System.getProperty(name);
+            if (value == null) {
+                value = System.getenv(name.toUpperCase(Locale.ROOT).replace('.', '_'));
+            }
+            if (value == null) {
+                value = config.getProperty(name);
+            }
+            return value != null ? value : super.getInitParameter(name);
+        }
+    }
+}
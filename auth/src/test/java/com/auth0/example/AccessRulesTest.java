@@ -0,0 +1,141 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * AccessRulesTest - Matching requests against the compiled rules: "*" and "**" patterns, the most specific
+ * pattern winning, and method rules taking precedence over "*" rules.
+ */
+public class AccessRulesTest {
+
+    private static final UserPrincipal NOBODY = user(null);
+
+    @Test
+    public void pathsWithoutARuleOnlyNeedASession() {
+        AccessRules rules = AccessRules.compile("GET /portal/purchasing po:read");
+
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/other"), NOBODY));
+        assertTrue(AccessRules.compile("").isAllowed(request("DELETE", "/portal", "/purchasing"), NOBODY));
+    }
+
+    @Test
+    public void doubleStarMatchesThePathAndEverythingBelowIt() {
+        AccessRules rules = AccessRules.compile("* /portal/purchasing/** po:read");
+
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/purchasing"), NOBODY));
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/purchasing/orders/1"), NOBODY));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/purchasing/orders/1"), user("po:read")));
+        // Only at a segment boundary
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/purchasingx"), NOBODY));
+    }
+
+    @Test
+    public void starMatchesExactlyOneSegment() {
+        AccessRules rules = AccessRules.compile("GET /portal/*/reports reports:read");
+
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/sales/reports"), NOBODY));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/sales/reports"), user("reports:read")));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/reports"), NOBODY));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/a/b/reports"), NOBODY));
+    }
+
+    @Test
+    public void theMostSpecificPatternWins() {
+        AccessRules rules = AccessRules.compile(String.join("\n",
+                "*  /portal/**            admin",
+                "*  /portal/*/reports     reports:read",
+                "*  /portal/sales/reports -"));
+
+        // Literal before *, * before **
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/sales/reports"), NOBODY));
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/hr/reports"), NOBODY));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/hr/reports"), user("reports:read")));
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/hr/payroll"), user("reports:read")));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/hr/payroll"), user("admin")));
+    }
+
+    @Test
+    public void aMethodRuleReplacesTheStarRuleOfItsPattern() {
+        AccessRules rules = AccessRules.compile(String.join("\n",
+                "*                      /portal/purchasing/**  po:read",
+                "POST,PUT,PATCH,DELETE  /portal/purchasing/**  po:write"));
+
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/purchasing/orders"), user("po:read")));
+        assertTrue(rules.isAllowed(request("HEAD", "/portal", "/purchasing/orders"), user("po:read")));
+        assertFalse(rules.isAllowed(request("POST", "/portal", "/purchasing/orders"), user("po:read")));
+        assertTrue(rules.isAllowed(request("POST", "/portal", "/purchasing/orders"), user("po:write")));
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/purchasing/orders"), user("po:write")));
+    }
+
+    @Test
+    public void aPatternWithoutARuleForTheMethodFallsBackToALessSpecificOne() {
+        AccessRules rules = AccessRules.compile(String.join("\n",
+                "DELETE  /portal/**         admin",
+                "GET     /portal/*/reports  reports:read"));
+
+        assertFalse(rules.isAllowed(request("DELETE", "/portal", "/sales/reports"), user("reports:read")));
+        assertTrue(rules.isAllowed(request("DELETE", "/portal", "/sales/reports"), user("admin")));
+        assertTrue(rules.isAllowed(request("POST", "/portal", "/sales/reports"), NOBODY));
+    }
+
+    @Test
+    public void everyScopeOfARuleIsRequired() {
+        AccessRules rules = AccessRules.compile("GET /portal/a/b x y,z");
+
+        assertFalse(rules.isAllowed(request("GET", "/portal", "/a/b"), user("x y")));
+        assertTrue(rules.isAllowed(request("GET", "/portal", "/a/b"), user("x y z")));
+    }
+
+    @Test
+    public void handlesMoreScopesThanOneWordOfBits() {
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append("GET /p").append(i).append(" s").append(i).append('\n');
+        }
+        AccessRules rules = AccessRules.compile(many.toString());
+
+        assertTrue(rules.isAllowed(request("GET", "/p99", null), user("s99")));
+        assertFalse(rules.isAllowed(request("GET", "/p99", null), user("s98")));
+    }
+
+    @Test
+    public void rejectsMalformedRules() {
+        for (String rule : new String[]{"GET /a/**/b x", "GET /a/b* x", "GET /a x\nGET /a y", "GET a x", "TRACE /a x", "GET /a"}) {
+            try {
+                AccessRules.compile(rule);
+                fail("Compiled " + rule);
+            } catch (IllegalArgumentException expected) {
+                // Malformed
+            }
+        }
+    }
+
+    private static UserPrincipal user(String scope) {
+        long now = System.currentTimeMillis();
+        return UserPrincipal.of(new AuthSession("id", "auth0|1", null, null, null, scope, now, now + 60_000,
+                null, null, null), Long.MAX_VALUE);
+    }
+
+    private static HttpServletRequest request(String method, String servletPath, String pathInfo) {
+        return (HttpServletRequest) Proxy.newProxyInstance(AccessRulesTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "getMethod":
+                            return method;
+                        case "getServletPath":
+                            return servletPath;
+                        case "getPathInfo":
+                            return pathInfo;
+                        default:
+                            throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,99 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * AuthSessionTest - The versioned binary form of a session: the current format round trips, and sessions written
+ * by the older formats still read.
+ */
+public class AuthSessionTest {
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        AuthSession session = new AuthSession("id", "auth0|1", "Jane", null, "org_1", "read:orders", 1000, 2000,
+                "access", "id-token", "refresh");
+
+        AuthSession read = AuthSession.fromBytes(session.toBytes());
+        assertEquals("id", read.getId());
+        assertEquals("auth0|1", read.getSubject());
+        assertEquals("Jane", read.getName());
+        assertNull(read.getEmail());
+        assertEquals("org_1", read.getOrganization());
+        assertEquals("read:orders", read.getScope());
+        assertEquals(1000, read.getIssuedAtMillis());
+        assertEquals(2000, read.getExpiresAtMillis());
+        assertEquals("access", read.getAccessToken());
+        assertEquals("id-token", read.getIdToken());
+        assertEquals("refresh", read.getRefreshToken());
+    }
+
+    @Test
+    public void readsTheFormatWithoutScope() throws IOException {
+        AuthSession read = AuthSession.fromBytes(bytes(1, false, false));
+        assertEquals("auth0|1", read.getSubject());
+        assertNull(read.getScope());
+        assertEquals("access", read.getAccessToken());
+        assertNull(read.getRefreshToken());
+    }
+
+    @Test
+    public void readsTheFormatWithoutRefreshToken() throws IOException {
+        AuthSession read = AuthSession.fromBytes(bytes(2, true, false));
+        assertEquals("read:orders", read.getScope());
+        assertEquals("id-token", read.getIdToken());
+        assertNull(read.getRefreshToken());
+    }
+
+    @Test
+    public void rejectsUnknownFormats() {
+        for (int version : new int[]{0, 4}) {
+            try {
+                AuthSession.fromBytes(bytes(version, true, true));
+                fail("Read format " + version);
+            } catch (IOException expected) {
+                // Unknown format
+            }
+        }
+    }
+
+    /**
+     * A session as the given format version wrote it.
+     */
+    private static byte[] bytes(int version, boolean scope, boolean refreshToken) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(version);
+            out.writeLong(1000);
+            out.writeLong(2000);
+            writeString(out, "id");
+            writeString(out, "auth0|1");
+            writeString(out, null);
+            writeString(out, null);
+            writeString(out, null);
+            if (scope) {
+                writeString(out, "read:orders");
+            }
+            writeString(out, "access");
+            writeString(out, "id-token");
+            if (refreshToken) {
+                writeString(out, "refresh");
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * BoundedCacheTest - The sweep of a full cache: expired entries first, then down to 90% of the capacity.
+ */
+public class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger expired = new AtomicInteger();
+    private final AtomicInteger evicted = new AtomicInteger();
+
+    @Test
+    public void sweepsAFullCacheDownToNinetyPercent() {
+        BoundedCache<Integer, Long> cache = cache(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, Long.MAX_VALUE);
+        }
+        assertEquals(100, cache.size());
+
+        cache.put(100, Long.MAX_VALUE);
+        assertEquals(91, cache.size());
+        assertNotNull(cache.get(100));
+        assertEquals(0, expired.get());
+        assertEquals(10, evicted.get());
+
+        // The next sweep is a tenth of the capacity away
+        for (int i = 101; i < 110; i++) {
+            cache.put(i, Long.MAX_VALUE);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(10, evicted.get());
+    }
+
+    @Test
+    public void sweepsExpiredEntriesFirst() {
+        BoundedCache<Integer, Long> cache = cache(100);
+        for (int i = 0; i < 100; i++) {
+            // Every other entry expires at 10
+            cache.put(i, i % 2 == 0 ? 10 : Long.MAX_VALUE);
+        }
+        now.set(10);
+
+        cache.put(100, Long.MAX_VALUE);
+        assertEquals(51, cache.size());
+        assertEquals(50, expired.get());
+        assertEquals(0, evicted.get());
+        for (int i = 1; i < 100; i += 2) {
+            assertNotNull(cache.get(i));
+        }
+        assertNull(cache.get(0));
+    }
+
+    @Test
+    public void keepsNothingWithoutCapacity() {
+        BoundedCache<Integer, Long> cache = cache(0);
+        cache.put(1, Long.MAX_VALUE);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * A cache of values that expire at the time they hold.
+     */
+    private BoundedCache<Integer, Long> cache(int maxEntries) {
+        return new BoundedCache<>(maxEntries, now::get, (expiresAt, time) -> time >= expiresAt,
+                (expiredCount, evictedCount) -> {
+                    expired.addAndGet(expiredCount);
+                    evicted.addAndGet(evictedCount);
+                });
+    }
+}
@@ -0,0 +1,137 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * CookieSessionStoreTest - Sealing sessions into AES-GCM cookies: round trip, tamper rejection, key rotation.
+ */
+public class CookieSessionStoreTest {
+
+    private static final byte[] KEY = key(1);
+    private static final byte[] OLD_KEY = key(2);
+
+    @Test
+    public void loadsWhatItSavedWithoutTheTokens() throws IOException {
+        CookieSessionStore store = new CookieSessionStore(Collections.singletonList(KEY), "sid");
+        List<Cookie> cookies = save(store, session());
+
+        AuthSession loaded = store.load(request(cookies));
+        assertNotNull(loaded);
+        assertEquals("auth0|1", loaded.getSubject());
+        assertEquals("read:orders", loaded.getScope());
+        assertNull(loaded.getAccessToken());
+        assertNull(loaded.getRefreshToken());
+    }
+
+    @Test
+    public void rejectsATamperedCookie() throws IOException {
+        CookieSessionStore store = new CookieSessionStore(Collections.singletonList(KEY), "sid");
+        List<Cookie> cookies = save(store, session());
+        String value = cookies.get(0).getValue();
+        int middle = value.length() / 2;
+        char flipped = value.charAt(middle) == 'A' ? 'B' : 'A';
+        cookies.set(0, new Cookie("sid.0", value.substring(0, middle) + flipped + value.substring(middle + 1)));
+
+        assertNull(store.load(request(cookies)));
+    }
+
+    @Test
+    public void rejectsACookieMovedToAnotherName() throws IOException {
+        CookieSessionStore store = new CookieSessionStore(Collections.singletonList(KEY), "sid");
+        List<Cookie> cookies = save(store, session());
+        CookieSessionStore other = new CookieSessionStore(Collections.singletonList(KEY), "other");
+
+        assertNull(other.load(request(Collections.singletonList(new Cookie("other.0", cookies.get(0).getValue())))));
+    }
+
+    @Test
+    public void rejectsGarbageAndTruncatedCookies() {
+        CookieSessionStore store = new CookieSessionStore(Collections.singletonList(KEY), "sid");
+        assertNull(store.load(request(Collections.singletonList(new Cookie("sid.0", "not base64 !")))));
+        assertNull(store.load(request(Collections.singletonList(new Cookie("sid.0", "AAAA")))));
+        // A later chunk without the first
+        assertNull(store.load(request(Collections.singletonList(new Cookie("sid.1", "AAAA")))));
+    }
+
+    @Test
+    public void readsCookiesSealedWithARotatedOutKey() throws IOException {
+        CookieSessionStore old = new CookieSessionStore(Collections.singletonList(OLD_KEY), "sid");
+        List<Cookie> cookies = save(old, session());
+
+        assertNotNull(new CookieSessionStore(Arrays.asList(KEY, OLD_KEY), "sid").load(request(cookies)));
+        assertNull(new CookieSessionStore(Collections.singletonList(KEY), "sid").load(request(cookies)));
+    }
+
+    @Test
+    public void treatsAnExpiredSessionAsNone() throws IOException {
+        CookieSessionStore store = new CookieSessionStore(Collections.singletonList(KEY), "sid");
+        long past = System.currentTimeMillis() - 1000;
+        AuthSession expired = new AuthSession("id", "auth0|1", null, null, null, null, past - 1000, past,
+                null, null, null);
+
+        assertNull(store.load(request(save(store, expired))));
+    }
+
+    private static AuthSession session() {
+        long now = System.currentTimeMillis();
+        return new AuthSession(AuthSession.newSessionId(), "auth0|1", "Jane", "jane@example.com", null,
+                "read:orders", now, now + 3_600_000, "access", "id", "refresh");
+    }
+
+    private static List<Cookie> save(CookieSessionStore store, AuthSession session) throws IOException {
+        List<String> setCookies = new ArrayList<>();
+        store.save(request(Collections.emptyList()), response(setCookies), session);
+        List<Cookie> cookies = new ArrayList<>();
+        for (String header : setCookies) {
+            String pair = header.substring(0, header.indexOf(';'));
+            int equals = pair.indexOf('=');
+            cookies.add(new Cookie(pair.substring(0, equals), pair.substring(equals + 1)));
+        }
+        return cookies;
+    }
+
+    private static HttpServletRequest request(List<Cookie> cookies) {
+        return (HttpServletRequest) Proxy.newProxyInstance(CookieSessionStoreTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getCookies":
+                            return cookies.isEmpty() ? null : cookies.toArray(new Cookie[0]);
+                        case "isSecure":
+                            return true;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static HttpServletResponse response(List<String> setCookies) {
+        return (HttpServletResponse) Proxy.newProxyInstance(CookieSessionStoreTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("addHeader") && "Set-Cookie".equals(args[0])) {
+                        setCookies.add((String) args[1]);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static byte[] key(int seed) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) seed);
+        return key;
+    }
+}
@@ -0,0 +1,99 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EventBusTest - Delivery through the ring: every consumer sees every event in order, and a consumer that falls a
+ * whole ring behind skips ahead rather than holding up the publishers or seeing an overwritten event.
+ */
+public class EventBusTest {
+
+    private static final Metrics.Counter LOST = new Metrics.Counter("test_events_lost_total", "", "");
+
+    @Test
+    public void deliversEveryEventInOrderToEveryConsumer() {
+        EventBus bus = new EventBus(1024);
+        List<Long> first = Collections.synchronizedList(new ArrayList<>());
+        List<Long> second = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> endsOfBatch = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("first", (event, endOfBatch) -> {
+            first.add(event.getValue());
+            endsOfBatch.add(endOfBatch);
+        }, LOST);
+        bus.subscribe("second", (event, endOfBatch) -> second.add(event.getSequence()), LOST);
+
+        for (long i = 0; i < 500; i++) {
+            bus.publish(EventBus.Type.ORDER_CREATED, null, null, i);
+        }
+        bus.close();
+
+        List<Long> expected = new ArrayList<>();
+        for (long i = 0; i < 500; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        // The last event ends a batch, so a batching consumer writes it without waiting for more
+        assertTrue(endsOfBatch.get(endsOfBatch.size() - 1));
+        assertEquals(500, bus.published());
+        assertEquals(0, bus.backlog("first"));
+        assertEquals(-1, bus.backlog("none"));
+    }
+
+    @Test
+    public void aLappedConsumerSkipsToHalfARingBehind() throws InterruptedException {
+        EventBus bus = new EventBus(8);
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("slow", (event, endOfBatch) -> {
+            // Never a torn event: the value always belongs to the sequence
+            assertEquals(event.getSequence() * 3, event.getValue());
+            seen.add(event.getSequence());
+            handling.countDown();
+            release.await();
+        }, LOST);
+
+        bus.publish(EventBus.Type.ORDER_CREATED, null, null, 0);
+        assertTrue(handling.await(5, TimeUnit.SECONDS));
+        // The consumer is stuck on event 0 while the publisher laps it many times over, without waiting
+        for (long i = 1; i < 100; i++) {
+            bus.publish(EventBus.Type.ORDER_CREATED, null, null, i * 3);
+        }
+        release.countDown();
+        bus.close();
+
+        // Events 1 to 95 were lost; it goes on half a ring (4 slots) behind the publishers
+        assertEquals(Arrays.asList(0L, 96L, 97L, 98L, 99L), seen);
+        assertEquals(0, bus.backlog("slow"));
+    }
+
+    @Test
+    public void aFailingHandlerDoesNotStopItsConsumer() {
+        EventBus bus = new EventBus(16);
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("failing", (event, endOfBatch) -> {
+            seen.add(event.getValue());
+            if (event.getValue() == 1) {
+                throw new IllegalStateException("Expected by the test");
+            }
+        }, LOST);
+
+        for (long i = 0; i < 3; i++) {
+            bus.publish(EventBus.Type.ORDER_CREATED, null, null, i);
+        }
+        bus.close();
+
+        assertEquals(Arrays.asList(0L, 1L, 2L), seen);
+    }
+}
@@ -0,0 +1,86 @@
+package com.auth0.example;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * InMemoryRateLimiterTest - The sliding window arithmetic: what is admitted, and that Retry-After is neither
+ * too early nor later than needed.
+ */
+public class InMemoryRateLimiterTest {
+
+    private static final long WINDOW = 1000;
+
+    @Test
+    public void admitsUpToTheLimitWithoutAPreviousWindow() {
+        assertEquals(0, InMemoryRateLimiter.retryAfterMillis(0, 9, 10, 500, WINDOW));
+        assertTrue(InMemoryRateLimiter.retryAfterMillis(0, 10, 10, 500, WINDOW) > 0);
+    }
+
+    @Test
+    public void waitsForAFullWindowToSlidePartlyOut() {
+        // 10 of 10 used: the window ends in 500 ms, and a tenth of it must slide out after that
+        assertEquals(500 + 100, InMemoryRateLimiter.retryAfterMillis(0, 10, 10, 500, WINDOW));
+    }
+
+    @Test
+    public void weighsThePreviousWindowByTheTimeLeftOfIt() {
+        assertEquals(100, InMemoryRateLimiter.retryAfterMillis(10, 0, 10, 0, WINDOW));
+        assertEquals(1, InMemoryRateLimiter.retryAfterMillis(10, 0, 10, 99, WINDOW));
+        assertEquals(0, InMemoryRateLimiter.retryAfterMillis(10, 0, 10, 100, WINDOW));
+        // Half of the previous window is left, so 5 of it still count
+        assertEquals(0, InMemoryRateLimiter.retryAfterMillis(10, 4, 10, 500, WINDOW));
+        assertTrue(InMemoryRateLimiter.retryAfterMillis(10, 5, 10, 500, WINDOW) > 0);
+    }
+
+    @Test
+    public void retryAfterIsExactlyLongEnough() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            int limit = 1 + random.nextInt(50);
+            long window = 1 + random.nextInt(100_000);
+            long previous = random.nextInt(60);
+            long current = random.nextInt(60);
+            long elapsed = random.nextInt((int) window);
+            long retryAfter = InMemoryRateLimiter.retryAfterMillis(previous, current, limit, elapsed, window);
+            if (retryAfter == 0) {
+                continue;
+            }
+            String description = "previous " + previous + ", current " + current + ", limit " + limit
+                    + ", elapsed " + elapsed + ", window " + window;
+
+            // Coming back after retryAfter is admitted, in a new window if it has ended by then
+            long then = elapsed + retryAfter;
+            if (then < window) {
+                assertEquals(description, 0, InMemoryRateLimiter.retryAfterMillis(previous, current, limit, then, window));
+            } else {
+                // When all of a full window has to slide out, that is the very end of the next one
+                assertTrue(description, then - window <= window);
+                assertEquals(description, 0, InMemoryRateLimiter.retryAfterMillis(current, 0, limit, then - window, window));
+            }
+
+            // A millisecond earlier in the same window is not
+            if (retryAfter > 1 && then - 1 < window) {
+                assertTrue(description, InMemoryRateLimiter.retryAfterMillis(previous, current, limit, then - 1, window) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void countsKeysSeparately() {
+        InMemoryRateLimiter limiter = new InMemoryRateLimiter(64);
+        int admitted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limiter.acquire("a", 5, 60_000) == 0) {
+                admitted++;
+            }
+        }
+        // A window boundary may fall between the calls, weighing some of them as the previous window
+        assertTrue(admitted >= 5 && admitted <= 10);
+        assertEquals(0, limiter.acquire("b", 5, 60_000));
+    }
+}
@@ -0,0 +1,174 @@
+package com.auth0.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LowStockDetectorTest - The heap of low SKUs, worst first, and when inventory.low is published: on dropping to
+ * the safety stock, and again only after the stock has risen past the hysteresis.
+ */
+public class LowStockDetectorTest {
+
+    private InventoryLedger ledger;
+    private EventBus events;
+    private LowStockDetector detector;
+    private final List<String> published = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        ledger = new InventoryLedger(Arrays.asList("warehouse", "store"));
+        events = new EventBus(1024);
+        events.subscribe("test", (event, endOfBatch) -> published.add(((InventoryItem) event.getSubject()).getSku()),
+                Metrics.EVENTS_LOST_AUDIT);
+        detector = new LowStockDetector(ledger, events, 10);
+        ledger.setListener(detector);
+    }
+
+    @After
+    public void tearDown() {
+        events.close();
+    }
+
+    @Test
+    public void listsTheLowSkusWorstFirst() {
+        int a = item("A", 100, 90);
+        int b = item("B", 100, 40);
+        int c = item("C", 100, 100);
+        item("D", 100, 150);
+
+        assertEquals(3, detector.size());
+        List<LowStockDetector.Shortfall> worst = detector.worst(10);
+        assertEquals(Arrays.asList("B", "A", "C"), skus(worst));
+        assertEquals(60, worst.get(0).getDeficit());
+        assertEquals(0, worst.get(2).getDeficit());
+        assertEquals(Arrays.asList("B", "A"), skus(detector.worst(2)));
+
+        // A change to one SKU moves it within the heap, or out of it
+        ledger.move(a, 0, InventoryLedger.Movement.ADJUST, -80);
+        assertEquals(Arrays.asList("A", "B", "C"), skus(detector.worst(10)));
+        ledger.move(b, 0, InventoryLedger.Movement.RECEIVE, 61);
+        ledger.move(c, 0, InventoryLedger.Movement.RECEIVE, 1);
+        assertEquals(Collections.singletonList("A"), skus(detector.worst(10)));
+    }
+
+    @Test
+    public void publishesOnceUntilTheStockRisesPastTheHysteresis() {
+        int a = item("A", 100, 150);
+        assertEquals(0, drain().size());
+
+        ledger.move(a, 0, InventoryLedger.Movement.COUNT, 100);
+        assertEquals(Collections.singletonList("A"), drain());
+
+        // Hovering around the safety stock: in and out of the heap, but no more events
+        ledger.move(a, 0, InventoryLedger.Movement.RECEIVE, 10);
+        assertEquals(0, detector.size());
+        ledger.move(a, 0, InventoryLedger.Movement.ADJUST, -15);
+        assertEquals(1, detector.size());
+        assertEquals(0, drain().size());
+
+        // More than 10% above the safety stock clears the alert
+        ledger.move(a, 0, InventoryLedger.Movement.COUNT, 111);
+        ledger.move(a, 0, InventoryLedger.Movement.COUNT, 99);
+        assertEquals(Collections.singletonList("A"), drain());
+    }
+
+    @Test
+    public void aRaisedSafetyStockMakesASkuLow() {
+        item("A", 100, 120);
+        assertEquals(0, detector.size());
+
+        ledger.put(new InventoryItem("A", -1, "A", null, 150, null, null, null));
+        assertEquals(1, detector.size());
+        assertEquals(30, detector.worst(1).get(0).getDeficit());
+        assertEquals(Collections.singletonList("A"), drain());
+    }
+
+    @Test
+    public void agreesWithTheLedgerAfterConcurrentMovements() throws InterruptedException {
+        int skus = 200;
+        for (int i = 0; i < skus; i++) {
+            item("S" + i, 50, 60);
+        }
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 50_000; i++) {
+                        // Few SKUs and small steps, so the same SKU keeps crossing its safety stock on several threads
+                        ledger.move(random.nextInt(skus), random.nextInt(2), InventoryLedger.Movement.ADJUST,
+                                random.nextBoolean() ? 3 : -3);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+
+        int low = 0;
+        for (int i = 0; i < skus; i++) {
+            if (ledger.totalOnHand(i) <= 50) {
+                low++;
+            }
+        }
+        assertEquals(low, detector.size());
+        List<LowStockDetector.Shortfall> worst = detector.worst(skus);
+        assertEquals(low, worst.size());
+        for (int i = 0; i < worst.size(); i++) {
+            assertTrue(worst.get(i).getDeficit() >= 0);
+            assertTrue(i == 0 || worst.get(i - 1).getDeficit() >= worst.get(i).getDeficit());
+        }
+    }
+
+    private int item(String sku, long safetyStock, long onHand) {
+        int ordinal = ledger.put(new InventoryItem(sku, -1, sku, null, safetyStock, null, null, null)).getOrdinal();
+        ledger.move(ordinal, 0, InventoryLedger.Movement.COUNT, onHand);
+        return ordinal;
+    }
+
+    private static List<String> skus(List<LowStockDetector.Shortfall> shortfalls) {
+        List<String> skus = new ArrayList<>();
+        for (LowStockDetector.Shortfall shortfall : shortfalls) {
+            skus.add(shortfall.getItem().getSku());
+        }
+        return skus;
+    }
+
+    /**
+     * @return The SKUs inventory.low was published for since the last call
+     */
+    private List<String> drain() {
+        while (events.backlog("test") > 0) {
+            Thread.onSpinWait();
+        }
+        synchronized (published) {
+            List<String> skus = new ArrayList<>(published);
+            published.clear();
+            return skus;
+        }
+    }
+}
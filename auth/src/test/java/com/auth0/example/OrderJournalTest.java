@@ -0,0 +1,170 @@
+package com.auth0.example;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OrderJournalTest - Replay of the order journal after a crash, a snapshot and a snapshot's cleanup.
+ */
+public class OrderJournalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayStopsAtATornTailAndAppendsOverIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        OrderJournal journal = new OrderJournal(directory, SEGMENT_BYTES, 4);
+        journal.replay(order -> {});
+        journal.append(order(1, "pending"));
+        long intact = journal.append(order(2, "pending"));
+        long torn = journal.append(order(3, "pending"));
+        journal.close();
+
+        // The crash left the third record half written
+        Path segment = single(directory, ".log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            long half = intact + (torn - intact) / 2;
+            channel.write(ByteBuffer.allocate((int) (torn - half)), half);
+        }
+
+        Map<String, Order> orders = new HashMap<>();
+        journal = new OrderJournal(directory, SEGMENT_BYTES, 4);
+        journal.replay(order -> orders.put(order.getId(), order));
+        assertEquals(2, orders.size());
+        assertNull(orders.get("ord_3"));
+        assertEquals(intact, journal.position());
+
+        // Appends resume after the last intact record, over the cleared remains of the torn one
+        journal.append(order(4, "pending"));
+        journal.close();
+        Map<String, Order> replayed = replay(directory, 4);
+        assertEquals(3, replayed.size());
+        assertTrue(replayed.containsKey("ord_4"));
+        assertNull(replayed.get("ord_3"));
+    }
+
+    @Test
+    public void replayReadsTheSnapshotThenTheSegmentsAfterIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        OrderJournal journal = new OrderJournal(directory, SEGMENT_BYTES, 4);
+        journal.replay(order -> {});
+        List<Order> snapshotted = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            snapshotted.add(order(i, "pending"));
+            journal.append(snapshotted.get(i - 1));
+        }
+        journal.writeSnapshot(journal.position(), snapshotted);
+        journal.append(order(2, "shipped"));
+        journal.append(order(4, "pending"));
+        journal.close();
+
+        assertEquals(1, files(directory, ".snapshot").size());
+        Map<String, Order> orders = replay(directory, 4);
+        assertEquals(4, orders.size());
+        assertEquals("pending", orders.get("ord_1").getStatus());
+        assertEquals("shipped", orders.get("ord_2").getStatus());
+        assertEquals("pending", orders.get("ord_4").getStatus());
+    }
+
+    @Test
+    public void snapshotDeletesTheSegmentsBeforeIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        OrderJournal journal = new OrderJournal(directory, SEGMENT_BYTES, 1);
+        journal.replay(order -> {});
+        List<Order> orders = new ArrayList<>();
+        String padding = String.join("", Collections.nCopies(1024, "x"));
+        for (int i = 1; i <= 200; i++) {
+            Order order = order(i, "pending", padding);
+            orders.add(order);
+            journal.append(order);
+        }
+        assertTrue(files(directory, ".log").size() > 1);
+        assertTrue(journal.isSnapshotDue());
+
+        journal.writeSnapshot(journal.position(), orders);
+        assertEquals(1, files(directory, ".log").size());
+        assertEquals(1, files(directory, ".snapshot").size());
+        assertFalse(journal.isSnapshotDue());
+
+        journal.append(order(201, "pending"));
+        journal.close();
+        assertEquals(201, replay(directory, 1).size());
+    }
+
+    @Test
+    public void storeReplaysItsWrites() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        OrderStore store = new OrderStore(new OrderJournal(directory, SEGMENT_BYTES, 4));
+        Order created = store.create(JsonNodeFactory.instance.textNode("CUST-001"),
+                JsonNodeFactory.instance.arrayNode(), JsonNodeFactory.instance.textNode("1 Main St"),
+                JsonNodeFactory.instance.nullNode());
+        OrderStore.StatusChange change = store.updateStatus(created.getId(), "shipped");
+        assertEquals("pending", change.getPreviousStatus());
+        assertTrue(change.isChanged());
+        assertFalse(store.updateStatus(created.getId(), "shipped").isChanged());
+        store.close();
+
+        OrderStore replayed = new OrderStore(new OrderJournal(directory, SEGMENT_BYTES, 4));
+        try {
+            assertEquals(1, replayed.size());
+            assertEquals("shipped", replayed.get(created.getId()).getStatus());
+        } finally {
+            replayed.close();
+        }
+    }
+
+    private static Order order(int number, String status) {
+        return order(number, status, "");
+    }
+
+    private static Order order(int number, String status, String note) {
+        return new Order("ord_" + number, number, JsonNodeFactory.instance.textNode("CUST-001"),
+                JsonNodeFactory.instance.arrayNode(), JsonNodeFactory.instance.textNode("1 Main St"),
+                JsonNodeFactory.instance.textNode(note), status, BigDecimal.ZERO, number, number);
+    }
+
+    private static Map<String, Order> replay(Path directory, int snapshotSegments) throws IOException {
+        Map<String, Order> orders = new HashMap<>();
+        OrderJournal journal = new OrderJournal(directory, SEGMENT_BYTES, snapshotSegments);
+        journal.replay(order -> orders.put(order.getId(), order));
+        journal.close();
+        return orders;
+    }
+
+    private static Path single(Path directory, String suffix) throws IOException {
+        List<Path> files = files(directory, suffix);
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+
+    private static List<Path> files(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.auth0.example;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TokenVerifierTest - Local ID token verification: signature, issuer, audience and expiry, and the cache of
+ * verified tokens.
+ */
+public class TokenVerifierTest {
+
+    private static final String ISSUER = "https://tenant.auth0.com/";
+    private static final String AUDIENCE = "client-id";
+
+    private static KeyPair keys;
+    private static KeyPair otherKeys;
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final JwkProvider jwks = keyId -> {
+        lookups.incrementAndGet();
+        if (!"k1".equals(keyId)) {
+            throw new SigningKeyNotFoundException("No key " + keyId, null);
+        }
+        return jwk((RSAPublicKey) keys.getPublic());
+    };
+
+    @BeforeClass
+    public static void generateKeys() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keys = generator.generateKeyPair();
+        otherKeys = generator.generateKeyPair();
+    }
+
+    @Test
+    public void verifiesAGoodTokenAndCachesIt() {
+        TokenVerifier verifier = new TokenVerifier(jwks, ISSUER, AUDIENCE, 0, 10);
+        String token = token(keys, "k1", ISSUER, AUDIENCE, 3600);
+
+        assertEquals("auth0|1", verifier.verify(token).getSubject());
+        assertEquals("auth0|1", verifier.verify(token).getSubject());
+        assertEquals(1, lookups.get());
+        assertEquals(1, verifier.cachedTokens());
+    }
+
+    @Test
+    public void rejectsBadTokensWithoutCachingThem() {
+        TokenVerifier verifier = new TokenVerifier(jwks, ISSUER, AUDIENCE, 0, 10);
+
+        assertRejected(verifier, token(otherKeys, "k1", ISSUER, AUDIENCE, 3600));
+        assertRejected(verifier, token(keys, "k2", ISSUER, AUDIENCE, 3600));
+        assertRejected(verifier, token(keys, "k1", "https://evil.example.com/", AUDIENCE, 3600));
+        assertRejected(verifier, token(keys, "k1", ISSUER, "other-client", 3600));
+        assertRejected(verifier, token(keys, "k1", ISSUER, AUDIENCE, -10));
+        String good = token(keys, "k1", ISSUER, AUDIENCE, 3600);
+        assertRejected(verifier, good.substring(0, good.length() - 4) + "AAAA");
+        assertEquals(0, verifier.cachedTokens());
+    }
+
+    @Test
+    public void rejectsACachedTokenOnceItExpires() throws InterruptedException {
+        TokenVerifier verifier = new TokenVerifier(jwks, ISSUER, AUDIENCE, 0, 10);
+        String token = token(keys, "k1", ISSUER, AUDIENCE, 1);
+        verifier.verify(token);
+        assertEquals(1, verifier.cachedTokens());
+
+        // exp has whole seconds, and the JWT library compares whole seconds too
+        Thread.sleep(2100);
+        assertRejected(verifier, token);
+        assertEquals(0, verifier.cachedTokens());
+    }
+
+    @Test
+    public void keepsTheCacheBounded() {
+        TokenVerifier verifier = new TokenVerifier(jwks, ISSUER, AUDIENCE, 0, 10);
+        for (int i = 0; i < 50; i++) {
+            verifier.verify(token(keys, "k1", ISSUER, AUDIENCE, 3600 + i));
+            assertTrue(verifier.cachedTokens() <= 10);
+        }
+    }
+
+    private static void assertRejected(TokenVerifier verifier, String token) {
+        try {
+            verifier.verify(token);
+            fail("Verified a bad token");
+        } catch (JWTVerificationException expected) {
+            // Rejected
+        }
+    }
+
+    private static String token(KeyPair signer, String keyId, String issuer, String audience, long expiresInSeconds) {
+        Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) signer.getPublic(), (RSAPrivateKey) signer.getPrivate());
+        return JWT.create()
+                .withKeyId(keyId)
+                .withIssuer(issuer)
+                .withAudience(audience)
+                .withSubject("auth0|1")
+                .withExpiresAt(new Date(System.currentTimeMillis() + expiresInSeconds * 1000))
+                .sign(algorithm);
+    }
+
+    private static Jwk jwk(RSAPublicKey key) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("kid", "k1");
+        values.put("kty", "RSA");
+        values.put("alg", "RS256");
+        values.put("use", "sig");
+        values.put("n", base64Url(key.getModulus().toByteArray()));
+        values.put("e", base64Url(key.getPublicExponent().toByteArray()));
+        return Jwk.fromValues(values);
+    }
+
+    private static String base64Url(byte[] twosComplement) {
+        // Unsigned big-endian, as JWKs encode them
+        byte[] unsigned = twosComplement[0] == 0 ? Arrays.copyOfRange(twosComplement, 1, twosComplement.length)
+                : twosComplement;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+    }
+}